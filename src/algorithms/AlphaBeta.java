@@ -3,104 +3,650 @@ package algorithms;
 import java.util.ArrayList;
 
 import models.*;
-import engine.*;
 
 /**
  * The class that implements GameEngine using a minimax approach with alpha/beta
  * pruning.
  * 
+ * Chess is also searched selectively: null move pruning, late move reductions
+ * and futility pruning with razoring skip or shorten lines that are unlikely
+ * to matter. Each can be turned off on its own.
+ * 
  * @author Marcus
  * 
  */
-public class AlphaBeta extends GameEngine {
+public class AlphaBeta extends SearchEngine {
+
+	// Size of the default transposition table, as a power of two
+	public static final int DEFAULT_TABLE_BITS = 18;
+
+	// Deepest iteration of a timed search, in plies
+	public static final int MAX_DEPTH = 64;
+
+	// Depth stored for subtrees searched to the end of the game
+	private static final int EXHAUSTED = 0xFF;
+
+	// Plies taken off the search after a null move
+	public static final int NULL_MOVE_REDUCTION = 2;
+
+	// Quiet moves from this far down the order are searched a ply shallower
+	// first, in nodes at least this deep
+	public static final int REDUCTION_MOVES = 4;
+	public static final int REDUCTION_DEPTH = 3;
+
+	// How far below the window a chess score must be for futility pruning
+	// one ply from the leaves, and for razoring within RAZOR_DEPTH plies
+	public static final int FUTILITY_MARGIN = 250;
+	public static final int RAZOR_MARGIN = 400;
+	public static final int RAZOR_DEPTH = 2;
 
 	private int depth;
 
+	// Whether this engine starts each search on the table, or whoever shares
+	// it with other engines does
+	private boolean ownsTable;
+
+	// Columns of the board being searched, for encoding moves
+	private int cols;
+
+	// Whether killer and history tables order the moves
+	private boolean orderingEnabled = true;
+
+	// Whether leaf nodes are searched on through captures
+	private boolean quiescenceEnabled = true;
+
+	// Solved positions to look up instead of searching, if any
+	private Tablebase tablebase;
+
+	// Selective pruning, which only applies to chess
+	private boolean selective;
+	private boolean nullMoveEnabled = true;
+	private boolean reductionsEnabled = true;
+	private boolean futilityEnabled = true;
+
+	// Set when a node was cut off by the depth limit rather than the game
+	// ending, so a timed search knows whether deeper would help
+	private boolean horizon;
+
+	private int rootScore;
+
+	// Nodes that were cut off, and how many of them by their first move
+	private long cutoffs;
+	private long firstMoveCutoffs;
+
+	// What the selective pruning did
+	private long nullMoveCutoffs;
+	private long reductions;
+	private long futilityPrunes;
+
+	// Nodes found in the tablebase
+	private long tablebaseHits;
+
 	public AlphaBeta(int depth) {
+		this(depth, new TranspositionTable(DEFAULT_TABLE_BITS));
+		ownsTable = true;
+	}
+
+	/**
+	 * Creates an engine that uses the given table. The table may be shared
+	 * with engines searching on other threads, so it is up to the caller to
+	 * call newSearch on it before each search.
+	 * 
+	 * @param depth
+	 * @param table
+	 */
+	public AlphaBeta(int depth, TranspositionTable table) {
 		this.depth = depth;
+		this.table = table;
 	}
 
 	/**
 	 * Method to get a move for the given game, using a minimax search with
-	 * alpha-beta pruning optimization.
+	 * alpha-beta pruning optimization. The search walks a single copy of the
+	 * game, making and taking back moves in place.
 	 * 
 	 */
 	public Move getMove(Game g) {
-		int playerID = g.getTurn();
+		stopPondering();
 		ArrayList<Move> possibleMoves = g.getAvailableMoves();
 
 		if (possibleMoves.size() == 1)
 			return possibleMoves.get(0);
 
-		ArrayList<Game> possibleGames = getPossibleGames(g, possibleMoves);
-		Game bestGame = null;
+		// Search a private copy so the live game is never touched
+		Game game = g.clone();
+		startSearch(game);
+		deadline = Long.MAX_VALUE;
+
+		orderMoves(game, possibleMoves, hashMove(game), 0);
+		orderRootMoves(possibleMoves);
+		Move bestMove = searchRoot(game, possibleMoves, depth);
+		addTableCounts();
+		return bestMove;
+	}
+
+	/**
+	 * Gets a move by iterative deepening: searches one ply, then two, and so
+	 * on until the budget runs out, and returns the best move of the deepest
+	 * search. A search cut short by the clock is only used for a move it has
+	 * proven better than the previous best. Stops early when a search reached
+	 * the end of the game everywhere, or when the next one would likely not
+	 * finish in time.
+	 * 
+	 */
+	public Move getMove(Game g, long budgetMillis) {
+		stopPondering();
+		ArrayList<Move> possibleMoves = g.getAvailableMoves();
+
+		if (possibleMoves.size() == 1)
+			return possibleMoves.get(0);
+
+		long startTime = System.currentTimeMillis();
+		Game game = g.clone();
+		startSearch(game);
+		deadline = startTime + budgetMillis;
+
+		// Start with the best move from an earlier search, if any
+		orderMoves(game, possibleMoves, hashMove(game), 0);
+		orderRootMoves(possibleMoves);
+
+		Move bestMove = possibleMoves.get(0);
+		for (int plies = 1; plies <= MAX_DEPTH; plies++) {
+			long iterationNodes = nodes;
+			horizon = false;
+
+			Move m = searchRoot(game, possibleMoves, plies - 1);
+			if (m != null)
+				bestMove = m;
+
+			if (stopped)
+				break;
+
+			long elapsed = System.currentTimeMillis() - startTime;
+			onIterationCompleted(plies, rootScore, nodes - iterationNodes,
+					elapsed);
+
+			if (!horizon || elapsed * 2 > budgetMillis)
+				break;
+
+			// Search the best move first next time
+			possibleMoves.remove(bestMove);
+			possibleMoves.add(0, bestMove);
+		}
+
+		addTableCounts();
+		return bestMove;
+	}
+
+	/**
+	 * Resets the state of the engine for a search of the given game.
+	 * 
+	 * @param game
+	 */
+	private void startSearch(Game game) {
+		cols = game.getRules().getCols();
+		if (ownsTable)
+			table.newSearch();
+
+		if (ordering == null)
+			ordering = new MoveOrdering(cols);
+		ordering.newSearch();
+
+		stopped = false;
+		nodes = 0;
+		quiescenceNodes = 0;
+		cutoffs = 0;
+		firstMoveCutoffs = 0;
+		nullMoveCutoffs = 0;
+		reductions = 0;
+		futilityPrunes = 0;
+		tablebaseHits = 0;
+
+		selective = game.getId() == Game.CHESS;
+	}
+
+	/**
+	 * Returns the best move stored for a position by an earlier search.
+	 * 
+	 * @param game
+	 * @return move code, or NO_MOVE
+	 */
+	private int hashMove(Game game) {
+		long entry = probe(game.getHashKey());
+		return entry == 0 ? TranspositionTable.NO_MOVE : TranspositionTable
+				.getMove(entry);
+	}
+
+	/**
+	 * Puts the moves of a node in the order they should be searched in. With
+	 * move ordering turned off, only the hash move is moved to the front.
+	 * 
+	 * @param game
+	 * @param possibleMoves
+	 * @param hashMove
+	 * @param ply
+	 */
+	private void orderMoves(Game game, ArrayList<Move> possibleMoves,
+			int hashMove, int ply) {
+		if (orderingEnabled) {
+			ordering.order(game, possibleMoves, hashMove, ply);
+		} else {
+			int hashIndex = TranspositionTable.findMove(possibleMoves,
+					hashMove, cols);
+			if (hashIndex > 0)
+				possibleMoves.add(0, possibleMoves.remove(hashIndex));
+		}
+	}
+
+	/**
+	 * Lets subclasses change the order the root moves are searched in. Does
+	 * nothing by default.
+	 * 
+	 * @param possibleMoves
+	 */
+	protected void orderRootMoves(ArrayList<Move> possibleMoves) {
+	}
+
+	protected SearchEngine newPonderer() {
+		AlphaBeta p = new AlphaBeta(depth, table);
+		p.orderingEnabled = orderingEnabled;
+		p.quiescenceEnabled = quiescenceEnabled;
+		p.tablebase = tablebase;
+		p.nullMoveEnabled = nullMoveEnabled;
+		p.reductionsEnabled = reductionsEnabled;
+		p.futilityEnabled = futilityEnabled;
+		return p;
+	}
+
+	/**
+	 * Searches each move at the root and returns the best one, leaving its
+	 * score in rootScore.
+	 * 
+	 * @param game
+	 * @param possibleMoves
+	 * @param depthToGo
+	 *            plies to search below each move
+	 * @return best move, or null if the clock ran out before the first move
+	 *         was searched
+	 */
+	private Move searchRoot(Game game, ArrayList<Move> possibleMoves,
+			int depthToGo) {
+		Move bestMove = null;
 		int alpha = Integer.MIN_VALUE;
 		int beta = Integer.MAX_VALUE;
-		if (playerID == Game.MAXIMIZING_PLAYER) {
-			for (Game testGame : possibleGames) {
-				int testScore = alphaBetaScore(testGame, depth, alpha, beta,
-						testGame.getTurn());
+		if (game.getTurn() == Game.MAXIMIZING_PLAYER) {
+			for (Move m : possibleMoves) {
+				Undo undo = game.doMove(m);
+				int testScore = alphaBetaScore(game, depthToGo, 1, alpha,
+						beta, game.getTurn(), true);
+				game.undoMove(undo);
+				if (stopped)
+					break;
 				if (testScore > alpha) {
 					alpha = testScore;
-					bestGame = testGame;
+					bestMove = m;
 				}
 			}
+			rootScore = alpha;
 		} else {
-			for (Game testGame : possibleGames) {
-				int testScore = alphaBetaScore(testGame, depth, alpha, beta,
-						testGame.getTurn());
+			for (Move m : possibleMoves) {
+				Undo undo = game.doMove(m);
+				int testScore = alphaBetaScore(game, depthToGo, 1, alpha,
+						beta, game.getTurn(), true);
+				game.undoMove(undo);
+				if (stopped)
+					break;
 				if (testScore < beta) {
 					beta = testScore;
-					bestGame = testGame;
+					bestMove = m;
 				}
 			}
+			rootScore = beta;
 		}
 
-		ArrayList<Move> gameMoves = bestGame.getMoves();
-		return gameMoves.get(gameMoves.size() - 1);
+		return bestMove;
 	}
 
-	private int alphaBetaScore(Game start, int depthToGo, int alpha, int beta,
-			int playerID) {
-		ArrayList<Move> possibleMoves = start.getAvailableMoves();
-		if (start.hasEnded()[0] == Game.WIN || possibleMoves.size() == 0
-				|| depthToGo == 0) {
-			return start.scoreGame();
+	private int alphaBetaScore(Game start, int depthToGo, int ply, int alpha,
+			int beta, int playerID, boolean allowNull) {
+		// Look at the clock now and then
+		if (countNode())
+			return 0;
+
+		long key = start.getHashKey();
+		long entry = probe(key);
+		int hashMove = TranspositionTable.NO_MOVE;
+
+		if (entry != 0) {
+			hashMove = TranspositionTable.getMove(entry);
+
+			// Only trust results searched at least as deep as this one
+			int entryDepth = TranspositionTable.getDepth(entry);
+			if (entryDepth >= depthToGo) {
+				int score = TranspositionTable.getScore(entry);
+				int flag = TranspositionTable.getFlag(entry);
+
+				if (flag == TranspositionTable.EXACT
+						|| (flag == TranspositionTable.LOWER_BOUND && score >= beta)
+						|| (flag == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+					if (entryDepth != EXHAUSTED)
+						horizon = true;
+					return score;
+				}
+			}
 		}
-		ArrayList<Game> possibleGames = getPossibleGames(start, possibleMoves);
-		if (playerID == Game.MAXIMIZING_PLAYER) {
-			for (Game testGame : possibleGames) {
-				alpha = Math.max(
-						alpha,
-						alphaBetaScore(testGame, depthToGo - 1, alpha, beta,
-								testGame.getTurn()));
-				if (alpha >= beta) {
-					break;
+
+		// Few enough pieces are looked up, and the result is exact
+		if (tablebase != null) {
+			int[] known = tablebase.probe(start);
+			if (known[0] != Game.NONE) {
+				tablebaseHits++;
+				return start.scoreGame(known);
+			}
+		}
+
+		// One move generation for both the moves and the end of the game
+		Expansion node = start.expand();
+		ArrayList<Move> possibleMoves = node.getMoves();
+		if (node.getState()[0] == Game.WIN || possibleMoves.size() == 0) {
+			int score = start.scoreGame(node.getState());
+			table.store(key, EXHAUSTED, TranspositionTable.EXACT, score,
+					TranspositionTable.NO_MOVE);
+			return score;
+		}
+		if (depthToGo == 0) {
+			horizon = true;
+			if (!quiescenceEnabled) {
+				int score = start.scoreGame(node.getState());
+				table.store(key, 0, TranspositionTable.EXACT, score,
+						TranspositionTable.NO_MOVE);
+				return score;
+			}
+
+			int score = quiescence(start, node, 0, ply, alpha, beta);
+			if (stopped)
+				return 0;
+			table.store(key, 0, score >= beta ? TranspositionTable.LOWER_BOUND
+					: score <= alpha ? TranspositionTable.UPPER_BOUND
+							: TranspositionTable.EXACT, score,
+					TranspositionTable.NO_MOVE);
+			return score;
+		}
+
+		// Chess only, see setNullMovePruning
+		int staticScore = selective ? start.scoreGame(node.getState()) : 0;
+		boolean maximizing = playerID == Game.MAXIMIZING_PLAYER;
+
+		// Let the other player move twice. If this side still scores at
+		// least beta, its real moves surely would too. Not in the ending,
+		// where having to move can be a disadvantage (zugzwang).
+		if (selective && nullMoveEnabled && allowNull
+				&& depthToGo > NULL_MOVE_REDUCTION
+				&& (maximizing ? staticScore >= beta : staticScore <= alpha)
+				&& start.evaluateState() != Game.IN_ENDING) {
+			Undo undo = start.doNullMove();
+			int score = maximizing ? alphaBetaScore(start, depthToGo - 1
+					- NULL_MOVE_REDUCTION, ply + 1, beta - 1, beta,
+					start.getTurn(), false) : alphaBetaScore(start, depthToGo
+					- 1 - NULL_MOVE_REDUCTION, ply + 1, alpha, alpha + 1,
+					start.getTurn(), false);
+			start.undoNullMove(undo);
+			if (stopped)
+				return 0;
+
+			if (maximizing ? score >= beta : score <= alpha) {
+				nullMoveCutoffs++;
+				horizon = true;
+				return maximizing ? beta : alpha;
+			}
+		}
+
+		// Razoring: a position far below the window just before the leaves
+		// is unlikely to recover, so settle it with the quiescence search
+		if (selective && futilityEnabled && depthToGo <= RAZOR_DEPTH
+				&& (maximizing ? staticScore + RAZOR_MARGIN <= alpha
+						: staticScore - RAZOR_MARGIN >= beta)) {
+			int score = quiescence(start, node, 0, ply, alpha, beta);
+			if (stopped)
+				return 0;
+
+			if (maximizing ? score <= alpha : score >= beta) {
+				futilityPrunes++;
+				horizon = true;
+				return maximizing ? alpha : beta;
+			}
+		}
+
+		// Try the best move from an earlier search first, then the moves
+		// most likely to cause a cutoff
+		orderMoves(start, possibleMoves, hashMove, ply);
+
+		// Find out whether this subtree reaches the depth limit
+		boolean outerHorizon = horizon;
+		horizon = false;
+
+		int alphaOrig = alpha;
+		int betaOrig = beta;
+		Move bestMove = null;
+
+		for (int i = 0; i < possibleMoves.size(); i++) {
+			Move m = possibleMoves.get(i);
+			boolean quiet = selective && !m.isPromoted()
+					&& !start.isCapture(m);
+
+			// Futility pruning: one ply from the leaves, a quiet move can't
+			// bring a score that far below the window back up
+			if (quiet
+					&& futilityEnabled
+					&& depthToGo == 1
+					&& i > 0
+					&& (maximizing ? staticScore + FUTILITY_MARGIN <= alpha
+							: staticScore - FUTILITY_MARGIN >= beta)) {
+				futilityPrunes++;
+				horizon = true;
+				continue;
+			}
+
+			Undo undo = start.doMove(m);
+			int score;
+			if (quiet && reductionsEnabled && depthToGo >= REDUCTION_DEPTH
+					&& i >= REDUCTION_MOVES) {
+				// Late move reduction: a quiet move this far down the order
+				// is searched a ply shallower first, to prove it no better
+				reductions++;
+				score = maximizing ? alphaBetaScore(start, depthToGo - 2,
+						ply + 1, alpha, alpha + 1, start.getTurn(), true)
+						: alphaBetaScore(start, depthToGo - 2, ply + 1,
+								beta - 1, beta, start.getTurn(), true);
+
+				if (!stopped && (maximizing ? score > alpha : score < beta))
+					score = alphaBetaScore(start, depthToGo - 1, ply + 1,
+							alpha, beta, start.getTurn(), true);
+			} else {
+				score = alphaBetaScore(start, depthToGo - 1, ply + 1, alpha,
+						beta, start.getTurn(), true);
+			}
+			start.undoMove(undo);
+			if (stopped)
+				return 0;
+
+			if (maximizing) {
+				if (score > alpha || bestMove == null) {
+					alpha = Math.max(alpha, score);
+					bestMove = m;
+				}
+			} else {
+				if (score < beta || bestMove == null) {
+					beta = Math.min(beta, score);
+					bestMove = m;
 				}
 			}
+			if (alpha >= beta) {
+				recordCutoff(start, m, i, ply, depthToGo);
+				break;
+			}
+		}
+
+		if (maximizing) {
+			table.store(key, horizon ? depthToGo : EXHAUSTED,
+					alpha >= beta ? TranspositionTable.LOWER_BOUND
+							: alpha <= alphaOrig ? TranspositionTable.UPPER_BOUND
+									: TranspositionTable.EXACT, alpha,
+					TranspositionTable.encodeMove(bestMove, cols));
+			horizon |= outerHorizon;
 			return alpha;
 		} else {
-			for (Game testGame : possibleGames) {
-				beta = Math.min(
-						beta,
-						alphaBetaScore(testGame, depthToGo - 1, alpha, beta,
-								testGame.getTurn()));
-				if (alpha >= beta) {
-					break;
-				}
-			}
+			table.store(key, horizon ? depthToGo : EXHAUSTED,
+					alpha >= beta ? TranspositionTable.UPPER_BOUND
+							: beta >= betaOrig ? TranspositionTable.LOWER_BOUND
+									: TranspositionTable.EXACT, beta,
+					TranspositionTable.encodeMove(bestMove, cols));
+			horizon |= outerHorizon;
 			return beta;
 		}
 	}
 
-	private ArrayList<Game> getPossibleGames(Game start, ArrayList<Move> moves) {
-		ArrayList<Game> result = new ArrayList<Game>();
-		for (Move m : moves) {
-			Game tempGame = start.clone();
-			if (tempGame.addMove(m)) {
-				result.add(tempGame);
-			}
-		}
-		return result;
+	/**
+	 * Counts a cutoff and teaches the move ordering about the move that
+	 * caused it.
+	 * 
+	 * @param game
+	 * @param m
+	 * @param index
+	 *            where the move was in the order
+	 * @param ply
+	 * @param depthToGo
+	 */
+	private void recordCutoff(Game game, Move m, int index, int ply,
+			int depthToGo) {
+		cutoffs++;
+		if (index == 0)
+			firstMoveCutoffs++;
+
+		if (orderingEnabled)
+			ordering.recordCutoff(game, m, ply, depthToGo);
+	}
+
+	/**
+	 * Turns move ordering beyond the hash move on or off, to measure what it
+	 * gains. It is on by default.
+	 * 
+	 * @param enabled
+	 */
+	public void setMoveOrdering(boolean enabled) {
+		this.orderingEnabled = enabled;
+	}
+
+	/**
+	 * Turns the quiescence search on or off. Without it, leaf nodes are
+	 * scored as they are. It is on by default.
+	 * 
+	 * @param enabled
+	 */
+	public void setQuiescence(boolean enabled) {
+		this.quiescenceEnabled = enabled;
+	}
+
+	/**
+	 * Turns null move pruning on or off. It is on by default. Like the other
+	 * selective pruning it only applies to chess; the other games are small
+	 * enough to search in full, and forced jumps make a free move unsound in
+	 * checkers.
+	 * 
+	 * @param enabled
+	 */
+	public void setNullMovePruning(boolean enabled) {
+		this.nullMoveEnabled = enabled;
+	}
+
+	/**
+	 * Turns late move reductions on or off. It is on by default, for chess
+	 * only.
+	 * 
+	 * @param enabled
+	 */
+	public void setLateMoveReductions(boolean enabled) {
+		this.reductionsEnabled = enabled;
+	}
+
+	/**
+	 * Turns futility pruning and razoring on or off. It is on by default, for
+	 * chess only.
+	 * 
+	 * @param enabled
+	 */
+	public void setFutilityPruning(boolean enabled) {
+		this.futilityEnabled = enabled;
+	}
+
+	/**
+	 * Sets a tablebase of solved positions. Positions found there aren't
+	 * searched any further and are scored as if the game had ended with the
+	 * result found.
+	 * 
+	 * @param tablebase
+	 *            or null for none
+	 */
+	public void setTablebase(Tablebase tablebase) {
+		this.tablebase = tablebase;
+	}
+
+	/**
+	 * Returns the number of nodes of the last search found in the
+	 * tablebase.
+	 * 
+	 * @return tablebaseHits
+	 */
+	public long getTablebaseHits() {
+		return tablebaseHits;
+	}
+
+	/**
+	 * Returns the number of nodes of the last search cut off by a null move.
+	 * 
+	 * @return nullMoveCutoffs
+	 */
+	public long getNullMoveCutoffs() {
+		return nullMoveCutoffs;
+	}
+
+	/**
+	 * Returns the number of moves of the last search that were searched
+	 * with a reduced depth first.
+	 * 
+	 * @return reductions
+	 */
+	public long getReductions() {
+		return reductions;
+	}
+
+	/**
+	 * Returns the number of moves skipped by futility pruning and nodes cut
+	 * off by razoring in the last search.
+	 * 
+	 * @return futilityPrunes
+	 */
+	public long getFutilityPrunes() {
+		return futilityPrunes;
+	}
+
+	/**
+	 * Returns the number of nodes of the last search that were cut off.
+	 * 
+	 * @return cutoffs
+	 */
+	public long getCutoffs() {
+		return cutoffs;
+	}
+
+	/**
+	 * Returns the number of nodes of the last search that were cut off by the
+	 * first move searched. The closer this is to getCutoffs, the better the
+	 * moves were ordered.
+	 * 
+	 * @return firstMoveCutoffs
+	 */
+	public long getFirstMoveCutoffs() {
+		return firstMoveCutoffs;
 	}
 }
@@ -23,32 +23,25 @@ public class Greedy extends GameEngine {
 	@Override
 	public Move getMove(Game g) {
 		ArrayList<Move> possibleMoves = g.getAvailableMoves();
-		ArrayList<Game> possibleGames = getGames(g, possibleMoves);
-		Game bestGame = possibleGames.get(0);
-		int bestScore = bestGame.evaluateState();
-		for (int i = 1; i < possibleGames.size(); i++) {
-			if ((g.getTurn() == Game.MAXIMIZING_PLAYER && possibleGames.get(i)
-					.scoreGame() > bestScore)
-					|| (g.getTurn() == Game.MINIMIZING_PLAYER && possibleGames
-							.get(i).scoreGame() < bestScore)) {
-				bestGame = possibleGames.get(i);
-				bestScore = bestGame.scoreGame();
-			}
-		}
-		ArrayList<Move> gameMoves = bestGame.getMoves();
-		return gameMoves.get(gameMoves.size() - 1);
 
-	}
-
-	private ArrayList<Game> getGames(Game start, ArrayList<Move> moves) {
-		ArrayList<Game> result = new ArrayList<Game>();
-		for (Move m : moves) {
-			Game tempGame = start.clone();
-			if (tempGame.addMove(m)) {
-				result.add(tempGame);
+		// Score each move on a private copy of the game
+		Game game = g.clone();
+		Move bestMove = possibleMoves.get(0);
+		Undo undo = game.doMove(bestMove);
+		int bestScore = game.evaluateState();
+		game.undoMove(undo);
+		for (int i = 1; i < possibleMoves.size(); i++) {
+			undo = game.doMove(possibleMoves.get(i));
+			int testScore = game.scoreGame();
+			game.undoMove(undo);
+			if ((g.getTurn() == Game.MAXIMIZING_PLAYER && testScore > bestScore)
+					|| (g.getTurn() == Game.MINIMIZING_PLAYER && testScore < bestScore)) {
+				bestMove = possibleMoves.get(i);
+				bestScore = testScore;
 			}
 		}
-		return result;
+		return bestMove;
+
 	}
 
 }
@@ -32,37 +32,41 @@ public class Minimax extends GameEngine {
 		if (possibleMoves.size() == 1)
 			return possibleMoves.get(0);
 
-		ArrayList<Game> possibleGames = getPossibleGames(g, possibleMoves);
-		Game bestGame = possibleGames.get(0);
-		int bestScore = minimaxScore(bestGame, depth, bestGame.getTurn());
-		for (int i = 1; i < possibleGames.size(); i++) {
-			Game testGame = possibleGames.get(i);
-			int testScore = minimaxScore(testGame, depth, testGame.getTurn());
-			System.out.println(testScore);
+		// Search a private copy so the live game is never touched
+		Game game = g.clone();
+		Move bestMove = possibleMoves.get(0);
+		Undo undo = game.doMove(bestMove);
+		int bestScore = minimaxScore(game, depth, game.getTurn());
+		game.undoMove(undo);
+		for (int i = 1; i < possibleMoves.size(); i++) {
+			Move testMove = possibleMoves.get(i);
+			undo = game.doMove(testMove);
+			int testScore = minimaxScore(game, depth, game.getTurn());
+			game.undoMove(undo);
 			if ((playerID == Game.MAXIMIZING_PLAYER && testScore > bestScore)
 					|| (playerID == Game.MINIMIZING_PLAYER && testScore < bestScore)) {
-				bestGame = testGame;
+				bestMove = testMove;
 				bestScore = testScore;
 			}
 		}
-		ArrayList<Move> gameMoves = bestGame.getMoves();
-		return gameMoves.get(gameMoves.size() - 1);
+		return bestMove;
 	}
 
 	private int minimaxScore(Game start, int depthToGo, int playerID) {
-		ArrayList<Move> possibleMoves = start.getAvailableMoves();
-		if (start.hasEnded()[0] == Game.WIN || possibleMoves.size() == 0
+		Expansion node = start.expand();
+		ArrayList<Move> possibleMoves = node.getMoves();
+		if (node.getState()[0] == Game.WIN || possibleMoves.size() == 0
 				|| depthToGo == 0) {
-			return start.scoreGame();
+			return start.scoreGame(node.getState());
 		}
 
-		ArrayList<Game> possibleGames = getPossibleGames(start, possibleMoves);
-		int bestScore = minimaxScore(possibleGames.get(0), depthToGo - 1,
-				possibleGames.get(0).getTurn());
-		for (int i = 1; i < possibleGames.size(); i++) {
-			Game testGame = possibleGames.get(i);
-			int testScore = minimaxScore(testGame, depthToGo - 1,
-					testGame.getTurn());
+		Undo undo = start.doMove(possibleMoves.get(0));
+		int bestScore = minimaxScore(start, depthToGo - 1, start.getTurn());
+		start.undoMove(undo);
+		for (int i = 1; i < possibleMoves.size(); i++) {
+			undo = start.doMove(possibleMoves.get(i));
+			int testScore = minimaxScore(start, depthToGo - 1, start.getTurn());
+			start.undoMove(undo);
 
 			if ((playerID == Game.MAXIMIZING_PLAYER && testScore > bestScore)
 					|| (playerID == Game.MINIMIZING_PLAYER && testScore < bestScore)) {
@@ -72,21 +76,6 @@ public class Minimax extends GameEngine {
 		return bestScore;
 	}
 
-	private ArrayList<Game> getPossibleGames(Game start, ArrayList<Move> moves) {
-		ArrayList<Game> result = new ArrayList<Game>();
-		for (Move m : moves) {
-			Game tempGame = start.clone();
-			if (tempGame.addMove(m)) {
-				// System.out
-				// .println("MoveX: " + m.getEnd().getX() + " MoveY: "
-				// + m.getEnd().getY() + " Score: "
-				// + tempGame.scoreGame());
-				result.add(tempGame);
-			}
-		}
-		return result;
-	}
-
 	private int flipID(int id) {
 		return 1 - id;
 	}
@@ -0,0 +1,558 @@
+package algorithms;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import models.Expansion;
+import models.Game;
+import models.Move;
+import models.Undo;
+import engine.GameEngine;
+
+/**
+ * The class that implements GameEngine by Monte Carlo tree search with UCT.
+ * Each iteration walks down the tree to a position that hasn't been tried,
+ * plays random moves from there to the end of the game, and counts the
+ * result in every position on the way. The move played is the one tried
+ * most. It needs no evaluation, so it gets stronger with more iterations
+ * rather than with a better scoreGame.
+ * 
+ * Several threads grow the same tree at once, each walking its own copy of
+ * the game. A position counts its visit as soon as a thread walks through
+ * it, before the result is known, which is a virtual loss: it looks worse
+ * until the result comes back, so the other threads spread out over other
+ * moves instead of all following the same line.
+ * 
+ * The tree is kept between moves. When asked for a move, the engine looks
+ * for the new position a few plies down the old tree and goes on from there.
+ * 
+ * @author denniscui
+ * 
+ */
+public class MonteCarlo extends GameEngine {
+
+	// Weight of trying moves that have been tried less against playing the
+	// ones that have done well, about the square root of two
+	public static final double EXPLORATION = 1.4;
+
+	public static final int DEFAULT_ITERATIONS = 10000;
+
+	// Random moves played before the game is scored by scoreGame instead
+	public static final int MAX_PLAYOUT_PLIES = 200;
+
+	// How far down the old tree to look for the new position
+	public static final int REUSE_DEPTH = 4;
+
+	// Most iterations a ponder runs, to bound the size of the tree
+	public static final int PONDER_ITERATIONS = 100000;
+
+	// Results are counted in half points, from the side of the player who
+	// made the move into a position
+	private static final int WIN = 2;
+	private static final int DRAW = 1;
+
+	private int iterations;
+	private int threads;
+
+	// Runs the helpers; created on first use
+	private ExecutorService pool;
+
+	// Tree of the last search, kept for the next one
+	private Node root;
+
+	private AtomicInteger playouts = new AtomicInteger();
+	private int reused;
+
+	// Grows the tree on its own thread while the other player thinks, until
+	// its iterations are used up or set to none
+	private Thread ponderThread;
+	private AtomicInteger ponderRemaining;
+
+	/**
+	 * Creates an engine that runs the default number of iterations with one
+	 * thread per processor.
+	 */
+	public MonteCarlo() {
+		this(DEFAULT_ITERATIONS);
+	}
+
+	/**
+	 * Creates an engine that runs the given number of iterations a move with
+	 * one thread per processor.
+	 * 
+	 * @param iterations
+	 */
+	public MonteCarlo(int iterations) {
+		this(iterations, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates an engine that runs the given number of iterations a move with
+	 * the given number of threads, counting the caller's.
+	 * 
+	 * @param iterations
+	 * @param threads
+	 */
+	public MonteCarlo(int iterations, int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("Need at least one thread");
+
+		this.iterations = iterations;
+		this.threads = threads;
+	}
+
+	public Move getMove(Game g) {
+		return search(g, iterations, -1);
+	}
+
+	/**
+	 * Gets a move by searching until the time budget is used up, however
+	 * many iterations that is.
+	 */
+	public Move getMove(Game g, long budgetMillis) {
+		return search(g, Integer.MAX_VALUE, budgetMillis);
+	}
+
+	/**
+	 * Grows the tree from the position of a game and picks the move tried
+	 * most, or the first move if the tree has none.
+	 * 
+	 * @param g
+	 * @param iterations
+	 *            iterations to run
+	 * @param budgetMillis
+	 *            time budget, or negative for none
+	 * @return move, or null if there are none
+	 */
+	private Move search(Game g, int iterations, long budgetMillis) {
+		stopPondering();
+		ArrayList<Move> moves = g.getAvailableMoves();
+		if (moves.size() <= 1)
+			return moves.isEmpty() ? null : moves.get(0);
+
+		long start = System.currentTimeMillis();
+		final long deadline = budgetMillis < 0 ? Long.MAX_VALUE : start
+				+ budgetMillis;
+
+		setRoot(g);
+		playouts.set(0);
+		final AtomicInteger remaining = new AtomicInteger(iterations);
+
+		ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int i = 1; i < threads; i++) {
+			final Game copy = g.clone();
+			futures.add(getPool().submit(new Runnable() {
+				@Override
+				public void run() {
+					grow(copy, remaining, deadline);
+				}
+			}));
+		}
+
+		grow(g.clone(), remaining, deadline);
+
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		Node best = null;
+		if (root.children != null) {
+			for (Node child : root.children) {
+				if (best == null || child.visits > best.visits)
+					best = child;
+			}
+		}
+
+		// No iteration ran, for a budget of none or one already used up
+		if (best == null || best.visits == 0)
+			return moves.get(0);
+
+		// Reported as the percentage of half points the move scored
+		onIterationCompleted(depth(root), best.score * 50 / best.visits,
+				playouts.get(), System.currentTimeMillis() - start);
+
+		// The move in the tree may come from another copy of the game
+		int cols = g.getRules().getCols();
+		int index = TranspositionTable.findMove(moves,
+				TranspositionTable.encodeMove(best.move, cols), cols);
+
+		root = best;
+		return moves.get(index);
+	}
+
+	/**
+	 * Grows the tree from the position on a background thread, with the other
+	 * player to move. The next search finds the position after their move
+	 * among the children.
+	 * 
+	 */
+	public synchronized void ponder(Game g) {
+		stopPondering();
+		if (g.getAvailableMoves().size() <= 1)
+			return;
+
+		setRoot(g);
+		final Game copy = g.clone();
+		final AtomicInteger remaining = new AtomicInteger(PONDER_ITERATIONS);
+		ponderRemaining = remaining;
+		ponderThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				grow(copy, remaining, Long.MAX_VALUE);
+			}
+		}, "MonteCarlo ponder");
+		ponderThread.setDaemon(true);
+		ponderThread.start();
+	}
+
+	public synchronized void stopPondering() {
+		if (ponderThread == null)
+			return;
+
+		ponderRemaining.set(0);
+		try {
+			ponderThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		ponderThread = null;
+		ponderRemaining = null;
+	}
+
+	/**
+	 * Makes the root the position of a game, from the old tree if it's there.
+	 * 
+	 * @param g
+	 */
+	private void setRoot(Game g) {
+		root = reuse(g);
+		if (root == null) {
+			root = new Node(null, -1);
+			root.key = g.getHashKey();
+		}
+	}
+
+	/**
+	 * Runs iterations on one thread until there are none left or time is up.
+	 * 
+	 * @param game
+	 *            this thread's own copy of the game
+	 * @param remaining
+	 *            iterations left, shared by the threads
+	 * @param deadline
+	 */
+	private void grow(Game game, AtomicInteger remaining, long deadline) {
+		Random random = new Random();
+		ArrayList<Node> path = new ArrayList<Node>();
+		ArrayList<Undo> undos = new ArrayList<Undo>();
+
+		while (remaining.getAndDecrement() > 0
+				&& System.currentTimeMillis() < deadline) {
+			int winner = select(game, random, path, undos);
+			if (winner == Integer.MIN_VALUE)
+				winner = playout(game, random, undos);
+
+			for (int i = undos.size() - 1; i >= 0; i--)
+				game.undoMove(undos.get(i));
+
+			for (Node node : path)
+				node.update(winner);
+
+			path.clear();
+			undos.clear();
+			playouts.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Walks down the tree by UCT until it adds a new position, making the
+	 * moves on the way.
+	 * 
+	 * @param game
+	 * @param random
+	 * @param path
+	 *            filled with the positions walked through
+	 * @param undos
+	 *            filled with the moves made
+	 * @return winner if the walk ended where the game is over, -1 for a draw,
+	 *         or Integer.MIN_VALUE if a playout is needed
+	 */
+	private int select(Game game, Random random, ArrayList<Node> path,
+			ArrayList<Undo> undos) {
+		Node node = root;
+		synchronized (node) {
+			node.visits++;
+		}
+		path.add(node);
+
+		while (true) {
+			Node next;
+			boolean added = false;
+			synchronized (node) {
+				if (node.untried == null)
+					node.expand(game);
+
+				if (node.state[0] != Game.NONE)
+					return winner(node.state);
+
+				if (!node.untried.isEmpty()) {
+					Move m = node.untried.remove(random.nextInt(node.untried
+							.size()));
+					next = new Node(m, game.getTurn());
+					node.children.add(next);
+					added = true;
+				} else
+					next = node.select();
+
+				// Counted now, so the move looks lost until the result
+				// comes in
+				synchronized (next) {
+					next.visits++;
+				}
+			}
+
+			undos.add(game.doMove(next.move));
+			path.add(next);
+			node = next;
+
+			if (added) {
+				node.key = game.getHashKey();
+				return Integer.MIN_VALUE;
+			}
+		}
+	}
+
+	/**
+	 * Plays random moves to the end of the game, or until it has gone on too
+	 * long and scoreGame decides it.
+	 * 
+	 * @param game
+	 * @param random
+	 * @param undos
+	 *            the moves played are added
+	 * @return winner, or -1 for a draw
+	 */
+	private int playout(Game game, Random random, ArrayList<Undo> undos) {
+		for (int ply = 0; ply < MAX_PLAYOUT_PLIES; ply++) {
+			Expansion e = game.expand();
+			if (e.isOver())
+				return winner(e.getState());
+
+			ArrayList<Move> moves = e.getMoves();
+			undos.add(game.doMove(moves.get(random.nextInt(moves.size()))));
+		}
+
+		int score = game.scoreGame();
+		if (score > 0)
+			return Game.MAXIMIZING_PLAYER;
+		else if (score < 0)
+			return Game.MINIMIZING_PLAYER;
+		else
+			return -1;
+	}
+
+	private static int winner(int[] state) {
+		return state[0] == Game.WIN ? state[1] : -1;
+	}
+
+	/**
+	 * Finds the position of a game in the tree kept from the last search.
+	 * 
+	 * @param g
+	 * @return the node of the position, or null if it isn't there
+	 */
+	private Node reuse(Game g) {
+		if (root == null)
+			return null;
+
+		long key = g.getHashKey();
+		ArrayList<Node> level = new ArrayList<Node>();
+		level.add(root);
+		for (int depth = 0; depth <= REUSE_DEPTH && !level.isEmpty(); depth++) {
+			ArrayList<Node> next = new ArrayList<Node>();
+			for (Node node : level) {
+				if (node.key == key) {
+					reused = node.visits;
+					return node;
+				}
+
+				if (node.children != null)
+					next.addAll(node.children);
+			}
+
+			level = next;
+		}
+
+		reused = 0;
+		return null;
+	}
+
+	/**
+	 * Returns the depth of the deepest line in the tree, following the move
+	 * tried most.
+	 */
+	private static int depth(Node node) {
+		int depth = 0;
+		while (node.children != null && !node.children.isEmpty()) {
+			Node best = null;
+			for (Node child : node.children) {
+				if (best == null || child.visits > best.visits)
+					best = child;
+			}
+
+			node = best;
+			depth++;
+		}
+
+		return depth;
+	}
+
+	private ExecutorService getPool() {
+		if (pool == null) {
+			pool = Executors.newFixedThreadPool(threads - 1,
+					new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable r) {
+							// Don't keep the program alive just for these
+							Thread t = new Thread(r, "MonteCarlo");
+							t.setDaemon(true);
+							return t;
+						}
+					});
+		}
+
+		return pool;
+	}
+
+	/**
+	 * Stops the helper threads. The engine can still be used afterwards; a
+	 * new pool is made when needed.
+	 */
+	public void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+
+	/**
+	 * Forgets the tree, so the next search starts afresh.
+	 */
+	public void clear() {
+		root = null;
+	}
+
+	/**
+	 * Returns the number of playouts in the last search, over all threads.
+	 * 
+	 * @return playouts
+	 */
+	public int getPlayouts() {
+		return playouts.get();
+	}
+
+	/**
+	 * Returns the number of visits the last search found already in the tree
+	 * from the search before.
+	 * 
+	 * @return visits
+	 */
+	public int getReused() {
+		return reused;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	public void setIterations(int iterations) {
+		this.iterations = iterations;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * A position in the tree. Its fields are only used while holding its
+	 * lock.
+	 */
+	private static class Node {
+
+		// The move into this position and the player who made it
+		private Move move;
+		private int player;
+
+		private long key;
+
+		// Null until the position is expanded
+		private ArrayList<Move> untried;
+		private ArrayList<Node> children;
+		private int[] state;
+
+		private int visits;
+
+		// Half points for the player who made the move
+		private int score;
+
+		public Node(Move move, int player) {
+			this.move = move;
+			this.player = player;
+		}
+
+		/**
+		 * Lists the moves of the position, which the game must be at.
+		 */
+		private void expand(Game game) {
+			Expansion e = game.expand();
+			state = e.getState();
+			untried = e.isOver() ? new ArrayList<Move>() : e.getMoves();
+			children = new ArrayList<Node>();
+		}
+
+		/**
+		 * Picks the child with the best upper confidence bound. All moves
+		 * must have been tried.
+		 */
+		private Node select() {
+			double log = Math.log(visits);
+			Node best = null;
+			double bestValue = Double.NEGATIVE_INFINITY;
+			for (Node child : children) {
+				double value = child.value(log);
+				if (value > bestValue) {
+					bestValue = value;
+					best = child;
+				}
+			}
+
+			return best;
+		}
+
+		private synchronized double value(double parentLog) {
+			return (double) score / (WIN * visits) + EXPLORATION
+					* Math.sqrt(parentLog / visits);
+		}
+
+		/**
+		 * Counts the result of a playout through this position. The visit
+		 * was counted on the way down.
+		 */
+		private synchronized void update(int winner) {
+			if (winner == player)
+				score += WIN;
+			else if (winner == -1)
+				score += DRAW;
+		}
+	}
+}
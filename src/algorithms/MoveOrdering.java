@@ -0,0 +1,217 @@
+package algorithms;
+
+import java.util.ArrayList;
+
+import models.Game;
+import models.Move;
+import models.Piece;
+
+/**
+ * Puts the moves of a search node in the order most likely to cause an early
+ * cutoff: the best move from the transposition table, then captures with the
+ * most valuable victim and least valuable attacker first, then the killer
+ * moves of the ply, then the quiet moves by their history score.
+ * 
+ * Killers are quiet moves that caused a cutoff at the same ply elsewhere in
+ * the tree. The history table adds up, for each player and each pair of start
+ * and end squares, how often the move caused a cutoff, weighted by the depth
+ * searched.
+ * 
+ * @author denniscui
+ * 
+ */
+public class MoveOrdering {
+
+	// Plies that have their own killer moves
+	public static final int MAX_PLY = 128;
+
+	// Killer moves kept per ply
+	public static final int KILLERS = 2;
+
+	// Ranks of each kind of move. Captures add the value of the victim and
+	// take away the value of the attacker, history scores stay below killers.
+	private static final int HASH_MOVE = Integer.MAX_VALUE;
+	private static final int CAPTURE = 1 << 30;
+	private static final int KILLER = 1 << 29;
+	private static final int MAX_HISTORY = 1 << 28;
+
+	// Largest attacker value that still tells attackers apart
+	private static final int MAX_ATTACKER = 1023;
+
+	// Squares a move code can start on, including from off the board
+	private static final int FROM_SQUARES = 65;
+	private static final int TO_SQUARES = 64;
+
+	// Columns of the board, for encoding moves
+	private int cols;
+
+	private int[][] killers = new int[MAX_PLY][KILLERS];
+	private int[][] history = new int[2][FROM_SQUARES * TO_SQUARES];
+
+	// Ranks of the moves being sorted, one buffer per ply
+	private int[][] ranks = new int[MAX_PLY][];
+
+	/**
+	 * Creates the tables for a board with the given number of columns.
+	 * 
+	 * @param cols
+	 */
+	public MoveOrdering(int cols) {
+		this.cols = cols;
+		clear();
+	}
+
+	/**
+	 * Forgets the killers and ages the history before a new search, so that
+	 * what was learned about the last position counts for less.
+	 */
+	public void newSearch() {
+		for (int ply = 0; ply < MAX_PLY; ply++) {
+			for (int i = 0; i < KILLERS; i++)
+				killers[ply][i] = TranspositionTable.NO_MOVE;
+		}
+
+		for (int player = 0; player < 2; player++) {
+			for (int i = 0; i < history[player].length; i++)
+				history[player][i] >>= 1;
+		}
+	}
+
+	/**
+	 * Forgets everything learned.
+	 */
+	public void clear() {
+		newSearch();
+
+		for (int player = 0; player < 2; player++) {
+			for (int i = 0; i < history[player].length; i++)
+				history[player][i] = 0;
+		}
+	}
+
+	/**
+	 * Sorts the moves of a node, best first.
+	 * 
+	 * @param game
+	 *            the position the moves are made from
+	 * @param moves
+	 * @param hashMove
+	 *            move code from the transposition table, or NO_MOVE
+	 * @param ply
+	 *            distance from the root
+	 */
+	public void order(Game game, ArrayList<Move> moves, int hashMove, int ply) {
+		int size = moves.size();
+		if (size < 2)
+			return;
+
+		int[] rank = buffer(ply, size);
+		int player = game.getTurn();
+		for (int i = 0; i < size; i++) {
+			Move m = moves.get(i);
+			int code = TranspositionTable.encodeMove(m, cols);
+
+			if (code == hashMove)
+				rank[i] = HASH_MOVE;
+			else if (game.isCapture(m))
+				rank[i] = CAPTURE + captureValue(game, m)
+						* (MAX_ATTACKER + 1)
+						- Math.min(game.getPieceValue(m.getPiece()),
+								MAX_ATTACKER);
+			else if (ply < MAX_PLY && code == killers[ply][0])
+				rank[i] = KILLER + 1;
+			else if (ply < MAX_PLY && code == killers[ply][1])
+				rank[i] = KILLER;
+			else
+				rank[i] = history[player][index(code)];
+		}
+
+		// Insertion sort, which keeps equal moves in generated order
+		for (int i = 1; i < size; i++) {
+			Move m = moves.get(i);
+			int r = rank[i];
+
+			int j = i - 1;
+			while (j >= 0 && rank[j] < r) {
+				rank[j + 1] = rank[j];
+				moves.set(j + 1, moves.get(j));
+				j--;
+			}
+
+			rank[j + 1] = r;
+			moves.set(j + 1, m);
+		}
+	}
+
+	/**
+	 * Remembers a move that caused a cutoff. Only quiet moves are kept, since
+	 * captures are already searched early.
+	 * 
+	 * @param game
+	 *            the position the move was made from
+	 * @param m
+	 * @param ply
+	 * @param depthToGo
+	 *            plies that were searched below the move
+	 */
+	public void recordCutoff(Game game, Move m, int ply, int depthToGo) {
+		if (game.isCapture(m))
+			return;
+
+		int code = TranspositionTable.encodeMove(m, cols);
+
+		if (ply < MAX_PLY && killers[ply][0] != code) {
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = code;
+		}
+
+		int[] playerHistory = history[game.getTurn()];
+		int index = index(code);
+		playerHistory[index] += (depthToGo + 1) * (depthToGo + 1);
+
+		// Keep the history below the killers
+		if (playerHistory[index] >= MAX_HISTORY) {
+			for (int i = 0; i < playerHistory.length; i++)
+				playerHistory[i] >>= 1;
+		}
+	}
+
+	/**
+	 * Adds up the values of the other player's pieces a move takes.
+	 * 
+	 * @param game
+	 * @param m
+	 * @return value
+	 */
+	private static int captureValue(Game game, Move m) {
+		int value = 0;
+		for (Piece p : m.getAffected()) {
+			if (p.getPlayer() != m.getPiece().getPlayer())
+				value += game.getPieceValue(p);
+		}
+
+		return value;
+	}
+
+	/**
+	 * Returns the index of a move code in a history table.
+	 * 
+	 * @param code
+	 *            from encodeMove
+	 * @return index
+	 */
+	private static int index(int code) {
+		int from = Math.min(code >>> 8, FROM_SQUARES - 1);
+		return from * TO_SQUARES + (code & (TO_SQUARES - 1));
+	}
+
+	private int[] buffer(int ply, int size) {
+		if (ply >= MAX_PLY)
+			return new int[size];
+
+		if (ranks[ply] == null || ranks[ply].length < size)
+			ranks[ply] = new int[Math.max(size, 16)];
+
+		return ranks[ply];
+	}
+}
@@ -0,0 +1,461 @@
+package algorithms;
+
+import java.util.ArrayList;
+
+import models.*;
+
+/**
+ * The class that implements GameEngine using principal variation search
+ * (NegaScout). The first move of each node is searched with the full window,
+ * and the others with a null window around the score so far, which is enough
+ * to prove them no better. A move that proves better is searched again with
+ * the full window to find its score.
+ * 
+ * The search deepens one ply at a time. After the first, each iteration
+ * starts with a narrow aspiration window around the score of the one before,
+ * and widens it only if the score falls outside.
+ * 
+ * Like AlphaBeta it uses a transposition table, move ordering and a
+ * quiescence search. It also keeps a triangular table of the best line of
+ * play found, the principal variation.
+ * 
+ * @author denniscui
+ * 
+ */
+public class PVS extends SearchEngine {
+
+	// Default half width of the aspiration window
+	public static final int DEFAULT_ASPIRATION_WINDOW = 50;
+
+	// Depth stored for subtrees searched to the end of the game
+	private static final int EXHAUSTED = 0xFF;
+
+	// Longest principal variation kept, in plies
+	private static final int MAX_PLY = MoveOrdering.MAX_PLY;
+
+	private int depth;
+	private int aspirationWindow = DEFAULT_ASPIRATION_WINDOW;
+
+	// Whether this engine starts each search on the table, or whoever shares
+	// it with other engines does
+	private boolean ownsTable;
+
+	// Columns of the board being searched, for encoding moves
+	private int cols;
+
+	// Set when a node was cut off by the depth limit rather than the game
+	// ending, so a timed search knows whether deeper would help
+	private boolean horizon;
+
+	// Triangular table of principal variations: row ply holds the best line
+	// from that ply on, in columns ply to pvLength[ply] - 1
+	private Move[][] pvTable = new Move[MAX_PLY + 1][MAX_PLY + 1];
+	private int[] pvLength = new int[MAX_PLY + 1];
+
+	// Principal variation of the last finished iteration
+	private ArrayList<Move> principalVariation = new ArrayList<Move>();
+
+	private long researches;
+
+	// Score of the root in the search under way, and of the last finished
+	// iteration
+	private int rootScore;
+	private int score;
+
+	public PVS(int depth) {
+		this(depth, new TranspositionTable(AlphaBeta.DEFAULT_TABLE_BITS));
+		ownsTable = true;
+	}
+
+	/**
+	 * Creates an engine that uses the given table. The table may be shared
+	 * with engines searching on other threads, so it is up to the caller to
+	 * call newSearch on it before each search.
+	 * 
+	 * @param depth
+	 * @param table
+	 */
+	public PVS(int depth, TranspositionTable table) {
+		this.depth = depth;
+		this.table = table;
+	}
+
+	/**
+	 * Gets a move by deepening one ply at a time until each root move has
+	 * been searched depth plies deep, as AlphaBeta searches them.
+	 * 
+	 */
+	public Move getMove(Game g) {
+		stopPondering();
+		return search(g, Math.min(depth + 1, MAX_PLY), Long.MAX_VALUE);
+	}
+
+	/**
+	 * Gets a move by deepening one ply at a time until the budget runs out.
+	 * 
+	 */
+	public Move getMove(Game g, long budgetMillis) {
+		stopPondering();
+		return search(g, MAX_PLY, System.currentTimeMillis() + budgetMillis);
+	}
+
+	/**
+	 * Deepens the search one ply at a time, each iteration with an
+	 * aspiration window around the score of the last.
+	 * 
+	 * @param g
+	 * @param maxDepth
+	 *            deepest iteration, in plies
+	 * @param deadline
+	 *            time to stop searching
+	 * @return best move of the deepest iteration
+	 */
+	private Move search(Game g, int maxDepth, long deadline) {
+		principalVariation = new ArrayList<Move>();
+
+		ArrayList<Move> possibleMoves = g.getAvailableMoves();
+		if (possibleMoves.size() == 1) {
+			principalVariation.add(possibleMoves.get(0));
+			return possibleMoves.get(0);
+		}
+
+		// Search a private copy so the live game is never touched
+		long startTime = System.currentTimeMillis();
+		Game game = g.clone();
+		cols = game.getRules().getCols();
+		if (ownsTable)
+			table.newSearch();
+		if (ordering == null)
+			ordering = new MoveOrdering(cols);
+		ordering.newSearch();
+		this.deadline = deadline;
+		stopped = false;
+		nodes = 0;
+		quiescenceNodes = 0;
+		researches = 0;
+
+		long entry = probe(game.getHashKey());
+		ordering.order(game, possibleMoves,
+				entry == 0 ? TranspositionTable.NO_MOVE : TranspositionTable
+						.getMove(entry), 0);
+
+		// Start from a full window
+		rootScore = 0;
+
+		Move bestMove = possibleMoves.get(0);
+		for (int plies = 1; plies <= maxDepth; plies++) {
+			long iterationNodes = nodes;
+			horizon = false;
+
+			// The first iteration has no score to center a window on
+			long alpha = Integer.MIN_VALUE;
+			long beta = Integer.MAX_VALUE;
+			long window = aspirationWindow;
+			if (plies > 1 && aspirationWindow > 0) {
+				alpha = Math.max(rootScore - window, Integer.MIN_VALUE);
+				beta = Math.min(rootScore + window, Integer.MAX_VALUE);
+			}
+
+			Move m;
+			while (true) {
+				m = searchRoot(game, possibleMoves, plies - 1, (int) alpha,
+						(int) beta);
+				if (stopped)
+					break;
+
+				// Widen the side the score fell out of and search again
+				window *= 4;
+				if (rootScore <= alpha && alpha > Integer.MIN_VALUE)
+					alpha = Math.max(rootScore - window, Integer.MIN_VALUE);
+				else if (rootScore >= beta && beta < Integer.MAX_VALUE)
+					beta = Math.min(rootScore + window, Integer.MAX_VALUE);
+				else
+					break;
+
+				researches++;
+			}
+
+			if (stopped) {
+				// Only trust a move that proved itself in the window
+				if (m != null && rootScore > alpha && rootScore < beta)
+					bestMove = m;
+				break;
+			}
+
+			bestMove = m;
+			score = rootScore;
+			principalVariation = new ArrayList<Move>();
+			for (int i = 0; i < pvLength[0]; i++)
+				principalVariation.add(pvTable[0][i]);
+
+			long elapsed = System.currentTimeMillis() - startTime;
+			onIterationCompleted(plies, rootScore, nodes - iterationNodes,
+					elapsed);
+
+			if (!horizon
+					|| (deadline != Long.MAX_VALUE && elapsed * 2 > deadline
+							- startTime))
+				break;
+
+			// Search the best move first next time
+			possibleMoves.remove(bestMove);
+			possibleMoves.add(0, bestMove);
+		}
+
+		addTableCounts();
+		return bestMove;
+	}
+
+	/**
+	 * Searches each move at the root within the window, and returns the best
+	 * one, leaving its score in rootScore.
+	 * 
+	 * @param game
+	 * @param possibleMoves
+	 * @param depthToGo
+	 *            plies to search below each move
+	 * @param alpha
+	 * @param beta
+	 * @return best move, or null if none scored inside the window
+	 */
+	private Move searchRoot(Game game, ArrayList<Move> possibleMoves,
+			int depthToGo, int alpha, int beta) {
+		pvLength[0] = 0;
+
+		boolean maximizing = game.getTurn() == Game.MAXIMIZING_PLAYER;
+		Move bestMove = null;
+		for (int i = 0; i < possibleMoves.size(); i++) {
+			Move m = possibleMoves.get(i);
+			Undo undo = game.doMove(m);
+			int score = searchChild(game, depthToGo, 1, alpha, beta,
+					maximizing, i == 0);
+			game.undoMove(undo);
+			if (stopped)
+				break;
+
+			if (maximizing ? score > alpha : score < beta) {
+				if (maximizing)
+					alpha = score;
+				else
+					beta = score;
+				bestMove = m;
+				updatePrincipalVariation(0, m);
+			}
+			if (alpha >= beta)
+				break;
+		}
+
+		rootScore = maximizing ? alpha : beta;
+		return bestMove;
+	}
+
+	/**
+	 * Searches a child of a node: the first child with the full window, and
+	 * the others with a null window first.
+	 * 
+	 * @param game
+	 *            positioned at the child
+	 * @param depthToGo
+	 * @param ply
+	 *            distance of the child from the root
+	 * @param alpha
+	 * @param beta
+	 * @param maximizing
+	 *            true if the parent is the maximizing player's move
+	 * @param first
+	 *            true for the first child
+	 * @return score
+	 */
+	private int searchChild(Game game, int depthToGo, int ply, int alpha,
+			int beta, boolean maximizing, boolean first) {
+		if (first)
+			return pvs(game, depthToGo, ply, alpha, beta);
+
+		if (maximizing) {
+			// Prove the move no better than alpha
+			int score = pvs(game, depthToGo, ply, alpha, alpha + 1);
+			if (score > alpha && score < beta && !stopped) {
+				researches++;
+				score = pvs(game, depthToGo, ply, alpha, beta);
+			}
+			return score;
+		} else {
+			// Prove the move no better than beta
+			int score = pvs(game, depthToGo, ply, beta - 1, beta);
+			if (score < beta && score > alpha && !stopped) {
+				researches++;
+				score = pvs(game, depthToGo, ply, alpha, beta);
+			}
+			return score;
+		}
+	}
+
+	private int pvs(Game start, int depthToGo, int ply, int alpha, int beta) {
+		// Look at the clock now and then
+		if (countNode())
+			return 0;
+
+		pvLength[ply] = ply;
+
+		long key = start.getHashKey();
+		long entry = probe(key);
+		int hashMove = TranspositionTable.NO_MOVE;
+
+		if (entry != 0) {
+			hashMove = TranspositionTable.getMove(entry);
+
+			// Only trust results searched at least as deep as this one, and
+			// not on the principal variation, which would cut it short
+			int entryDepth = TranspositionTable.getDepth(entry);
+			if (entryDepth >= depthToGo && beta - alpha == 1) {
+				int score = TranspositionTable.getScore(entry);
+				int flag = TranspositionTable.getFlag(entry);
+
+				if (flag == TranspositionTable.EXACT
+						|| (flag == TranspositionTable.LOWER_BOUND && score >= beta)
+						|| (flag == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+					if (entryDepth != EXHAUSTED)
+						horizon = true;
+					return score;
+				}
+			}
+		}
+
+		// One move generation for both the moves and the end of the game
+		Expansion node = start.expand();
+		ArrayList<Move> possibleMoves = node.getMoves();
+		if (node.getState()[0] == Game.WIN || possibleMoves.size() == 0) {
+			int score = start.scoreGame(node.getState());
+			table.store(key, EXHAUSTED, TranspositionTable.EXACT, score,
+					TranspositionTable.NO_MOVE);
+			return score;
+		}
+		if (depthToGo == 0 || ply >= MAX_PLY) {
+			horizon = true;
+			int score = quiescence(start, node, 0, ply, alpha, beta);
+			if (stopped)
+				return 0;
+			table.store(key, 0, score >= beta ? TranspositionTable.LOWER_BOUND
+					: score <= alpha ? TranspositionTable.UPPER_BOUND
+							: TranspositionTable.EXACT, score,
+					TranspositionTable.NO_MOVE);
+			return score;
+		}
+
+		ordering.order(start, possibleMoves, hashMove, ply);
+
+		// Find out whether this subtree reaches the depth limit
+		boolean outerHorizon = horizon;
+		horizon = false;
+
+		int alphaOrig = alpha;
+		int betaOrig = beta;
+		boolean maximizing = start.getTurn() == Game.MAXIMIZING_PLAYER;
+		Move bestMove = null;
+
+		for (int i = 0; i < possibleMoves.size(); i++) {
+			Move m = possibleMoves.get(i);
+			Undo undo = start.doMove(m);
+			int score = searchChild(start, depthToGo - 1, ply + 1, alpha,
+					beta, maximizing, i == 0);
+			start.undoMove(undo);
+			if (stopped)
+				return 0;
+
+			if (maximizing ? score > alpha : score < beta) {
+				if (maximizing)
+					alpha = score;
+				else
+					beta = score;
+				bestMove = m;
+				updatePrincipalVariation(ply, m);
+			} else if (bestMove == null) {
+				bestMove = m;
+			}
+
+			if (alpha >= beta) {
+				ordering.recordCutoff(start, m, ply, depthToGo);
+				break;
+			}
+		}
+
+		int score = maximizing ? alpha : beta;
+		int flag;
+		if (alpha >= beta)
+			flag = maximizing ? TranspositionTable.LOWER_BOUND
+					: TranspositionTable.UPPER_BOUND;
+		else if (maximizing ? alpha <= alphaOrig : beta >= betaOrig)
+			flag = maximizing ? TranspositionTable.UPPER_BOUND
+					: TranspositionTable.LOWER_BOUND;
+		else
+			flag = TranspositionTable.EXACT;
+
+		table.store(key, horizon ? depthToGo : EXHAUSTED, flag, score,
+				TranspositionTable.encodeMove(bestMove, cols));
+		horizon |= outerHorizon;
+		return score;
+	}
+
+	/**
+	 * Makes the best line from a ply the given move followed by the best line
+	 * from the next ply.
+	 * 
+	 * @param ply
+	 * @param m
+	 */
+	private void updatePrincipalVariation(int ply, Move m) {
+		pvTable[ply][ply] = m;
+
+		int length = pvLength[ply + 1];
+		for (int i = ply + 1; i < length; i++)
+			pvTable[ply][i] = pvTable[ply + 1][i];
+
+		pvLength[ply] = Math.max(length, ply + 1);
+	}
+
+	protected SearchEngine newPonderer() {
+		PVS p = new PVS(depth, table);
+		p.aspirationWindow = aspirationWindow;
+		return p;
+	}
+
+	/**
+	 * Returns the principal variation of the last finished iteration: the
+	 * move chosen, the expected reply, and so on.
+	 * 
+	 * @return moves, starting with the move at the root
+	 */
+	public ArrayList<Move> getPrincipalVariation() {
+		return principalVariation;
+	}
+
+	/**
+	 * Sets the half width of the aspiration window. Zero or less searches
+	 * every iteration with the full window.
+	 * 
+	 * @param window
+	 */
+	public void setAspirationWindow(int window) {
+		this.aspirationWindow = window;
+	}
+
+	/**
+	 * Returns the score of the last finished iteration, positive for the
+	 * maximizing player.
+	 * 
+	 * @return score
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * Returns how many times the last search had to search again with a
+	 * wider window, after a null window or an aspiration window failed.
+	 * 
+	 * @return researches
+	 */
+	public long getResearches() {
+		return researches;
+	}
+}
@@ -0,0 +1,223 @@
+package algorithms;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import models.Game;
+import models.Move;
+import engine.GameEngine;
+
+/**
+ * The class that implements GameEngine by running several alpha/beta searches
+ * of the same position at once, one per thread, all sharing one transposition
+ * table (Lazy SMP). The helper threads fill the table with results that the
+ * main search then finds instead of searching them itself. Only the main
+ * search picks the move.
+ * 
+ * To keep the searches from doing the same work in lockstep, each helper
+ * starts on a different root move, and every other helper searches one ply
+ * deeper.
+ * 
+ * With one thread this is the same as AlphaBeta and gives the same moves.
+ * 
+ * @author denniscui
+ * 
+ */
+public class ParallelAlphaBeta extends GameEngine {
+
+	private int depth;
+	private int threads;
+
+	// Shared by all the searches
+	private TranspositionTable table;
+
+	// Searches on the caller's thread and picks the move. Kept between moves
+	// like a plain AlphaBeta, so it learns the same move ordering.
+	private AlphaBeta main;
+
+	// Runs the helpers; created on first use
+	private ExecutorService pool;
+
+	private long nodes;
+
+	/**
+	 * Creates an engine that searches with one thread per processor.
+	 * 
+	 * @param depth
+	 */
+	public ParallelAlphaBeta(int depth) {
+		this(depth, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates an engine that searches with the given number of threads,
+	 * counting the caller's.
+	 * 
+	 * @param depth
+	 * @param threads
+	 */
+	public ParallelAlphaBeta(int depth, int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("Need at least one thread");
+
+		this.depth = depth;
+		this.threads = threads;
+		this.table = new TranspositionTable(AlphaBeta.DEFAULT_TABLE_BITS);
+
+		main = new AlphaBeta(depth, table);
+		main.setOnIterationCompletedListener(new OnIterationCompletedListener() {
+			@Override
+			public void onIterationCompleted(int depth, int score, long nodes,
+					long millis) {
+				ParallelAlphaBeta.this.onIterationCompleted(depth, score,
+						nodes, millis);
+			}
+		});
+	}
+
+	public Move getMove(Game g) {
+		return search(g, -1);
+	}
+
+	public Move getMove(Game g, long budgetMillis) {
+		return search(g, budgetMillis);
+	}
+
+	/**
+	 * Ponders with the main search alone, which fills the shared table.
+	 */
+	public void ponder(Game g) {
+		main.ponder(g);
+	}
+
+	public void stopPondering() {
+		main.stopPondering();
+	}
+
+	/**
+	 * Runs the main search on the calling thread and the helpers on the pool,
+	 * and stops the helpers once the main search is done.
+	 * 
+	 * @param g
+	 * @param budgetMillis
+	 *            time budget, or negative to search to the fixed depth
+	 * @return best move of the main search
+	 */
+	private Move search(final Game g, final long budgetMillis) {
+		// The ponder search writes into the table and its counters until it
+		// is stopped
+		main.stopPondering();
+		table.newSearch();
+
+		ArrayList<Helper> helpers = new ArrayList<Helper>();
+		ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int i = 1; i < threads; i++) {
+			final Helper helper = new Helper(depth + i % 2, table, i);
+			helpers.add(helper);
+
+			// Each helper searches its own copy of the game
+			final Game copy = g.clone();
+			futures.add(getPool().submit(new Runnable() {
+				@Override
+				public void run() {
+					if (budgetMillis < 0)
+						helper.getMove(copy);
+					else
+						helper.getMove(copy, budgetMillis);
+				}
+			}));
+		}
+
+		Move bestMove = budgetMillis < 0 ? main.getMove(g) : main.getMove(g,
+				budgetMillis);
+		nodes = main.getNodes();
+
+		for (Helper helper : helpers)
+			helper.stop();
+
+		// Wait for the helpers so none is still writing into the table when
+		// the next search starts
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				futures.get(i).get();
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+			nodes += helpers.get(i).getNodes();
+		}
+
+		return bestMove;
+	}
+
+	private ExecutorService getPool() {
+		if (pool == null) {
+			pool = Executors.newFixedThreadPool(threads - 1,
+					new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable r) {
+							// Don't keep the program alive just for these
+							Thread t = new Thread(r, "ParallelAlphaBeta");
+							t.setDaemon(true);
+							return t;
+						}
+					});
+		}
+
+		return pool;
+	}
+
+	/**
+	 * Stops the helper threads. The engine can still be used afterwards; a
+	 * new pool is made when needed.
+	 */
+	public void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+
+	/**
+	 * Returns the number of nodes visited by the last search, over all
+	 * threads.
+	 * 
+	 * @return nodes
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public TranspositionTable getTranspositionTable() {
+		return table;
+	}
+
+	/**
+	 * A helper search, which starts on a different root move from the others.
+	 */
+	private static class Helper extends AlphaBeta {
+
+		private int index;
+
+		public Helper(int depth, TranspositionTable table, int index) {
+			super(depth, table);
+			this.index = index;
+		}
+
+		@Override
+		protected void orderRootMoves(ArrayList<Move> possibleMoves) {
+			int size = possibleMoves.size();
+			if (size == 0)
+				return;
+
+			for (int i = 0; i < index % size; i++)
+				possibleMoves.add(possibleMoves.remove(0));
+		}
+	}
+}
@@ -0,0 +1,289 @@
+package algorithms;
+
+import java.util.ArrayList;
+
+import models.*;
+import engine.*;
+
+/**
+ * The abstract class for the engines that search the game tree depth first,
+ * AlphaBeta and PVS. It keeps the node counts and the clock of a search, lets
+ * another thread stop it, and has the quiescence search and the pondering
+ * they share.
+ * 
+ * @author denniscui
+ * 
+ */
+public abstract class SearchEngine extends GameEngine {
+
+	// How many nodes to search between looks at the clock
+	protected static final int CLOCK_INTERVAL = 1024;
+
+	// Deepest the quiescence search goes below the depth limit, in plies
+	public static final int MAX_QUIESCENCE_DEPTH = 16;
+
+	// Longest a ponder search runs when nobody stops it
+	public static final long MAX_PONDER_MILLIS = 5 * 60 * 1000;
+
+	// Results of earlier searches, kept between moves
+	protected TranspositionTable table;
+
+	// Killer and history tables, kept between moves
+	protected MoveOrdering ordering;
+
+	// Time limit of the current search
+	protected long deadline;
+	protected boolean stopped;
+
+	// Set from another thread to end the search early
+	private volatile boolean stopRequested;
+
+	protected long nodes;
+	protected long quiescenceNodes;
+
+	// Table lookups of the search under way, added to the table's counters
+	// when it ends, since the table may be shared with other threads
+	private long hits;
+	private long misses;
+	private long collisions;
+
+	// Searches the other player's position while they think, sharing the
+	// table, on a thread of its own
+	private SearchEngine ponderer;
+	private Thread ponderThread;
+
+	// Nodes visited by the last ponder search
+	private long ponderNodes;
+
+	/**
+	 * Counts a node, and now and then looks at the clock.
+	 * 
+	 * @return true if the search should stop
+	 */
+	protected boolean countNode() {
+		if (stopRequested
+				|| (++nodes % CLOCK_INTERVAL == 0 && System
+						.currentTimeMillis() >= deadline))
+			stopped = true;
+		return stopped;
+	}
+
+	/**
+	 * Looks up a position in the table, counting the lookup.
+	 * 
+	 * @param key
+	 * @return the entry data, or 0 if the position is not in the table
+	 */
+	protected long probe(long key) {
+		long entry = table.probe(key);
+		if (entry != 0) {
+			hits++;
+		} else {
+			misses++;
+			if (table.isCollision(key))
+				collisions++;
+		}
+		return entry;
+	}
+
+	/**
+	 * Adds the lookups of the search that just ended to the counters of the
+	 * table, and starts counting again.
+	 */
+	protected void addTableCounts() {
+		table.addCounts(hits, misses, collisions);
+		hits = 0;
+		misses = 0;
+		collisions = 0;
+	}
+
+	/**
+	 * Ends the current search as soon as possible, from any thread. The
+	 * search returns the best move found so far, which is null if it had not
+	 * finished searching any move. The engine stays stopped, so it should
+	 * not be used again.
+	 */
+	public void stop() {
+		stopRequested = true;
+	}
+
+	/**
+	 * Returns a fresh engine with the same settings, searching the same
+	 * table, to ponder with.
+	 * 
+	 * @return engine
+	 */
+	protected abstract SearchEngine newPonderer();
+
+	/**
+	 * Searches the position on a background thread, with the other player to
+	 * move, until stopPondering is called. Every reply is searched, so
+	 * whichever one is played, the search for it starts with its subtree
+	 * already in the table.
+	 * 
+	 */
+	public synchronized void ponder(Game g) {
+		stopPondering();
+		if (g.getAvailableMoves().size() <= 1)
+			return;
+
+		// A fresh engine each time, since a stopped one stays stopped
+		final SearchEngine p = newPonderer();
+
+		final Game copy = g.clone();
+		ponderer = p;
+		ponderThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				p.getMove(copy, MAX_PONDER_MILLIS);
+			}
+		}, getClass().getSimpleName() + " ponder");
+		ponderThread.setDaemon(true);
+		ponderThread.start();
+	}
+
+	/**
+	 * Stops pondering and waits for the background search to end, so the
+	 * table is free for the next search.
+	 * 
+	 */
+	public synchronized void stopPondering() {
+		if (ponderThread == null)
+			return;
+
+		ponderer.stop();
+		try {
+			ponderThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		ponderNodes = ponderer.getNodes();
+		ponderer = null;
+		ponderThread = null;
+	}
+
+	/**
+	 * Searches on from a leaf through captures only, so that the score isn't
+	 * taken in the middle of an exchange. The player to move may take the
+	 * static score instead of capturing (stand pat), unless every move is a
+	 * capture, as when checkers forces a jump.
+	 * 
+	 * @param start
+	 * @param node
+	 *            moves and state of the position
+	 * @param depth
+	 *            plies below the depth limit
+	 * @param ply
+	 *            distance from the root
+	 * @param alpha
+	 * @param beta
+	 * @return score, which is a lower bound if at least beta and an upper
+	 *         bound if at most alpha
+	 */
+	protected int quiescence(Game start, Expansion node, int depth, int ply,
+			int alpha, int beta) {
+		// The leaf itself was already counted by the search that reached it
+		if (depth > 0) {
+			quiescenceNodes++;
+			countNode();
+		}
+		if (stopped)
+			return 0;
+
+		int standPat = start.scoreGame(node.getState());
+		if (depth >= MAX_QUIESCENCE_DEPTH)
+			return standPat;
+
+		ArrayList<Move> captures = new ArrayList<Move>();
+		for (Move m : node.getMoves()) {
+			if (start.isCapture(m))
+				captures.add(m);
+		}
+		if (captures.size() == 0)
+			return standPat;
+
+		boolean maximizing = start.getTurn() == Game.MAXIMIZING_PLAYER;
+		boolean forced = captures.size() == node.getMoves().size();
+
+		int best;
+		if (forced)
+			best = maximizing ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+		else if (maximizing ? standPat >= beta : standPat <= alpha)
+			return standPat;
+		else
+			best = standPat;
+
+		// Always take the most valuable victims first, or the search can
+		// blow up on long exchanges
+		ordering.order(start, captures, TranspositionTable.NO_MOVE, ply);
+
+		for (Move m : captures) {
+			if (maximizing)
+				alpha = Math.max(alpha, best);
+			else
+				beta = Math.min(beta, best);
+
+			Undo undo = start.doMove(m);
+			Expansion child = start.expand();
+			int score;
+			if (child.getState()[0] == Game.WIN
+					|| child.getMoves().size() == 0) {
+				nodes++;
+				quiescenceNodes++;
+				score = start.scoreGame(child.getState());
+			} else {
+				score = quiescence(start, child, depth + 1, ply + 1, alpha,
+						beta);
+			}
+			start.undoMove(undo);
+			if (stopped)
+				return 0;
+
+			if (maximizing ? score > best : score < best)
+				best = score;
+			if (maximizing ? best >= beta : best <= alpha)
+				break;
+		}
+
+		return best;
+	}
+
+	/**
+	 * Returns the number of nodes visited by the last search.
+	 * 
+	 * @return nodes
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Returns the number of nodes of the last search that were visited by
+	 * the quiescence search. They are included in getNodes.
+	 * 
+	 * @return quiescenceNodes
+	 */
+	public long getQuiescenceNodes() {
+		return quiescenceNodes;
+	}
+
+	/**
+	 * Returns the transposition table, whose counters describe the last
+	 * search.
+	 * 
+	 * @return table
+	 */
+	public TranspositionTable getTranspositionTable() {
+		return table;
+	}
+
+	/**
+	 * Returns the number of nodes visited by the last ponder search.
+	 * 
+	 * @return nodes
+	 */
+	public long getPonderNodes() {
+		return ponderNodes;
+	}
+}
@@ -0,0 +1,244 @@
+package algorithms;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import models.Move;
+import utils.Point;
+
+/**
+ * A fixed-size hash table of search results, indexed by the Zobrist key of the
+ * position. Each entry keeps the score, the depth it was searched to, whether
+ * the score is exact or only a bound, and the best move found.
+ * 
+ * Entries are two longs: the key XORed with the data, and the data. A reader
+ * only accepts an entry when the two agree, so a torn write from another thread
+ * reads as a miss instead of a wrong score.
+ * 
+ * @author denniscui
+ * 
+ */
+public class TranspositionTable {
+
+	// Kinds of score
+	public static final int EXACT = 0;
+	public static final int LOWER_BOUND = 1;
+	public static final int UPPER_BOUND = 2;
+
+	// Stands for no move in an entry
+	public static final int NO_MOVE = 0xFFFF;
+
+	// Start square used for moves that drop a new piece
+	private static final int NO_SQUARE = 0xFF;
+
+	// Layout of the data word
+	private static final int DEPTH_SHIFT = 32;
+	private static final int FLAG_SHIFT = 40;
+	private static final int MOVE_SHIFT = 42;
+	private static final int AGE_SHIFT = 58;
+	private static final long VALID = 1L << 63;
+
+	private static final int AGE_MASK = 0x1F;
+
+	private final long[] keys;
+	private final long[] data;
+	private final int mask;
+
+	// Bumped for every new search so old entries can be replaced
+	private int age;
+
+	// Lookups since the last newSearch, added up by the searches using the
+	// table as each of them ends
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong collisions = new AtomicLong();
+
+	/**
+	 * Creates a table with 2^bits entries.
+	 * 
+	 * @param bits
+	 */
+	public TranspositionTable(int bits) {
+		keys = new long[1 << bits];
+		data = new long[1 << bits];
+		mask = (1 << bits) - 1;
+	}
+
+	/**
+	 * Looks up a position.
+	 * 
+	 * @param key
+	 * @return the entry data, or 0 if the position is not in the table
+	 */
+	public long probe(long key) {
+		int index = (int) key & mask;
+		long entry = data[index];
+
+		if ((keys[index] ^ entry) == key && entry != 0)
+			return entry;
+
+		return 0;
+	}
+
+	/**
+	 * Checks whether the slot of a position that is not in the table is
+	 * taken by another position.
+	 * 
+	 * @param key
+	 * @return true iff the slot is in use
+	 */
+	public boolean isCollision(long key) {
+		return data[(int) key & mask] != 0;
+	}
+
+	/**
+	 * Adds the lookups of a search to the counters. Searches count their own
+	 * lookups and add them when they end, so that searches sharing the table
+	 * on several threads don't lose counts or fight over the counters.
+	 * 
+	 * @param hits
+	 * @param misses
+	 * @param collisions
+	 */
+	public void addCounts(long hits, long misses, long collisions) {
+		this.hits.addAndGet(hits);
+		this.misses.addAndGet(misses);
+		this.collisions.addAndGet(collisions);
+	}
+
+	/**
+	 * Stores a search result. An entry from the current search is only replaced
+	 * by a result searched at least as deep.
+	 * 
+	 * @param key
+	 * @param depth
+	 * @param flag
+	 *            EXACT, LOWER_BOUND or UPPER_BOUND
+	 * @param score
+	 * @param move
+	 *            from encodeMove
+	 */
+	public void store(long key, int depth, int flag, int score, int move) {
+		int index = (int) key & mask;
+		long old = data[index];
+
+		if (old != 0 && getAge(old) == age && getDepth(old) > depth)
+			return;
+
+		// Keep the old best move if this search did not find one
+		if (move == NO_MOVE && old != 0 && (keys[index] ^ old) == key)
+			move = getMove(old);
+
+		long entry = VALID | ((long) age << AGE_SHIFT)
+				| ((long) move << MOVE_SHIFT) | ((long) flag << FLAG_SHIFT)
+				| ((long) Math.min(depth, 0xFF) << DEPTH_SHIFT)
+				| (score & 0xFFFFFFFFL);
+
+		data[index] = entry;
+		keys[index] = key ^ entry;
+	}
+
+	/**
+	 * Starts a new search. Entries from earlier searches are kept, but any of
+	 * them may be replaced. Resets the counters.
+	 */
+	public void newSearch() {
+		age = (age + 1) & AGE_MASK;
+		hits.set(0);
+		misses.set(0);
+		collisions.set(0);
+	}
+
+	/**
+	 * Empties the table.
+	 */
+	public void clear() {
+		for (int i = 0; i < data.length; i++) {
+			keys[i] = 0;
+			data[i] = 0;
+		}
+	}
+
+	public static int getScore(long entry) {
+		return (int) entry;
+	}
+
+	public static int getDepth(long entry) {
+		return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+	}
+
+	public static int getFlag(long entry) {
+		return (int) (entry >>> FLAG_SHIFT) & 0x3;
+	}
+
+	public static int getMove(long entry) {
+		return (int) (entry >>> MOVE_SHIFT) & 0xFFFF;
+	}
+
+	private static int getAge(long entry) {
+		return (int) (entry >>> AGE_SHIFT) & AGE_MASK;
+	}
+
+	/**
+	 * Packs a move into 16 bits as its start and end squares.
+	 * 
+	 * @param m
+	 * @param cols
+	 *            columns on the board
+	 * @return code
+	 */
+	public static int encodeMove(Move m, int cols) {
+		if (m == null)
+			return NO_MOVE;
+
+		Point start = m.getStart();
+		Point end = m.getEnd();
+		int from = start == null ? NO_SQUARE : start.getX() * cols
+				+ start.getY();
+
+		return (from << 8) | (end.getX() * cols + end.getY());
+	}
+
+	/**
+	 * Finds the move with the given code in a list of moves.
+	 * 
+	 * @param moves
+	 * @param code
+	 *            from encodeMove
+	 * @param cols
+	 *            columns on the board
+	 * @return index of the move, or -1 if none matches
+	 */
+	public static int findMove(ArrayList<Move> moves, int code, int cols) {
+		if (code == NO_MOVE)
+			return -1;
+
+		for (int i = 0; i < moves.size(); i++) {
+			if (encodeMove(moves.get(i), cols) == code)
+				return i;
+		}
+
+		return -1;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getCollisions() {
+		return collisions.get();
+	}
+
+	public int getSize() {
+		return data.length;
+	}
+
+	public String toString() {
+		return "TranspositionTable: " + getHits() + " hits, " + getMisses()
+				+ " misses, " + getCollisions() + " collisions";
+	}
+}
@@ -9,9 +9,78 @@ import models.Piece;
 
 public class CheckersBoard extends Board {
 
+	// Sum of the scores of the pieces, positive for the maximizing player
+	private int pieceScore;
+
+	// Number of pieces of each player, and how many of them are kings
+	private int[] pieceCounts;
+	private int[] kingCounts;
+
 	public CheckersBoard(int rows, int cols, ArrayList<Piece> pieces) {
-		super(rows, cols, pieces);
-		// TODO Auto-generated constructor stub
+		super(rows, cols);
+
+		pieceCounts = new int[2];
+		kingCounts = new int[2];
+
+		for (Piece p : pieces)
+			this.addPiece(p);
+	}
+
+	/**
+	 * Keeps the piece score and counts in step with the matrix.
+	 */
+	@Override
+	protected void setSquare(int row, int col, byte code) {
+		byte previous = getCode(row, col);
+		if (previous != Piece.NONE) {
+			pieceScore -= CheckersGame.scorePiece(Piece.kindOf(previous), row);
+			count(previous, -1);
+		}
+
+		if (code != Piece.NONE) {
+			pieceScore += CheckersGame.scorePiece(Piece.kindOf(code), row);
+			count(code, 1);
+		}
+
+		super.setSquare(row, col, code);
+	}
+
+	/**
+	 * Returns the sum of the scores of the pieces on the board.
+	 * 
+	 * @return pieceScore
+	 */
+	public int getPieceScore() {
+		return pieceScore;
+	}
+
+	private void count(byte code, int delta) {
+		int player = Piece.playerOf(code);
+
+		// Kings are upper case
+		pieceCounts[player] += delta;
+		if (Piece.kindOf(code) < 95)
+			kingCounts[player] += delta;
+	}
+
+	/**
+	 * Returns the number of pieces a player has on the board.
+	 * 
+	 * @param player
+	 * @return count
+	 */
+	public int getPieceCount(int player) {
+		return pieceCounts[player];
+	}
+
+	/**
+	 * Returns the number of kings a player has on the board.
+	 * 
+	 * @param player
+	 * @return count
+	 */
+	public int getKingCount(int player) {
+		return kingCounts[player];
 	}
 
 	@Override
@@ -1,7 +1,6 @@
 package checkers;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Set;
 
 import connect4.Connect4Board;
@@ -62,22 +61,82 @@ public class CheckersGame extends Game {
 		Board clonedBoard = new CheckersBoard(getRules().getRows(), getRules()
 				.getCols(), (ArrayList<Piece>) getBoard().getPieces().clone());
 
-		String[][] newMatrix = new String[getRules().getRows()][getRules()
-				.getCols()];
-		for (int r = 0; r < getRules().getRows(); r++) {
-			for (int c = 0; c < getRules().getCols(); c++) {
-				newMatrix[r][c] = getBoard().getMatrix()[r][c];
-			}
-		}
+		clonedBoard.setSquares(getBoard().getSquares());
 
-		clonedBoard.setMatrix(newMatrix);
+		CheckersGame clonedGame = new CheckersGame(this.getId(), clonedBoard,
+				this.getRules(), this.getTurn(),
+				(ArrayList<Move>) this.getMoves().clone());
 
-		return new CheckersGame(this.getId(), clonedBoard, this.getRules(),
-				this.getTurn(), (ArrayList<Move>) this.getMoves().clone());
+		// Keep a multi-jump in progress
+		clonedGame.setRestriction(isRestricted());
+		clonedGame.setRestrictedPiece(getRestrictedPiece());
+
+		return clonedGame;
 	}
 
 	@Override
 	public int scoreGame() {
+		return scoreGame(hasEnded());
+	}
+
+	@Override
+	public int scoreGame(int[] currentState) {
+		int baseScore = 0;
+
+		// Adds a certain amount depending on the state of the game
+		if (currentState[0] == Game.WIN) {
+			// Great for the maximizing player, bad otherwise.
+			baseScore += currentState[1] == Game.MAXIMIZING_PLAYER ? 1000
+					: -1000;
+		}
+
+		// The board keeps the sum of the piece scores
+		baseScore += ((CheckersBoard) getBoard()).getPieceScore();
+
+		if (CHECK_EVALUATION && baseScore != scoreGameByScan())
+			throw new IllegalStateException("Incremental score " + baseScore
+					+ " but full score " + scoreGameByScan());
+
+		return baseScore;
+	}
+
+	/**
+	 * Scores a single piece the way scoreGame does.
+	 * 
+	 * @param kind
+	 * @param row
+	 * @return score, positive for the maximizing player
+	 */
+	public static int scorePiece(char kind, int row) {
+		switch (kind) {
+		case 'r':
+			// It's good to move pawns forward
+			return -PAWN_SCORE - (row > 3 ? ADVANCE_SCORE_MULTIPLIER
+					* (row - 3) : 0);
+		case 'b':
+			return 5 + (row < 4 ? ADVANCE_SCORE_MULTIPLIER * (4 - row) : 0);
+		case 'R':
+			return -KING_SCORE;
+		case 'B':
+			return KING_SCORE;
+		default:
+			return 0;
+		}
+	}
+
+	@Override
+	public int getPieceValue(Piece p) {
+		// Kings are upper case
+		return p.getKind() < 95 ? KING_SCORE : PAWN_SCORE;
+	}
+
+	/**
+	 * Scores the game by walking every piece, without the score kept by the
+	 * board. Used to check scoreGame.
+	 * 
+	 * @return score
+	 */
+	public int scoreGameByScan() {
 		int baseScore = 0;
 
 		// Adds a certain amount depending on the state of the game
@@ -91,7 +150,7 @@ public class CheckersGame extends Game {
 		// Iterate over all the pieces on the board
 		for (Piece p : getBoard().getPieces()) {
 			// Pawns
-			switch (p.getType().charAt(0)) {
+			switch (p.getKind()) {
 			case 'r':
 				baseScore -= PAWN_SCORE;
 
@@ -135,26 +194,26 @@ public class CheckersGame extends Game {
 		for (Piece p : this.getBoard().getPieces()) {
 			// If the piece belongs to the player, check it
 			if (p.getPlayer() == this.getTurn()) {
-				// Get the key version of this piece by setting position = null
-				Piece key = new Piece(p.getType(), null, p.getPlayer());
-				HashMap<Piece, ArrayList<Vector>> moveMap = this.getRules()
-						.getMoveMap();
-				ArrayList<Vector> moves = moveMap.get(key);
+				// The moves of this kind of piece
+				Vector[] moves = getRules().getPieceMoves(p.getCode());
 
 				// For each vector in the move map
-				for (Vector v : moves) {
-					int dirX = v.getDeltaX();
-					int dirY = v.getDeltaY();
+				int curX = p.getPosition().getX();
+				int curY = p.getPosition().getY();
 
-					int curX = p.getPosition().getX();
-					int curY = p.getPosition().getY();
+				for (Vector v : moves) {
+					// The square the vector reaches, if it's on the board
+					Point[] ray = getRules().getRay(curX, curY, v);
+					if (ray.length == 0)
+						continue;
 
-					int newX = dirX + curX;
-					int newY = dirY + curY;
+					int dirX = v.getDeltaX();
+					Point end = ray[0];
+					int newX = end.getX();
+					int newY = end.getY();
 
-					// Check if the new position is in bounds and empty
-					if (getBoard().isInBounds(newX, newY)
-							&& getBoard().getMatrix()[newX][newY] == null) {
+					// Check if the new position is empty
+					if (getBoard().isEmpty(newX, newY)) {
 
 						// Deal with promotions
 						boolean isPromotion = false;
@@ -164,8 +223,7 @@ public class CheckersGame extends Game {
 							isPromotion = true;
 
 						// Make sure the piece contains the new position
-						Piece newPiece = new Piece(newType, new Point(newX,
-								newY), p.getPlayer());
+						Piece newPiece = new Piece(newType, end, p.getPlayer());
 
 						switch (Math.abs(dirX)) {
 						case 1:
@@ -173,7 +231,7 @@ public class CheckersGame extends Game {
 							// restriction isn't on
 							if (!isRestricted() && jumpMoves.size() == 0) {
 								singleMoves.add(new Move(newPiece, p
-										.getPosition(), new Point(newX, newY),
+										.getPosition(), end,
 										new ArrayList<Piece>(), true,
 										isPromotion));
 							}
@@ -182,20 +240,19 @@ public class CheckersGame extends Game {
 							int midX = (newX + curX) / 2;
 							int midY = (newY + curY) / 2;
 
-							String midVal = this.getBoard().getMatrix()[midX][midY];
+							byte midCode = this.getBoard().getCode(midX, midY);
 
-							// Make sure the middle value is of the other type
-							if (midVal != null
-									&& (midVal.equals(TYPES[1 - getTurn()][0]) || midVal
-											.equals(TYPES[1 - getTurn()][1]))) {
+							// Make sure the middle piece is the other player's
+							if (midCode != Piece.NONE
+									&& Piece.playerOf(midCode) == 1 - getTurn()) {
 								// The middle piece is affected
 								ArrayList<Piece> affected = new ArrayList<Piece>();
-								affected.add(new Piece(midVal, new Point(midX,
-										midY), 1 - this.getTurn()));
+								affected.add(new Piece(midCode, Point.valueOf(
+										midX, midY)));
 
 								jumpMoves.add(new Move(newPiece, p
-										.getPosition(), new Point(newX, newY),
-										affected, false, isPromotion));
+										.getPosition(), end, affected, false,
+										isPromotion));
 							}
 
 							break;
@@ -220,7 +277,7 @@ public class CheckersGame extends Game {
 	 * @return new type
 	 */
 	private String promote(Piece piece, int endX) {
-		if (piece.getType().equals("B") || piece.getType().equals("R"))
+		if (piece.getKind() == 'B' || piece.getKind() == 'R')
 			return piece.getType();
 
 		if (piece.getPlayer() == Game.MAXIMIZING_PLAYER) {
@@ -233,21 +290,28 @@ public class CheckersGame extends Game {
 
 	@Override
 	public int[] hasEnded() {
+		return hasEnded(getAvailableMoves());
+	}
+
+	@Override
+	public int[] hasEnded(ArrayList<Move> availableMoves) {
 		// If this player has no more moves, the other guy won
-		if (getAvailableMoves().size() == 0) {
+		if (availableMoves.size() == 0) {
 			int[] state = new int[] { Game.WIN, 1 - this.getTurn() };
 			onGameEnded(state);
 			return state;
 		}
 
-		if (getBoard().getPieces().size() == 2) {
-			Piece p1 = getBoard().getPieces().get(0);
-			Piece p2 = getBoard().getPieces().get(1);
-
-			// If both are uppercase then they're both kings
-			if (p1.getType().charAt(0) < 95 && p2.getType().charAt(0) < 95)
-				return new int[] { Game.DRAW };
-		}
+		// Two kings alone can't win, once a jump has ended. In the middle of
+		// one the jumping king may still take the last piece, as the endgame
+		// database counts it.
+		CheckersBoard board = (CheckersBoard) getBoard();
+		if (!isRestricted()
+				&& board.getPieceCount(Game.MINIMIZING_PLAYER)
+				+ board.getPieceCount(Game.MAXIMIZING_PLAYER) == 2
+				&& board.getKingCount(Game.MINIMIZING_PLAYER)
+						+ board.getKingCount(Game.MAXIMIZING_PLAYER) == 2)
+			return new int[] { Game.DRAW };
 
 		// Otherwise, keep playing
 		return new int[] { Game.NONE };
@@ -261,26 +325,26 @@ public class CheckersGame extends Game {
 		// Only jumps allowed in restricted mode
 		ArrayList<Move> jumpMoves = new ArrayList<Move>();
 
-		// Get the key version of this piece by setting position = null
-		Piece key = new Piece(piece.getType(), null, piece.getPlayer());
-		HashMap<Piece, ArrayList<Vector>> moveMap = this.getRules()
-				.getMoveMap();
-		ArrayList<Vector> moves = moveMap.get(key);
+		// The moves of this kind of piece
+		Vector[] moves = getRules().getPieceMoves(piece.getCode());
 
 		// For each vector in the move map
-		for (Vector v : moves) {
-			int dirX = v.getDeltaX();
-			int dirY = v.getDeltaY();
+		int curX = piece.getPosition().getX();
+		int curY = piece.getPosition().getY();
 
-			int curX = piece.getPosition().getX();
-			int curY = piece.getPosition().getY();
+		for (Vector v : moves) {
+			// The square the vector reaches, if it's on the board
+			Point[] ray = getRules().getRay(curX, curY, v);
+			if (ray.length == 0)
+				continue;
 
-			int newX = dirX + curX;
-			int newY = dirY + curY;
+			int dirX = v.getDeltaX();
+			Point end = ray[0];
+			int newX = end.getX();
+			int newY = end.getY();
 
-			// Check if the new position is in bounds and empty
-			if (getBoard().isInBounds(newX, newY)
-					&& getBoard().getMatrix()[newX][newY] == null) {
+			// Check if the new position is empty
+			if (getBoard().isEmpty(newX, newY)) {
 
 				// Deal with promotions
 				boolean isPromotion = false;
@@ -290,28 +354,25 @@ public class CheckersGame extends Game {
 					isPromotion = true;
 
 				// Make sure the piece contains the new position
-				Piece newPiece = new Piece(newType, new Point(newX, newY),
-						piece.getPlayer());
+				Piece newPiece = new Piece(newType, end, piece.getPlayer());
 
 				switch (Math.abs(dirX)) {
 				case 2:
 					int midX = (newX + curX) / 2;
 					int midY = (newY + curY) / 2;
 
-					String midVal = this.getBoard().getMatrix()[midX][midY];
+					byte midCode = this.getBoard().getCode(midX, midY);
 
-					// Make sure the middle value is of the other type
-					if (midVal != null
-							&& (midVal.equals(TYPES[1 - getTurn()][0]) || midVal
-									.equals(TYPES[1 - getTurn()][1]))) {
+					// Make sure the middle piece is the other player's
+					if (midCode != Piece.NONE
+							&& Piece.playerOf(midCode) == 1 - getTurn()) {
 						// The middle piece is affected
 						ArrayList<Piece> affected = new ArrayList<Piece>();
-						affected.add(new Piece(midVal, new Point(midX, midY),
-								1 - this.getTurn()));
+						affected.add(new Piece(midCode, Point.valueOf(midX,
+								midY)));
 
 						jumpMoves.add(new Move(newPiece, piece.getPosition(),
-								new Point(newX, newY), affected, false,
-								isPromotion));
+								end, affected, false, isPromotion));
 					}
 
 					break;
@@ -329,26 +390,26 @@ public class CheckersGame extends Game {
 		ArrayList<Move> jumpMoves = new ArrayList<Move>();
 		ArrayList<Move> singleMoves = new ArrayList<Move>();
 
-		// Get the key version of this piece by setting position = null
-		Piece key = new Piece(p.getType(), null, p.getPlayer());
-		HashMap<Piece, ArrayList<Vector>> moveMap = this.getRules()
-				.getMoveMap();
-		ArrayList<Vector> moves = moveMap.get(key);
+		// The moves of this kind of piece
+		Vector[] moves = getRules().getPieceMoves(p.getCode());
 
 		// For each vector in the move map
-		for (Vector v : moves) {
-			int dirX = v.getDeltaX();
-			int dirY = v.getDeltaY();
+		int curX = p.getPosition().getX();
+		int curY = p.getPosition().getY();
 
-			int curX = p.getPosition().getX();
-			int curY = p.getPosition().getY();
+		for (Vector v : moves) {
+			// The square the vector reaches, if it's on the board
+			Point[] ray = getRules().getRay(curX, curY, v);
+			if (ray.length == 0)
+				continue;
 
-			int newX = dirX + curX;
-			int newY = dirY + curY;
+			int dirX = v.getDeltaX();
+			Point end = ray[0];
+			int newX = end.getX();
+			int newY = end.getY();
 
-			// Check if the new position is in bounds and empty
-			if (getBoard().isInBounds(newX, newY)
-					&& getBoard().getMatrix()[newX][newY] == null) {
+			// Check if the new position is empty
+			if (getBoard().isEmpty(newX, newY)) {
 
 				// Deal with promotions
 				boolean isPromotion = false;
@@ -358,8 +419,7 @@ public class CheckersGame extends Game {
 					isPromotion = true;
 
 				// Make sure the piece contains the new position
-				Piece newPiece = new Piece(newType, new Point(newX, newY),
-						p.getPlayer());
+				Piece newPiece = new Piece(newType, end, p.getPlayer());
 
 				switch (Math.abs(dirX)) {
 				case 1:
@@ -367,28 +427,26 @@ public class CheckersGame extends Game {
 					// restriction isn't on
 					if (!isRestricted() && jumpMoves.size() == 0) {
 						singleMoves.add(new Move(newPiece, p.getPosition(),
-								new Point(newX, newY), new ArrayList<Piece>(),
-								true, isPromotion));
+								end, new ArrayList<Piece>(), true,
+								isPromotion));
 					}
 					break;
 				case 2:
 					int midX = (newX + curX) / 2;
 					int midY = (newY + curY) / 2;
 
-					String midVal = this.getBoard().getMatrix()[midX][midY];
+					byte midCode = this.getBoard().getCode(midX, midY);
 
-					// Make sure the middle value is of the other type
-					if (midVal != null
-							&& (midVal.equals(TYPES[1 - getTurn()][0]) || midVal
-									.equals(TYPES[1 - getTurn()][1]))) {
+					// Make sure the middle piece is the other player's
+					if (midCode != Piece.NONE
+							&& Piece.playerOf(midCode) == 1 - getTurn()) {
 						// The middle piece is affected
 						ArrayList<Piece> affected = new ArrayList<Piece>();
-						affected.add(new Piece(midVal, new Point(midX, midY),
-								1 - this.getTurn()));
+						affected.add(new Piece(midCode, Point.valueOf(midX,
+								midY)));
 
 						jumpMoves.add(new Move(newPiece, p.getPosition(),
-								new Point(newX, newY), affected, false,
-								isPromotion));
+								end, affected, false, isPromotion));
 					}
 
 					break;
@@ -0,0 +1,130 @@
+package checkers;
+
+import java.util.ArrayList;
+
+import models.Game;
+import models.Move;
+import models.Piece;
+import utils.Point;
+
+/**
+ * Reads checkers positions in the FEN style of Portable Draughts Notation, such
+ * as B:W21-32:B1-12, for setting up games that don't start from the opening.
+ * 
+ * The first field is the side to move. The others list each side's squares,
+ * separated by commas, with K in front of a king and ranges allowed. Squares
+ * are numbered 1 to 32 across each row of dark squares from the top right,
+ * which is the left as Black sees the board. The side called Black moves first
+ * and starts on 1 to 12, which is red here.
+ * 
+ * @author denniscui
+ * 
+ */
+public class CheckersPosition {
+
+	public static final String START = "B:W21-32:B1-12";
+
+	/**
+	 * Creates a game from a position string.
+	 * 
+	 * @param position
+	 * @return game in the given position
+	 * @throws IllegalArgumentException
+	 *             if the string can't be read
+	 */
+	public static CheckersGame parse(String position) {
+		String[] fields = position.trim().split(":");
+
+		int turn;
+		if (fields[0].equals("B"))
+			turn = Game.MINIMIZING_PLAYER;
+		else if (fields[0].equals("W"))
+			turn = Game.MAXIMIZING_PLAYER;
+		else
+			throw new IllegalArgumentException("Bad side to move: "
+					+ position);
+
+		ArrayList<Piece> pieces = new ArrayList<Piece>();
+		for (int f = 1; f < fields.length; f++) {
+			String field = fields[f];
+			if (field.length() == 0)
+				continue;
+
+			int player;
+			if (field.charAt(0) == 'B')
+				player = Game.MINIMIZING_PLAYER;
+			else if (field.charAt(0) == 'W')
+				player = Game.MAXIMIZING_PLAYER;
+			else
+				throw new IllegalArgumentException("Bad side " + field + ": "
+						+ position);
+
+			String[] squares = field.substring(1).split(",");
+			for (String s : squares) {
+				if (s.length() == 0)
+					continue;
+
+				boolean king = s.charAt(0) == 'K';
+				if (king)
+					s = s.substring(1);
+
+				String type = CheckersGame.TYPES[player][king ? 1 : 0];
+				try {
+					int dash = s.indexOf('-');
+					int first = Integer.parseInt(dash < 0 ? s : s.substring(
+							0, dash));
+					int last = dash < 0 ? first : Integer.parseInt(s
+							.substring(dash + 1));
+
+					for (int n = first; n <= last; n++)
+						pieces.add(new Piece(type, toPoint(n), player));
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Bad square " + s
+							+ ": " + position);
+				}
+			}
+		}
+
+		CheckersRules rules = new CheckersRules();
+		return new CheckersGame(Game.CHECKERS, new CheckersBoard(
+				rules.getRows(), rules.getCols(), pieces), rules, turn,
+				new ArrayList<Move>());
+	}
+
+	/**
+	 * Returns the position of a numbered square.
+	 * 
+	 * @param square
+	 *            1 to 32
+	 * @return position
+	 */
+	public static Point toPoint(int square) {
+		if (square < 1 || square > 32)
+			throw new IllegalArgumentException("No square " + square);
+
+		int row = (square - 1) / 4;
+		return Point.valueOf(row, 2 * (3 - (square - 1) % 4) + row % 2);
+	}
+
+	/**
+	 * Returns the number of a dark square.
+	 * 
+	 * @param p
+	 * @return 1 to 32
+	 */
+	public static int toSquare(Point p) {
+		return p.getX() * 4 + 3 - p.getY() / 2 + 1;
+	}
+
+	/**
+	 * Writes one step of a move, such as 9-13 or 9x18.
+	 * 
+	 * @param m
+	 * @return notation
+	 */
+	public static String toNotation(Move m) {
+		boolean jump = Math.abs(m.getEnd().getX() - m.getStart().getX()) == 2;
+		return toSquare(m.getStart()) + (jump ? "x" : "-")
+				+ toSquare(m.getEnd());
+	}
+}
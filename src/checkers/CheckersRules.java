@@ -34,61 +34,40 @@ public class CheckersRules extends Rules {
 	}
 
 	/**
-	 * Helper function called by the constructor to setup the piece map. Capture
-	 * moves are added to the arraylist first to speed up processing.
+	 * Helper function called by the constructor to setup the piece moves.
+	 * Capture moves come first to speed up processing.
 	 */
 	private void setupPieceMap() {
 		// Red player's pieces, red will start on top
-		Piece rPiece = new Piece("r", null, 0);
-
-		ArrayList<Vector> rPieceMoves = new ArrayList<Vector>();
-
-		// Capture moves
-		rPieceMoves.add(new Vector(2, -2));
-		rPieceMoves.add(new Vector(2, 2));
+		Vector[] rPieceMoves = new Vector[] {
+				// Capture moves
+				new Vector(2, -2), new Vector(2, 2),
 
-		// Normal Moves
-		rPieceMoves.add(new Vector(1, -1));
-		rPieceMoves.add(new Vector(1, 1));
+				// Normal Moves
+				new Vector(1, -1), new Vector(1, 1) };
 
-		Piece rPieceK = new Piece("R", null, 0);
-
-		ArrayList<Vector> rPieceKMoves = new ArrayList<Vector>();
-		// Capture Moves
-		rPieceKMoves.add(new Vector(2, -2));
-		rPieceKMoves.add(new Vector(2, 2));
-		rPieceKMoves.add(new Vector(-2, 2));
-		rPieceKMoves.add(new Vector(-2, -2));
+		Vector[] rPieceKMoves = new Vector[] {
+				// Capture Moves
+				new Vector(2, -2), new Vector(2, 2), new Vector(-2, 2),
+				new Vector(-2, -2),
 
-		// Normal Moves
-		rPieceKMoves.add(new Vector(1, -1));
-		rPieceKMoves.add(new Vector(1, 1));
-		rPieceKMoves.add(new Vector(-1, 1));
-		rPieceKMoves.add(new Vector(-1, -1));
+				// Normal Moves
+				new Vector(1, -1), new Vector(1, 1), new Vector(-1, 1),
+				new Vector(-1, -1) };
 
 		// Black player's pieces, black will start on bottom
-		Piece bPiece = new Piece("b", null, 1);
+		Vector[] bPieceMoves = new Vector[] {
+				// Capture moves
+				new Vector(-2, -2), new Vector(-2, 2),
 
-		ArrayList<Vector> bPieceMoves = new ArrayList<Vector>();
-
-		// Capture moves
-		bPieceMoves.add(new Vector(-2, -2));
-		bPieceMoves.add(new Vector(-2, 2));
-
-		// Normal Moves
-		bPieceMoves.add(new Vector(-1, -1));
-		bPieceMoves.add(new Vector(-1, 1));
-
-		Piece bPieceK = new Piece("B", null, 1);
+				// Normal Moves
+				new Vector(-1, -1), new Vector(-1, 1) };
 
 		// Kings move the same way!
-		HashMap<Piece, ArrayList<Vector>> moveMap = new HashMap<Piece, ArrayList<Vector>>();
-		moveMap.put(rPiece, rPieceMoves);
-		moveMap.put(rPieceK, rPieceKMoves);
-		moveMap.put(bPiece, bPieceMoves);
-		moveMap.put(bPieceK, rPieceKMoves);
-
-		this.setPieceRules(moveMap);
+		setPieceMoves("r", 0, rPieceMoves);
+		setPieceMoves("R", 0, rPieceKMoves);
+		setPieceMoves("b", 1, bPieceMoves);
+		setPieceMoves("B", 1, rPieceKMoves);
 	}
 
 	/**
@@ -174,7 +153,7 @@ public class CheckersRules extends Rules {
 		switch (Math.abs(oldX - newX)) {
 		case 1:
 			// It's a single move, so new position must be empty.
-			return b.getMatrix()[newX][newY] == null;
+			return b.isEmpty(newX, newY);
 		case 2:
 			// Get the affected piece
 			String midType = m.getAffected().get(0).getType();
@@ -0,0 +1,360 @@
+package checkers;
+
+import models.Game;
+import models.Piece;
+
+/**
+ * Checkers positions with few pieces as bitboards, for building and reading
+ * the endgame database.
+ * 
+ * A position is three 32-bit sets of dark squares: the pieces of the player
+ * to move, the pieces of the other player, and which of them are kings.
+ * Square s is row s / 4, column 2 * (s % 4) + row % 2, counting from 0 across
+ * each row from the top left. The player to move is always taken to be red,
+ * whose pawns move down the board, so a position with black to move is turned
+ * round first; turning the board round takes square s to 31 - s, which is
+ * reversing the bits.
+ * 
+ * Positions are grouped into slices by how many kings and pawns each player
+ * has. Within a slice, each kind of piece is numbered by the combination of
+ * squares it stands on, and the index of a position puts those numbers
+ * together. Pawns can't stand on the row they would be crowned on, so they
+ * only need 28 squares.
+ * 
+ * @author denniscui
+ * 
+ */
+public class Endgame {
+
+	// Results for the player to move. Positions with two pieces on one
+	// square have an index but can't happen.
+	public static final int DRAW = 0;
+	public static final int WIN = 1;
+	public static final int LOSS = 2;
+	public static final int INVALID = 3;
+
+	// Most pieces a slice can hold
+	public static final int MAX_PIECES = 6;
+
+	public static final int SQUARES = 32;
+
+	// Squares a pawn can stand on
+	public static final int PAWN_SQUARES = 28;
+
+	// First square of the row red pawns are crowned on
+	public static final int CROWN_SQUARE = 28;
+
+	// Directions: down left, down right, up left, up right. Down is the way
+	// the pawns of the player to move go.
+	public static final int DIRECTIONS = 4;
+
+	// The square next to each square in each direction, or -1 off the board
+	public static final int[][] NEXT = next();
+
+	// Binomial coefficients, CHOOSE[n][k] for n up to 32
+	private static final int[][] CHOOSE = choose();
+
+	/**
+	 * Returns the number of positions in a slice, including impossible ones.
+	 * 
+	 * @param ownKings
+	 * @param ownPawns
+	 * @param otherKings
+	 * @param otherPawns
+	 * @return size
+	 */
+	public static int size(int ownKings, int ownPawns, int otherKings,
+			int otherPawns) {
+		return CHOOSE[SQUARES][ownKings] * CHOOSE[PAWN_SQUARES][ownPawns]
+				* CHOOSE[SQUARES][otherKings]
+				* CHOOSE[PAWN_SQUARES][otherPawns];
+	}
+
+	/**
+	 * Returns the number that identifies the slice with the given pieces.
+	 * 
+	 * @param ownKings
+	 * @param ownPawns
+	 * @param otherKings
+	 * @param otherPawns
+	 * @return key, below sliceKeys()
+	 */
+	public static int sliceKey(int ownKings, int ownPawns, int otherKings,
+			int otherPawns) {
+		int base = MAX_PIECES + 1;
+		return ((ownKings * base + ownPawns) * base + otherKings) * base
+				+ otherPawns;
+	}
+
+	/**
+	 * Returns the number of possible slice keys.
+	 * 
+	 * @return count
+	 */
+	public static int sliceKeys() {
+		int base = MAX_PIECES + 1;
+		return base * base * base * base;
+	}
+
+	/**
+	 * Returns the slice key of a position.
+	 * 
+	 * @param own
+	 * @param other
+	 * @param kings
+	 * @return key
+	 */
+	public static int sliceKey(int own, int other, int kings) {
+		return sliceKey(Integer.bitCount(own & kings),
+				Integer.bitCount(own & ~kings),
+				Integer.bitCount(other & kings),
+				Integer.bitCount(other & ~kings));
+	}
+
+	/**
+	 * Returns the index of a position in its slice.
+	 * 
+	 * @param own
+	 * @param other
+	 * @param kings
+	 * @return index
+	 */
+	public static int index(int own, int other, int kings) {
+		int otherKings = other & kings;
+		int otherPawns = other & ~kings;
+
+		int index = rank(own & kings, 0);
+		index = index * CHOOSE[PAWN_SQUARES][Integer.bitCount(own & ~kings)]
+				+ rank(own & ~kings, 0);
+		index = index * CHOOSE[SQUARES][Integer.bitCount(otherKings)]
+				+ rank(otherKings, 0);
+
+		// The other player's pawns can't be on the top row
+		index = index * CHOOSE[PAWN_SQUARES][Integer.bitCount(otherPawns)]
+				+ rank(otherPawns, SQUARES - PAWN_SQUARES);
+
+		return index;
+	}
+
+	/**
+	 * Sets up the position with the given index in a slice.
+	 * 
+	 * @param index
+	 * @param ownKings
+	 * @param ownPawns
+	 * @param otherKings
+	 * @param otherPawns
+	 * @return own, other and kings, or null if two pieces share a square
+	 */
+	public static int[] position(int index, int ownKings, int ownPawns,
+			int otherKings, int otherPawns) {
+		int n = CHOOSE[PAWN_SQUARES][otherPawns];
+		int op = unrank(index % n, otherPawns, SQUARES - PAWN_SQUARES);
+		index /= n;
+
+		n = CHOOSE[SQUARES][otherKings];
+		int ok = unrank(index % n, otherKings, 0);
+		index /= n;
+
+		n = CHOOSE[PAWN_SQUARES][ownPawns];
+		int p = unrank(index % n, ownPawns, 0);
+		int k = unrank(index / n, ownKings, 0);
+
+		int own = k | p;
+		int other = ok | op;
+		if (Integer.bitCount(own | other) != ownKings + ownPawns + otherKings
+				+ otherPawns)
+			return null;
+
+		return new int[] { own, other, k | ok };
+	}
+
+	/**
+	 * Turns the board round, for the other player to move.
+	 * 
+	 * @param squares
+	 * @return squares
+	 */
+	public static int flip(int squares) {
+		return Integer.reverse(squares);
+	}
+
+	/**
+	 * Reads the position of a game, turned round if black is to move.
+	 * 
+	 * @param g
+	 * @return own, other and kings
+	 */
+	public static int[] position(Game g) {
+		int own = 0;
+		int other = 0;
+		int kings = 0;
+
+		for (int s = 0; s < SQUARES; s++) {
+			int row = s / 4;
+			int col = 2 * (s % 4) + row % 2;
+			byte code = g.getBoard().getCode(row, col);
+			if (code == Piece.NONE)
+				continue;
+
+			int bit = 1 << s;
+			if (Piece.playerOf(code) == g.getTurn())
+				own |= bit;
+			else
+				other |= bit;
+
+			// Kings are upper case
+			if (Piece.kindOf(code) < 'a')
+				kings |= bit;
+		}
+
+		if (g.getTurn() == Game.MINIMIZING_PLAYER)
+			return new int[] { own, other, kings };
+		else
+			return new int[] { flip(own), flip(other), flip(kings) };
+	}
+
+	/**
+	 * Lists the positions the player to move can reach in one turn, each
+	 * turned round for the other player. Jumps must be taken, and a piece
+	 * that can jump again must, even when it has just been crowned.
+	 * 
+	 * @param own
+	 * @param other
+	 * @param kings
+	 * @param out
+	 *            filled with own, other and kings of each position
+	 * @return number of positions
+	 */
+	public static int successors(int own, int other, int kings, int[] out) {
+		int n = 0;
+		for (int pieces = own; pieces != 0; pieces &= pieces - 1)
+			n = jump(Integer.numberOfTrailingZeros(pieces), own, other, kings,
+					false, out, n);
+
+		if (n > 0)
+			return n;
+
+		int empty = ~(own | other);
+		for (int pieces = own; pieces != 0; pieces &= pieces - 1) {
+			int from = Integer.numberOfTrailingZeros(pieces);
+			boolean king = (kings & (1 << from)) != 0;
+
+			for (int d = 0; d < (king ? DIRECTIONS : 2); d++) {
+				int to = NEXT[from][d];
+				if (to < 0 || (empty & (1 << to)) == 0)
+					continue;
+
+				int o = own & ~(1 << from) | 1 << to;
+				int k = kings & ~(1 << from);
+				if (king || to >= CROWN_SQUARE)
+					k |= 1 << to;
+
+				n = add(o, other, k, out, n);
+			}
+		}
+
+		return n;
+	}
+
+	/**
+	 * Follows every way a piece can keep jumping and adds the positions
+	 * where it has to stop.
+	 */
+	private static int jump(int from, int own, int other, int kings,
+			boolean jumped, int[] out, int n) {
+		boolean king = (kings & (1 << from)) != 0;
+		boolean more = false;
+
+		for (int d = 0; d < (king ? DIRECTIONS : 2); d++) {
+			int over = NEXT[from][d];
+			if (over < 0 || (other & (1 << over)) == 0)
+				continue;
+
+			int to = NEXT[over][d];
+			if (to < 0 || ((own | other) & (1 << to)) != 0)
+				continue;
+
+			more = true;
+			int o = own & ~(1 << from) | 1 << to;
+			int k = kings & ~(1 << from) & ~(1 << over);
+			if (king || to >= CROWN_SQUARE)
+				k |= 1 << to;
+
+			n = jump(to, o, other & ~(1 << over), k, true, out, n);
+		}
+
+		if (jumped && !more)
+			n = add(own, other, kings, out, n);
+
+		return n;
+	}
+
+	private static int add(int own, int other, int kings, int[] out, int n) {
+		out[3 * n] = flip(other);
+		out[3 * n + 1] = flip(own);
+		out[3 * n + 2] = flip(kings);
+		return n + 1;
+	}
+
+	/**
+	 * Numbers a set of squares among all sets of the same size.
+	 */
+	private static int rank(int squares, int first) {
+		int rank = 0;
+		int i = 1;
+		for (; squares != 0; squares &= squares - 1)
+			rank += CHOOSE[Integer.numberOfTrailingZeros(squares) - first][i++];
+
+		return rank;
+	}
+
+	/**
+	 * Finds the set of squares with the given number.
+	 */
+	private static int unrank(int rank, int count, int first) {
+		int squares = 0;
+		for (int i = count; i >= 1; i--) {
+			int s = i - 1;
+			while (CHOOSE[s + 1][i] <= rank)
+				s++;
+
+			rank -= CHOOSE[s][i];
+			squares |= 1 << (s + first);
+		}
+
+		return squares;
+	}
+
+	private static int[][] next() {
+		int[][] next = new int[SQUARES][DIRECTIONS];
+		int[] rowSteps = { 1, 1, -1, -1 };
+		int[] colSteps = { -1, 1, -1, 1 };
+
+		for (int s = 0; s < SQUARES; s++) {
+			int row = s / 4;
+			int col = 2 * (s % 4) + row % 2;
+
+			for (int d = 0; d < DIRECTIONS; d++) {
+				int r = row + rowSteps[d];
+				int c = col + colSteps[d];
+				next[s][d] = r < 0 || r > 7 || c < 0 || c > 7 ? -1 : r * 4 + c
+						/ 2;
+			}
+		}
+
+		return next;
+	}
+
+	private static int[][] choose() {
+		int[][] choose = new int[SQUARES + 1][MAX_PIECES + 1];
+		for (int n = 0; n <= SQUARES; n++) {
+			choose[n][0] = 1;
+			for (int k = 1; k <= MAX_PIECES && k <= n; k++)
+				choose[n][k] = choose[n - 1][k - 1]
+						+ (k <= n - 1 ? choose[n - 1][k] : 0);
+		}
+
+		return choose;
+	}
+}
@@ -0,0 +1,136 @@
+package checkers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import models.Game;
+import models.Tablebase;
+
+/**
+ * Reads the checkers endgame database written by EndgameGenerator. The file
+ * is mapped into memory rather than read, so only the parts that are looked
+ * up are ever loaded.
+ * 
+ * The file starts with MAGIC, VERSION, the most pieces of any position and
+ * the number of slices, as ints. Then comes an entry for each slice: its own
+ * kings, own pawns, other kings and other pawns as bytes, and where its
+ * results start in the file as a long. Each slice holds a result for every
+ * index, 2 bits each, 4 to a byte from the low bits up. See Endgame for the
+ * indexing.
+ * 
+ * @author denniscui
+ * 
+ */
+public class EndgameDatabase implements Tablebase {
+
+	// "CKDB"
+	public static final int MAGIC = 0x434B4442;
+	public static final int VERSION = 1;
+
+	public static final int HEADER_BYTES = 16;
+	public static final int SLICE_BYTES = 12;
+
+	private MappedByteBuffer data;
+	private int maxPieces;
+
+	// Where each slice starts, by slice key, or -1 if it isn't in the file
+	private long[] offsets = new long[Endgame.sliceKeys()];
+
+	/**
+	 * Opens a database file.
+	 * 
+	 * @param file
+	 * @throws IOException
+	 *             if the file can't be read or isn't a database
+	 */
+	public EndgameDatabase(File file) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			data = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+					in.length());
+		} finally {
+			// The mapping stays valid after the file is closed
+			in.close();
+		}
+
+		if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION)
+			throw new IOException("Not an endgame database: " + file);
+
+		maxPieces = data.getInt(8);
+		if (maxPieces > Endgame.MAX_PIECES)
+			throw new IOException("Too many pieces: " + maxPieces);
+
+		for (int i = 0; i < offsets.length; i++)
+			offsets[i] = -1;
+
+		int slices = data.getInt(12);
+		for (int i = 0; i < slices; i++) {
+			int at = HEADER_BYTES + i * SLICE_BYTES;
+			int key = Endgame.sliceKey(data.get(at), data.get(at + 1),
+					data.get(at + 2), data.get(at + 3));
+			offsets[key] = data.getLong(at + 4);
+		}
+	}
+
+	/**
+	 * Looks up a position, unless it has too many pieces or a multi-jump is
+	 * in progress.
+	 */
+	@Override
+	public int[] probe(Game g) {
+		CheckersBoard board = (CheckersBoard) g.getBoard();
+		if (g.isRestricted()
+				|| board.getPieceCount(Game.MINIMIZING_PLAYER)
+						+ board.getPieceCount(Game.MAXIMIZING_PLAYER) > maxPieces)
+			return new int[] { Game.NONE };
+
+		int[] p = Endgame.position(g);
+		switch (probe(p[0], p[1], p[2])) {
+		case Endgame.WIN:
+			return new int[] { Game.WIN, g.getTurn() };
+		case Endgame.LOSS:
+			return new int[] { Game.WIN, 1 - g.getTurn() };
+		case Endgame.DRAW:
+			return new int[] { Game.DRAW };
+		default:
+			return new int[] { Game.NONE };
+		}
+	}
+
+	/**
+	 * Looks up a position with the player to move as red.
+	 * 
+	 * @param own
+	 * @param other
+	 * @param kings
+	 * @return result for the player to move, or INVALID if the position
+	 *         isn't in the database
+	 */
+	public int probe(int own, int other, int kings) {
+		if (own == 0)
+			return Endgame.LOSS;
+		if (other == 0)
+			return Endgame.WIN;
+		if (Integer.bitCount(own | other) > maxPieces)
+			return Endgame.INVALID;
+
+		long offset = offsets[Endgame.sliceKey(own, other, kings)];
+		if (offset < 0)
+			return Endgame.INVALID;
+
+		int index = Endgame.index(own, other, kings);
+		return (data.get((int) (offset + (index >> 2))) >> ((index & 3) << 1)) & 3;
+	}
+
+	/**
+	 * Returns the most pieces of any position in the database.
+	 * 
+	 * @return maxPieces
+	 */
+	public int getMaxPieces() {
+		return maxPieces;
+	}
+}
@@ -0,0 +1,328 @@
+package checkers;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Builds the checkers endgame database by retrograde analysis and writes it
+ * to a file for EndgameDatabase.
+ * 
+ * Slices are solved fewest pieces first, and among those fewest pawns first,
+ * so that a jump or a crowning always leads to a slice that is already
+ * solved. A slice is solved together with its mirror, the same pieces with
+ * the other player to move, since ordinary moves lead back and forth between
+ * the two. Positions whose every move leaves the pair are settled first.
+ * Then every win and loss is followed backwards through the moves that lead
+ * to it: a position that can move into a loss for the other player is a win,
+ * and one whose every move leads to a win for the other player is a loss.
+ * Whatever is left when nothing changes is a draw.
+ * 
+ * The file starts with the header described in EndgameDatabase, followed by
+ * each slice at 2 bits a position.
+ * 
+ * Usage: EndgameGenerator file [pieces]
+ * 
+ * @author denniscui
+ * 
+ */
+public class EndgameGenerator {
+
+	public static final int DEFAULT_PIECES = 5;
+
+	// Most positions one turn can lead to
+	private static final int MAX_SUCCESSORS = 64;
+
+	// The solved slices, by slice key, 4 positions a byte
+	private byte[][] solved = new byte[Endgame.sliceKeys()][];
+
+	// Slice counts in the order they were solved
+	private ArrayList<int[]> slices = new ArrayList<int[]>();
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: EndgameGenerator file [pieces]");
+			return;
+		}
+
+		int pieces = args.length > 1 ? Integer.parseInt(args[1])
+				: DEFAULT_PIECES;
+		if (pieces < 2 || pieces > Endgame.MAX_PIECES)
+			throw new IllegalArgumentException("Pieces must be from 2 to "
+					+ Endgame.MAX_PIECES);
+
+		long start = System.currentTimeMillis();
+		EndgameGenerator generator = new EndgameGenerator();
+		generator.generate(pieces);
+		generator.write(args[0], pieces);
+
+		System.out.println("Done in " + (System.currentTimeMillis() - start)
+				/ 1000 + " s");
+	}
+
+	/**
+	 * Solves every slice with up to the given number of pieces.
+	 * 
+	 * @param pieces
+	 */
+	public void generate(int pieces) {
+		for (int total = 2; total <= pieces; total++) {
+			for (int pawns = 0; pawns <= total; pawns++) {
+				for (int ownKings = 0; ownKings <= total; ownKings++) {
+					for (int ownPawns = 0; ownPawns + ownKings <= total; ownPawns++) {
+						int otherPawns = pawns - ownPawns;
+						int otherKings = total - ownKings - ownPawns
+								- otherPawns;
+						if (otherPawns < 0 || otherKings < 0
+								|| ownKings + ownPawns == 0
+								|| otherKings + otherPawns == 0)
+							continue;
+
+						// Each pair once, when its second slice comes up
+						int key = Endgame.sliceKey(ownKings, ownPawns,
+								otherKings, otherPawns);
+						int mirror = Endgame.sliceKey(otherKings, otherPawns,
+								ownKings, ownPawns);
+						if (solved[key] == null && key >= mirror)
+							solve(ownKings, ownPawns, otherKings, otherPawns);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Solves a slice together with its mirror.
+	 */
+	private void solve(int ownKings, int ownPawns, int otherKings,
+			int otherPawns) {
+		long start = System.currentTimeMillis();
+
+		int[][] counts = new int[][] {
+				{ ownKings, ownPawns, otherKings, otherPawns },
+				{ otherKings, otherPawns, ownKings, ownPawns } };
+		int[] keys = new int[2];
+		int[] sizes = new int[2];
+		for (int i = 0; i < 2; i++) {
+			keys[i] = Endgame.sliceKey(counts[i][0], counts[i][1],
+					counts[i][2], counts[i][3]);
+			sizes[i] = Endgame.size(counts[i][0], counts[i][1], counts[i][2],
+					counts[i][3]);
+		}
+
+		// A slice that is its own mirror is solved once
+		int halves = keys[0] == keys[1] ? 1 : 2;
+		int total = halves == 1 ? sizes[0] : sizes[0] + sizes[1];
+
+		// Results, and for undecided positions the number of moves that
+		// stay in the pair and aren't yet known to lose
+		byte[] results = new byte[total];
+		byte[] open = new byte[total];
+		boolean[] decided = new boolean[total];
+		int[] queue = new int[total];
+		int head = 0;
+		int tail = 0;
+
+		// Two kings alone are a draw
+		boolean bareKings = ownKings == 1 && otherKings == 1 && ownPawns == 0
+				&& otherPawns == 0;
+
+		int[] out = new int[3 * MAX_SUCCESSORS];
+		for (int half = 0; half < halves; half++) {
+			int[] c = counts[half];
+			int offset = half == 0 ? 0 : sizes[0];
+
+			for (int index = 0; index < sizes[half]; index++) {
+				int id = offset + index;
+				int[] p = Endgame.position(index, c[0], c[1], c[2], c[3]);
+				if (p == null) {
+					results[id] = Endgame.INVALID;
+					decided[id] = true;
+					continue;
+				}
+
+				if (bareKings) {
+					decided[id] = true;
+					continue;
+				}
+
+				int n = Endgame.successors(p[0], p[1], p[2], out);
+				boolean win = false;
+				boolean draw = false;
+				int inside = 0;
+				for (int i = 0; i < n && !win; i++) {
+					int own = out[3 * i];
+					int other = out[3 * i + 1];
+					int kings = out[3 * i + 2];
+
+					int key = Endgame.sliceKey(own, other, kings);
+					if (key == keys[0] || key == keys[1]) {
+						inside++;
+						continue;
+					}
+
+					int result = result(own, other, kings);
+					if (result == Endgame.LOSS)
+						win = true;
+					else if (result == Endgame.DRAW)
+						draw = true;
+				}
+
+				if (win)
+					results[id] = Endgame.WIN;
+				else if (inside == 0 && !draw)
+					results[id] = Endgame.LOSS;
+				else if (inside == 0) {
+					// Settled as a draw, which nothing leads back from
+					decided[id] = true;
+					continue;
+				} else {
+					// A way out to a draw keeps the position from losing
+					open[id] = (byte) (inside + (draw ? 1 : 0));
+					continue;
+				}
+
+				decided[id] = true;
+				queue[tail++] = id;
+			}
+		}
+
+		// Follow the wins and losses back through the moves into them
+		while (head < tail) {
+			int id = queue[head++];
+			int half = id < sizes[0] ? 0 : 1;
+			int[] c = counts[half];
+			int[] p = Endgame.position(half == 0 ? id : id - sizes[0], c[0],
+					c[1], c[2], c[3]);
+			boolean lost = results[id] == Endgame.LOSS;
+
+			// The player who just moved is the other player here, and
+			// their pawns move up the board
+			int own = p[0];
+			int other = p[1];
+			int kings = p[2];
+			int empty = ~(own | other);
+			for (int pieces = other; pieces != 0; pieces &= pieces - 1) {
+				int to = Integer.numberOfTrailingZeros(pieces);
+				boolean king = (kings & (1 << to)) != 0;
+
+				for (int d = 0; d < (king ? Endgame.DIRECTIONS : 2); d++) {
+					int from = Endgame.NEXT[to][d];
+					if (from < 0 || (empty & (1 << from)) == 0)
+						continue;
+
+					int o = other & ~(1 << to) | 1 << from;
+					int k = king ? kings & ~(1 << to) | 1 << from : kings;
+
+					// The position before the move, with the mover to move
+					int prevOwn = Endgame.flip(o);
+					int prevOther = Endgame.flip(own);
+					int prevKings = Endgame.flip(k);
+					int prevHalf = Endgame.sliceKey(prevOwn, prevOther,
+							prevKings) == keys[0] ? 0 : 1;
+					int prev = (prevHalf == 0 ? 0 : sizes[0])
+							+ Endgame.index(prevOwn, prevOther, prevKings);
+
+					if (decided[prev])
+						continue;
+
+					if (lost) {
+						results[prev] = Endgame.WIN;
+					} else if (--open[prev] == 0) {
+						results[prev] = Endgame.LOSS;
+					} else
+						continue;
+
+					decided[prev] = true;
+					queue[tail++] = prev;
+				}
+			}
+		}
+
+		int[] tally = new int[4];
+		for (int half = 0; half < halves; half++) {
+			int offset = half == 0 ? 0 : sizes[0];
+			byte[] packed = new byte[(sizes[half] + 3) / 4];
+			for (int index = 0; index < sizes[half]; index++) {
+				int result = results[offset + index];
+				packed[index >> 2] |= result << ((index & 3) << 1);
+				tally[result]++;
+			}
+
+			solved[keys[half]] = packed;
+			slices.add(counts[half]);
+		}
+
+		System.out.println(name(counts[0]) + (halves == 2 ? " + "
+				+ name(counts[1]) : "") + ": " + tally[Endgame.WIN]
+				+ " wins, " + tally[Endgame.LOSS] + " losses, "
+				+ tally[Endgame.DRAW] + " draws in "
+				+ (System.currentTimeMillis() - start) + " ms");
+	}
+
+	/**
+	 * Looks up a position in the slices solved so far.
+	 * 
+	 * @return result for the player to move
+	 */
+	private int result(int own, int other, int kings) {
+		if (own == 0)
+			return Endgame.LOSS;
+		if (other == 0)
+			return Endgame.WIN;
+
+		byte[] packed = solved[Endgame.sliceKey(own, other, kings)];
+		int index = Endgame.index(own, other, kings);
+		return (packed[index >> 2] >> ((index & 3) << 1)) & 3;
+	}
+
+	/**
+	 * Writes the solved slices to a file.
+	 * 
+	 * @param fileName
+	 * @param pieces
+	 * @throws IOException
+	 */
+	public void write(String fileName, int pieces) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(fileName)));
+		try {
+			out.writeInt(EndgameDatabase.MAGIC);
+			out.writeInt(EndgameDatabase.VERSION);
+			out.writeInt(pieces);
+			out.writeInt(slices.size());
+
+			long offset = EndgameDatabase.HEADER_BYTES + slices.size()
+					* EndgameDatabase.SLICE_BYTES;
+			for (int[] c : slices) {
+				for (int i = 0; i < 4; i++)
+					out.writeByte(c[i]);
+				out.writeLong(offset);
+
+				offset += solved[Endgame.sliceKey(c[0], c[1], c[2], c[3])].length;
+			}
+
+			for (int[] c : slices)
+				out.write(solved[Endgame.sliceKey(c[0], c[1], c[2], c[3])]);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Names a slice by its pieces, kings as K and pawns as P, such as KP-K.
+	 */
+	private static String name(int[] counts) {
+		StringBuilder name = new StringBuilder();
+		for (int i = 0; i < 4; i++) {
+			if (i == 2)
+				name.append('-');
+			for (int j = 0; j < counts[i]; j++)
+				name.append(i % 2 == 0 ? 'K' : 'P');
+		}
+
+		return name.toString();
+	}
+}
@@ -0,0 +1,306 @@
+package chess;
+
+/**
+ * Precomputed attack tables for a chess board stored as 64 bit bitboards.
+ * Square indices run row by row, so square = row * 8 + col and row 0 is black's
+ * back rank. Sliding pieces use magic bitboards: the blockers on a piece's
+ * rays are multiplied by a magic number to index a table of attack sets.
+ * 
+ * @author denniscui
+ * 
+ */
+public final class Bitboards {
+
+	// Directions as (row, col) steps. Rays are stored in this order.
+	public static final int UP_LEFT = 0;
+	public static final int DOWN_LEFT = 1;
+	public static final int UP_RIGHT = 2;
+	public static final int DOWN_RIGHT = 3;
+	public static final int UP = 4;
+	public static final int DOWN = 5;
+	public static final int LEFT = 6;
+	public static final int RIGHT = 7;
+
+	private static final int[][] DIRECTIONS = new int[][] { { -1, -1 },
+			{ 1, -1 }, { -1, 1 }, { 1, 1 }, { -1, 0 }, { 1, 0 }, { 0, -1 },
+			{ 0, 1 } };
+
+	private static final int[][] KNIGHT_STEPS = new int[][] { { -2, 1 },
+			{ -1, 2 }, { 1, 2 }, { 2, 1 }, { 2, -1 }, { 1, -2 }, { -1, -2 },
+			{ -2, -1 } };
+
+	// Magic multipliers, found offline with a fixed seed
+	private static final long[] ROOK_MAGICS = new long[] {
+			0x0480002880104000L, 0x04C0082000411000L,
+			0x0C8008A004809000L, 0x0A00102200084004L,
+			0x4080080004008002L, 0x4580040080211200L,
+			0x0400009039220408L, 0x8100002082104100L,
+			0x9001800980A84001L, 0x2002002200810040L,
+			0x0100801000200080L, 0x0002001020420009L,
+			0x0602000804120020L, 0x0618800200800400L,
+			0x0242000421880200L, 0x0402000041188402L,
+			0x0080808000400029L, 0x0010044000402000L,
+			0x1081090020004010L, 0x2001828008001000L,
+			0x4084008008020480L, 0x0000808002000401L,
+			0x0002010100040200L, 0x118002000504A044L,
+			0x820040008020800CL, 0x0040200040005004L,
+			0x2016004600102280L, 0x0000210900100100L,
+			0x10000801800C0080L, 0x0114010040020040L,
+			0x1801883400110210L, 0x0800104600140481L,
+			0x8000804000800025L, 0x0000201000404000L,
+			0x2048402001001100L, 0x2285021001000821L,
+			0x2084000800800480L, 0x1903000209000400L,
+			0x020010C204000801L, 0x2000308042000401L,
+			0x8000400121818000L, 0x0A3C402010084000L,
+			0x0020010014410020L, 0x0002000820420011L,
+			0x1000040008008080L, 0x0012001008020004L,
+			0x0029000200110024L, 0x0000108044020011L,
+			0x0400401480002280L, 0x0D00400220100140L,
+			0x1040801000200080L, 0x4110100008008080L,
+			0x2068100500080100L, 0x0085800201040080L,
+			0x0A08021001080400L, 0x0018088064010200L,
+			0x1200401020850202L, 0x0040912880C00101L,
+			0x4100100822004082L, 0x04AA004008102106L,
+			0x0006002010040802L, 0x0002005804911002L,
+			0x108A000840840102L, 0x04020884A1140042L };
+
+	private static final long[] BISHOP_MAGICS = new long[] {
+			0x0010420808038210L, 0x0008100C02414578L,
+			0x0244080091100109L, 0x08080A0020082002L,
+			0x0244042002080000L, 0x0021100804005801L,
+			0x9100841008852000L, 0x0909208E00A02000L,
+			0x0448301408880452L, 0x1440204441144108L,
+			0x042610088CB10090L, 0x1010144100A02030L,
+			0x0002040CA1708000L, 0x8330820104206E20L,
+			0x0000111802500400L, 0x0110044400E80800L,
+			0x0020001384090800L, 0x0004082008009110L,
+			0x0090020104008010L, 0x0022006022004004L,
+			0x2488211308400120L, 0x0012008900424210L,
+			0x0034800402084300L, 0x0002208080A81800L,
+			0x3402200008200424L, 0x01101020142C00C0L,
+			0x141814008E02A200L, 0x0058080020220020L,
+			0x0001001001004004L, 0x8001020001004108L,
+			0x1021044022180400L, 0x4005004900241400L,
+			0x6004208446208400L, 0x0491100200900400L,
+			0x0084004800040034L, 0x00063C2008040100L,
+			0x0820440400004100L, 0x8854014280041000L,
+			0x2002908200010801L, 0x0200811240650410L,
+			0x108114424021E028L, 0x0808480804040830L,
+			0x48040A0804001206L, 0x0000004010400203L,
+			0x122004010211C400L, 0x1812081024200100L,
+			0x90440818C4088102L, 0x100212020A002020L,
+			0x4004441044100C20L, 0x4040441401082030L,
+			0x402B0A4404442080L, 0x20008A0484240014L,
+			0x02810E1060220000L, 0x008920201E108600L,
+			0x0089093010820052L, 0x0008184124042900L,
+			0x805101004120092CL, 0x4404084A08010800L,
+			0x00A4400080482202L, 0x008D010004420220L,
+			0x4040001068D30401L, 0x0000010450020204L,
+			0x0802101010008881L, 0x08202000A1010022L };
+
+	// Squares attacked by a knight or a king on each square
+	public static final long[] KNIGHT_ATTACKS = new long[64];
+	public static final long[] KING_ATTACKS = new long[64];
+
+	// Every square in a direction from each square, not including it
+	public static final long[][] RAYS = new long[8][64];
+
+	// Relevant blocker squares, shifts and attack tables for sliders
+	private static final long[] ROOK_MASKS = new long[64];
+	private static final long[] BISHOP_MASKS = new long[64];
+	private static final int[] ROOK_SHIFTS = new int[64];
+	private static final int[] BISHOP_SHIFTS = new int[64];
+	private static final long[][] ROOK_TABLE = new long[64][];
+	private static final long[][] BISHOP_TABLE = new long[64][];
+
+	static {
+		for (int square = 0; square < 64; square++) {
+			int row = square / 8;
+			int col = square % 8;
+
+			// Knights and kings
+			for (int[] step : KNIGHT_STEPS)
+				KNIGHT_ATTACKS[square] |= bit(row + step[0], col + step[1]);
+
+			for (int[] step : DIRECTIONS)
+				KING_ATTACKS[square] |= bit(row + step[0], col + step[1]);
+
+			// Rays
+			for (int d = 0; d < DIRECTIONS.length; d++)
+				RAYS[d][square] = slide(square, d, d + 1, 0L);
+
+			// Sliders
+			ROOK_MASKS[square] = blockerMask(square, UP);
+			BISHOP_MASKS[square] = blockerMask(square, UP_LEFT);
+			ROOK_SHIFTS[square] = 64 - Long.bitCount(ROOK_MASKS[square]);
+			BISHOP_SHIFTS[square] = 64 - Long.bitCount(BISHOP_MASKS[square]);
+			ROOK_TABLE[square] = fillTable(square, ROOK_MASKS[square],
+					ROOK_MAGICS[square], ROOK_SHIFTS[square], UP);
+			BISHOP_TABLE[square] = fillTable(square, BISHOP_MASKS[square],
+					BISHOP_MAGICS[square], BISHOP_SHIFTS[square], UP_LEFT);
+		}
+	}
+
+	private Bitboards() {
+	}
+
+	/**
+	 * Returns the squares a rook on the given square attacks.
+	 * 
+	 * @param square
+	 * @param occupied
+	 *            every occupied square on the board
+	 * @return attacked squares, including the first blocker in each direction
+	 */
+	public static long rookAttacks(int square, long occupied) {
+		long blockers = occupied & ROOK_MASKS[square];
+		return ROOK_TABLE[square][(int) ((blockers * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+	}
+
+	/**
+	 * Returns the squares a bishop on the given square attacks.
+	 * 
+	 * @param square
+	 * @param occupied
+	 *            every occupied square on the board
+	 * @return attacked squares, including the first blocker in each direction
+	 */
+	public static long bishopAttacks(int square, long occupied) {
+		long blockers = occupied & BISHOP_MASKS[square];
+		return BISHOP_TABLE[square][(int) ((blockers * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+	}
+
+	/**
+	 * Returns the squares a queen on the given square attacks.
+	 * 
+	 * @param square
+	 * @param occupied
+	 * @return attacked squares
+	 */
+	public static long queenAttacks(int square, long occupied) {
+		return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+	}
+
+	/**
+	 * Finds the first occupied square in a direction from a square.
+	 * 
+	 * @param square
+	 * @param direction
+	 *            one of the direction constants
+	 * @param occupied
+	 * @return the square index, or -1 if the ray runs off the board
+	 */
+	public static int firstBlocker(int square, int direction, long occupied) {
+		long blockers = RAYS[direction][square] & occupied;
+		if (blockers == 0)
+			return -1;
+
+		// Rays that go to higher indices meet their lowest bit first
+		int[] step = DIRECTIONS[direction];
+		if (step[0] * 8 + step[1] > 0)
+			return Long.numberOfTrailingZeros(blockers);
+		else
+			return 63 - Long.numberOfLeadingZeros(blockers);
+	}
+
+	/**
+	 * Returns the bit for a position, or 0 if it is off the board.
+	 * 
+	 * @param row
+	 * @param col
+	 * @return bit
+	 */
+	private static long bit(int row, int col) {
+		if (row < 0 || row > 7 || col < 0 || col > 7)
+			return 0L;
+
+		return 1L << (row * 8 + col);
+	}
+
+	/**
+	 * Slides from a square in the directions [first, last), stopping on the
+	 * first occupied square in each.
+	 * 
+	 * @param square
+	 * @param first
+	 * @param last
+	 * @param occupied
+	 * @return squares reached
+	 */
+	private static long slide(int square, int first, int last, long occupied) {
+		long attacks = 0L;
+
+		for (int d = first; d < last; d++) {
+			int row = square / 8 + DIRECTIONS[d][0];
+			int col = square % 8 + DIRECTIONS[d][1];
+
+			while (row >= 0 && row < 8 && col >= 0 && col < 8) {
+				long b = 1L << (row * 8 + col);
+				attacks |= b;
+
+				if ((occupied & b) != 0)
+					break;
+
+				row += DIRECTIONS[d][0];
+				col += DIRECTIONS[d][1];
+			}
+		}
+
+		return attacks;
+	}
+
+	/**
+	 * The squares whose occupancy matters for a slider: its rays without the
+	 * last square on each, since nothing lies behind the edge.
+	 * 
+	 * @param square
+	 * @param first
+	 *            UP for rooks, UP_LEFT for bishops
+	 * @return mask
+	 */
+	private static long blockerMask(int square, int first) {
+		long mask = 0L;
+
+		for (int d = first; d < first + 4; d++) {
+			int row = square / 8 + DIRECTIONS[d][0];
+			int col = square % 8 + DIRECTIONS[d][1];
+
+			while (row + DIRECTIONS[d][0] >= 0 && row + DIRECTIONS[d][0] < 8
+					&& col + DIRECTIONS[d][1] >= 0
+					&& col + DIRECTIONS[d][1] < 8) {
+				mask |= 1L << (row * 8 + col);
+				row += DIRECTIONS[d][0];
+				col += DIRECTIONS[d][1];
+			}
+		}
+
+		return mask;
+	}
+
+	/**
+	 * Builds the attack table of a slider on one square by walking every
+	 * subset of its blocker mask.
+	 * 
+	 * @param square
+	 * @param mask
+	 * @param magic
+	 * @param shift
+	 * @param first
+	 * @return table indexed by (blockers * magic) >>> shift
+	 */
+	private static long[] fillTable(int square, long mask, long magic,
+			int shift, int first) {
+		long[] table = new long[1 << (64 - shift)];
+
+		long blockers = 0L;
+		do {
+			int index = (int) ((blockers * magic) >>> shift);
+			table[index] = slide(square, first, first + 4, blockers);
+
+			// Next subset of the mask
+			blockers = (blockers - mask) & mask;
+		} while (blockers != 0);
+
+		return table;
+	}
+}
@@ -0,0 +1,89 @@
+package chess;
+
+import java.util.Random;
+
+import models.Game;
+import models.Move;
+import engine.GameEngine;
+
+/**
+ * The class that implements GameEngine by playing from an opening book while
+ * the game is in its opening, and searching with another engine once the book
+ * has nothing to say.
+ * 
+ * @author denniscui
+ * 
+ */
+public class BookEngine extends GameEngine {
+
+	private OpeningBook book;
+	private GameEngine fallback;
+	private Random random = new Random();
+
+	// Whether the last move came from the book
+	private boolean bookMove;
+
+	/**
+	 * Creates an engine.
+	 * 
+	 * @param book
+	 * @param fallback
+	 *            engine for positions that aren't in the book
+	 */
+	public BookEngine(OpeningBook book, GameEngine fallback) {
+		this.book = book;
+		this.fallback = fallback;
+	}
+
+	public Move getMove(Game g) {
+		Move m = bookMove(g);
+		return m != null ? m : fallback.getMove(g);
+	}
+
+	public Move getMove(Game g, long budgetMillis) {
+		Move m = bookMove(g);
+		return m != null ? m : fallback.getMove(g, budgetMillis);
+	}
+
+	public void ponder(Game g) {
+		fallback.ponder(g);
+	}
+
+	public void stopPondering() {
+		fallback.stopPondering();
+	}
+
+	private Move bookMove(Game g) {
+		Move m = g.evaluateState() == Game.IN_OPENING ? book.getMove(g, random)
+				: null;
+		bookMove = m != null;
+		return m;
+	}
+
+	/**
+	 * Sets where the choice between book moves comes from, to make it
+	 * repeatable.
+	 * 
+	 * @param random
+	 */
+	public void setRandom(Random random) {
+		this.random = random;
+	}
+
+	/**
+	 * Checks if the last move came from the book rather than a search.
+	 * 
+	 * @return bookMove
+	 */
+	public boolean isBookMove() {
+		return bookMove;
+	}
+
+	public OpeningBook getBook() {
+		return book;
+	}
+
+	public GameEngine getFallback() {
+		return fallback;
+	}
+}
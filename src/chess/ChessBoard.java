@@ -10,9 +10,153 @@ import models.Piece;
 
 public class ChessBoard extends Board {
 
+	// Piece types in bitboard order. White (lowercase) first, then black.
+	public static final String TYPES = "pnbrqkPNBRQK";
+
+	// Index of each piece kind within a player's six bitboards
+	public static final int PAWN = 0;
+	public static final int KNIGHT = 1;
+	public static final int BISHOP = 2;
+	public static final int ROOK = 3;
+	public static final int QUEEN = 4;
+	public static final int KING = 5;
+
+	// Index in TYPES of each piece code
+	private static final int[] INDICES = new int[128];
+
+	static {
+		for (int i = 0; i < TYPES.length(); i++)
+			INDICES[Piece.encode(TYPES.charAt(i), i / 6)] = i;
+	}
+
+	// One bitboard per piece type, indexed like TYPES
+	private long[] bitboards;
+
+	// Squares occupied by each player
+	private long[] occupancy;
+
+	// Piece scores for each type on each square, in the middle game and in
+	// the end game, indexed like TYPES
+	private static final int[][] SCORES = new int[TYPES.length()][64];
+	private static final int[][] ENDING_SCORES = new int[TYPES.length()][64];
+
+	static {
+		for (int i = 0; i < TYPES.length(); i++) {
+			String type = TYPES.substring(i, i + 1);
+			for (int square = 0; square < 64; square++) {
+				SCORES[i][square] = ChessGame.scorePiece(type, square / 8,
+						square % 8, false);
+				ENDING_SCORES[i][square] = ChessGame.scorePiece(type,
+						square / 8, square % 8, true);
+			}
+		}
+	}
+
+	// Sums of the piece scores, kept up to date as pieces come and go
+	private int score;
+	private int endingScore;
+
 	public ChessBoard(int rows, int cols, ArrayList<Piece> pieces) {
-		super(rows, cols, pieces);
-		// TODO Auto-generated constructor stub
+		super(rows, cols);
+
+		bitboards = new long[TYPES.length()];
+		occupancy = new long[2];
+
+		for (Piece p : pieces)
+			this.addPiece(p);
+	}
+
+	/**
+	 * Keeps the bitboards and scores in step with the matrix.
+	 */
+	@Override
+	protected void setSquare(int row, int col, byte code) {
+		int square = row * 8 + col;
+		long bit = 1L << square;
+
+		byte previous = getCode(row, col);
+		if (previous != Piece.NONE) {
+			int index = INDICES[previous];
+			bitboards[index] &= ~bit;
+			occupancy[index / 6] &= ~bit;
+			score -= SCORES[index][square];
+			endingScore -= ENDING_SCORES[index][square];
+		}
+
+		if (code != Piece.NONE) {
+			int index = INDICES[code];
+			bitboards[index] |= bit;
+			occupancy[index / 6] |= bit;
+			score += SCORES[index][square];
+			endingScore += ENDING_SCORES[index][square];
+		}
+
+		super.setSquare(row, col, code);
+	}
+
+	/**
+	 * Returns the bitboard of one kind of piece.
+	 * 
+	 * @param player
+	 * @param kind
+	 *            PAWN, KNIGHT, BISHOP, ROOK, QUEEN or KING
+	 * @return bitboard, square = row * 8 + col
+	 */
+	public long getBitboard(int player, int kind) {
+		return bitboards[player * 6 + kind];
+	}
+
+	/**
+	 * Returns the squares occupied by a player.
+	 * 
+	 * @param player
+	 * @return bitboard
+	 */
+	public long getOccupancy(int player) {
+		return occupancy[player];
+	}
+
+	/**
+	 * Returns every occupied square.
+	 * 
+	 * @return bitboard
+	 */
+	public long getOccupancy() {
+		return occupancy[0] | occupancy[1];
+	}
+
+	/**
+	 * Returns the sum of the middle game scores of the pieces on the board,
+	 * positive for the maximizing player.
+	 * 
+	 * @return score
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * Returns the sum of the end game scores of the pieces on the board.
+	 * 
+	 * @return endingScore
+	 */
+	public int getEndingScore() {
+		return endingScore;
+	}
+
+	/**
+	 * Builds a piece from the code stored on a square.
+	 * 
+	 * @param row
+	 * @param col
+	 * @return the piece, or null if the square is empty
+	 */
+	public Piece getMatrixPiece(int row, int col) {
+		byte code = getCode(row, col);
+		if (code == Piece.NONE)
+			return null;
+
+		return new Piece(code, Point.valueOf(row, col));
 	}
 
 	@Override
@@ -22,8 +166,7 @@ public class ChessBoard extends Board {
 
 		int deltaY = move.getStart().getY() - p.getPosition().getY();
 
-		if ((p.getType().equals("k") || p.getType().equals("K"))
-				&& Math.abs(deltaY) == 2)
+		if ((p.getKind() == 'k' || p.getKind() == 'K') && Math.abs(deltaY) == 2)
 			return handleCastle(move);
 
 		// Remove all affected pieces
@@ -58,7 +201,7 @@ public class ChessBoard extends Board {
 
 				// And add it back in the new position
 				// Rook moves 3 spaces to the right
-				Point newPos = new Point(piece.getPosition().getX(), piece
+				Point newPos = Point.valueOf(piece.getPosition().getX(), piece
 						.getPosition().getY() + 3);
 				this.addPiece(new Piece(piece.getType(), newPos, piece
 						.getPlayer()));
@@ -78,7 +221,7 @@ public class ChessBoard extends Board {
 
 				// And add it back in the new position
 				// Rook moves 2 spaces to the left
-				Point newPos = new Point(piece.getPosition().getX(), piece
+				Point newPos = Point.valueOf(piece.getPosition().getX(), piece
 						.getPosition().getY() - 2);
 				this.addPiece(new Piece(piece.getType(), newPos, piece
 						.getPlayer()));
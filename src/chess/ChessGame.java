@@ -1,10 +1,6 @@
 package chess;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-
-import checkers.CheckersBoard;
-import checkers.CheckersGame;
 
 import utils.Point;
 import utils.Vector;
@@ -174,17 +170,19 @@ public class ChessGame extends Game {
 
 	@Override
 	public int[] hasEnded() {
-		// First check for a win
-		boolean wKing = false;
-		boolean bKing = false;
+		// Without both kings the game is over, so don't generate the moves
+		if (!hasKing(Game.MINIMIZING_PLAYER)
+				|| !hasKing(Game.MAXIMIZING_PLAYER))
+			return hasEnded(new ArrayList<Move>());
 
-		for (Piece p : getBoard().getPieces()) {
-			if (p.getType().equals("k"))
-				wKing = true;
+		return hasEnded(getAvailableMoves());
+	}
 
-			if (p.getType().equals("K"))
-				bKing = true;
-		}
+	@Override
+	public int[] hasEnded(ArrayList<Move> availableMoves) {
+		// First check for a win
+		boolean wKing = hasKing(Game.MINIMIZING_PLAYER);
+		boolean bKing = hasKing(Game.MAXIMIZING_PLAYER);
 
 		if (bKing == false) {
 			int[] state = new int[] { Game.WIN, Game.MINIMIZING_PLAYER };
@@ -197,7 +195,7 @@ public class ChessGame extends Game {
 		}
 
 		// Now check for tie
-		if (getAvailableMoves().size() == 0) {
+		if (availableMoves.size() == 0) {
 			int[] state = new int[] { Game.DRAW };
 			onGameEnded(state);
 			return state;
@@ -209,11 +207,31 @@ public class ChessGame extends Game {
 		return new int[] { Game.NONE };
 	}
 
+	/**
+	 * Checks if a player's king is still on the board.
+	 * 
+	 * @param player
+	 * @return true if the king has not been taken
+	 */
+	private boolean hasKing(int player) {
+		if (getBoard() instanceof ChessBoard)
+			return ((ChessBoard) getBoard()).getBitboard(player,
+					ChessBoard.KING) != 0;
+
+		String type = player == Game.MINIMIZING_PLAYER ? "k" : "K";
+		for (Piece p : getBoard().getPieces()) {
+			if (p.getType().equals(type))
+				return true;
+		}
+
+		return false;
+	}
+
 	@Override
 	public boolean makeMove(Move m) {
 
 		// Check for castling ability
-		if (m.getPiece().getType().equals("k")) {
+		if (m.getPiece().getKind() == 'k') {
 			int deltaY = m.getStart().getY() - m.getEnd().getY();
 
 			// If this is a castle
@@ -222,7 +240,7 @@ public class ChessGame extends Game {
 
 			wCanCastleQueenSide = false;
 			wCanCastleKingSide = false;
-		} else if (m.getPiece().getType().equals("K")) {
+		} else if (m.getPiece().getKind() == 'K') {
 			int deltaY = m.getStart().getY() - m.getEnd().getY();
 
 			// If this is a castle
@@ -231,18 +249,30 @@ public class ChessGame extends Game {
 
 			bCanCastleQueenSide = false;
 			bCanCastleKingSide = false;
-		} else if (m.getPiece().getType().equals("r")) {
-			if (m.getPiece().getPosition().equals(new Point(7, 0)))
+		} else if (m.getPiece().getKind() == 'r') {
+			if (m.getPiece().getPosition().equals(Point.valueOf(7, 0)))
 				wCanCastleQueenSide = false;
-			else if (m.getPiece().getPosition().equals(new Point(7, 7)))
+			else if (m.getPiece().getPosition().equals(Point.valueOf(7, 7)))
 				wCanCastleKingSide = false;
-		} else if (m.getPiece().getType().equals("R")) {
-			if (m.getPiece().getPosition().equals(new Point(0, 0)))
+		} else if (m.getPiece().getKind() == 'R') {
+			if (m.getPiece().getPosition().equals(Point.valueOf(0, 0)))
 				bCanCastleQueenSide = false;
-			else if (m.getPiece().getPosition().equals(new Point(0, 7)))
+			else if (m.getPiece().getPosition().equals(Point.valueOf(0, 7)))
 				bCanCastleKingSide = false;
 		}
 
+		// A rook taken on its corner can't castle either. Otherwise the castle
+		// would remove whatever took it from the matrix but not the list.
+		Point end = m.getEnd();
+		if (end.equals(Point.valueOf(7, 0)))
+			wCanCastleQueenSide = false;
+		else if (end.equals(Point.valueOf(7, 7)))
+			wCanCastleKingSide = false;
+		else if (end.equals(Point.valueOf(0, 0)))
+			bCanCastleQueenSide = false;
+		else if (end.equals(Point.valueOf(0, 7)))
+			bCanCastleKingSide = false;
+
 		return super.makeMove(m);
 	}
 
@@ -259,27 +289,200 @@ public class ChessGame extends Game {
 		return Game.IN_MIDDLE;
 	}
 
+	@Override
+	protected int getStateFlags() {
+		int flags = 0;
+		flags |= wCanCastleQueenSide ? 1 : 0;
+		flags |= wCanCastleKingSide ? 2 : 0;
+		flags |= bCanCastleQueenSide ? 4 : 0;
+		flags |= bCanCastleKingSide ? 8 : 0;
+		flags |= wCastled ? 16 : 0;
+		flags |= bCastled ? 32 : 0;
+		return flags;
+	}
+
+	@Override
+	protected void setStateFlags(int flags) {
+		wCanCastleQueenSide = (flags & 1) != 0;
+		wCanCastleKingSide = (flags & 2) != 0;
+		bCanCastleQueenSide = (flags & 4) != 0;
+		bCanCastleKingSide = (flags & 8) != 0;
+		wCastled = (flags & 16) != 0;
+		bCastled = (flags & 32) != 0;
+	}
+
 	@Override
 	public Game clone() {
-		Board clonedBoard = new CheckersBoard(getRules().getRows(), getRules()
+		Board clonedBoard = new ChessBoard(getRules().getRows(), getRules()
 				.getCols(), (ArrayList<Piece>) getBoard().getPieces().clone());
 
-		String[][] newMatrix = new String[getRules().getRows()][getRules()
-				.getCols()];
-		for (int r = 0; r < getRules().getRows(); r++) {
-			for (int c = 0; c < getRules().getCols(); c++) {
-				newMatrix[r][c] = getBoard().getMatrix()[r][c];
-			}
-		}
+		clonedBoard.setSquares(getBoard().getSquares());
+
+		ChessGame clonedGame = new ChessGame(this.getId(), clonedBoard,
+				this.getRules(), this.getTurn(),
+				(ArrayList<Move>) this.getMoves().clone());
 
-		clonedBoard.setMatrix(newMatrix);
+		// Keep the castling rights
+		clonedGame.setStateFlags(getStateFlags());
 
-		return new ChessGame(this.getId(), clonedBoard, this.getRules(),
-				this.getTurn(), (ArrayList<Move>) this.getMoves().clone());
+		return clonedGame;
 	}
 
 	@Override
 	public int scoreGame() {
+		if (!(getBoard() instanceof ChessBoard))
+			return scoreGameByScan();
+
+		ChessBoard board = (ChessBoard) getBoard();
+
+		// The board keeps the piece values and square tables
+		int baseScore = evaluateState() == Game.IN_ENDING ? board
+				.getEndingScore() : board.getScore();
+
+		baseScore += scoreCastling();
+
+		// Reward for keeping 2 bishops and 2 knights
+		if (Long.bitCount(board.getBitboard(Game.MINIMIZING_PLAYER,
+				ChessBoard.BISHOP)) >= 2)
+			baseScore -= 10;
+
+		if (Long.bitCount(board.getBitboard(Game.MAXIMIZING_PLAYER,
+				ChessBoard.BISHOP)) >= 2)
+			baseScore += 10;
+
+		if (Long.bitCount(board.getBitboard(Game.MINIMIZING_PLAYER,
+				ChessBoard.KNIGHT)) >= 2)
+			baseScore -= 10;
+
+		if (Long.bitCount(board.getBitboard(Game.MAXIMIZING_PLAYER,
+				ChessBoard.KNIGHT)) >= 2)
+			baseScore += 10;
+
+		if (CHECK_EVALUATION && baseScore != scoreGameByScan())
+			throw new IllegalStateException("Incremental score " + baseScore
+					+ " but full score " + scoreGameByScan());
+
+		return baseScore;
+	}
+
+	/**
+	 * Penalizes each side for losing the right to castle without castling.
+	 * 
+	 * @return score
+	 */
+	private int scoreCastling() {
+		int baseScore = 0;
+
+		// Penalize for not being able to castle
+		if ((!wCanCastleQueenSide && !wCanCastleKingSide) && !wCastled) {
+			baseScore += 50;
+		} else if ((!wCanCastleQueenSide || !wCanCastleKingSide) && !wCastled) {
+			baseScore += 20;
+		}
+
+		if ((!bCanCastleQueenSide && !bCanCastleKingSide) && !bCastled) {
+			baseScore -= 50;
+		} else if ((!bCanCastleQueenSide || !bCanCastleKingSide) && !bCastled) {
+			baseScore -= 20;
+		}
+
+		return baseScore;
+	}
+
+	/**
+	 * Scores a single piece on a square the way scoreGame does, not counting
+	 * the bonus for pairs of bishops and knights.
+	 * 
+	 * @param type
+	 * @param row
+	 * @param col
+	 * @param ending
+	 *            true to score as in the end game
+	 * @return score, positive for the maximizing player
+	 */
+	public static int scorePiece(String type, int row, int col, boolean ending) {
+		int tempScore = 0;
+
+		switch (type.charAt(0)) {
+		case 'p':
+			tempScore += PAWN_VALUE + WHITE_PAWN_TABLE[row][col];
+			break;
+		case 'P':
+			tempScore += PAWN_VALUE + BLACK_PAWN_TABLE[row][col];
+			break;
+		case 'n':
+			tempScore += KNIGHT_VALUE + WHITE_KNIGHT_TABLE[row][col];
+			break;
+		case 'N':
+			tempScore += KNIGHT_VALUE + BLACK_KNIGHT_TABLE[row][col];
+			break;
+		case 'b':
+			tempScore += BISHOP_VALUE + WHITE_BISHOP_TABLE[row][col];
+			break;
+		case 'B':
+			tempScore += BISHOP_VALUE + BLACK_BISHOP_TABLE[row][col];
+			break;
+		case 'r':
+			tempScore += ROOK_VALUE + WHITE_ROOK_TABLE[row][col];
+			break;
+		case 'R':
+			tempScore += ROOK_VALUE + BLACK_ROOK_TABLE[row][col];
+			break;
+		case 'q':
+			tempScore += QUEEN_VALUE + WHITE_QUEEN_TABLE[row][col];
+			break;
+		case 'Q':
+			tempScore += QUEEN_VALUE + BLACK_QUEEN_TABLE[row][col];
+			break;
+		case 'k':
+			tempScore += KING_VALUE
+					+ (ending ? WHITE_KING_TABLE_END[row][col]
+							: WHITE_KING_TABLE[row][col]);
+			break;
+		case 'K':
+			tempScore += KING_VALUE
+					+ (ending ? BLACK_KING_TABLE_END[row][col]
+							: BLACK_KING_TABLE[row][col]);
+			break;
+		}
+
+		// Pawns on the sides are worth less because they can only attack in
+		// 1 direction
+		if ((type.equals("p") || type.equals("P")) && (col == 0 || col == 7))
+			tempScore -= 15;
+
+		// Bishops are better in end phase
+		if (ending && (type.equals("b") || type.equals("B")))
+			tempScore += 10;
+
+		return type.charAt(0) < 95 ? tempScore : -1 * tempScore;
+	}
+
+	@Override
+	public int getPieceValue(Piece p) {
+		switch (Character.toLowerCase(p.getKind())) {
+		case 'p':
+			return PAWN_VALUE;
+		case 'n':
+			return KNIGHT_VALUE;
+		case 'b':
+			return BISHOP_VALUE;
+		case 'r':
+			return ROOK_VALUE;
+		case 'q':
+			return QUEEN_VALUE;
+		default:
+			return KING_VALUE;
+		}
+	}
+
+	/**
+	 * Scores the game by walking every piece, without the scores kept by the
+	 * board. Used to check scoreGame.
+	 * 
+	 * @return score
+	 */
+	public int scoreGameByScan() {
 		int baseScore = 0;
 
 		int wBishopCount = 0;
@@ -291,7 +494,7 @@ public class ChessGame extends Game {
 			Point pos = p.getPosition();
 			int tempScore = 0;
 			// If it's a pawn
-			if (p.getType().equals("p") || p.getType().equals("P")) {
+			if (p.getKind() == 'p' || p.getKind() == 'P') {
 				tempScore += PAWN_VALUE;
 
 				// Pawns on the sides are worth less because they can only
@@ -299,37 +502,37 @@ public class ChessGame extends Game {
 				if (p.getPosition().getY() == 0 || p.getPosition().getY() == 7) {
 					tempScore -= 15;
 				}
-				if (p.getType().equals("p"))
+				if (p.getKind() == 'p')
 					tempScore += WHITE_PAWN_TABLE[pos.getX()][pos.getY()];
 				else
 					tempScore += BLACK_PAWN_TABLE[pos.getX()][pos.getY()];
 			}
 			// If it's a knight
-			else if (p.getType().equals("n") || p.getType().equals("N")) {
+			else if (p.getKind() == 'n' || p.getKind() == 'N') {
 				tempScore += KNIGHT_VALUE;
 
-				if (p.getType().equals("n"))
+				if (p.getKind() == 'n')
 					tempScore += WHITE_KNIGHT_TABLE[pos.getX()][pos.getY()];
 				else
 					tempScore += BLACK_KNIGHT_TABLE[pos.getX()][pos.getY()];
 
 				// Count the number of knights
-				if (p.getType().equals("n"))
+				if (p.getKind() == 'n')
 					wKnightCount++;
 				else
 					bKnightCount++;
 			}
 			// If it's a bishop
-			else if (p.getType().equals("b") || p.getType().equals("B")) {
+			else if (p.getKind() == 'b' || p.getKind() == 'B') {
 				tempScore += BISHOP_VALUE;
 
-				if (p.getType().equals("b"))
+				if (p.getKind() == 'b')
 					tempScore += WHITE_BISHOP_TABLE[pos.getX()][pos.getY()];
 				else
 					tempScore += BLACK_BISHOP_TABLE[pos.getX()][pos.getY()];
 
 				// Count the number of bishops
-				if (p.getType().equals("b"))
+				if (p.getKind() == 'b')
 					wBishopCount++;
 				else
 					bBishopCount++;
@@ -339,19 +542,19 @@ public class ChessGame extends Game {
 					tempScore += 10;
 			}
 			// If it's a rook
-			else if (p.getType().equals("r") || p.getType().equals("R")) {
+			else if (p.getKind() == 'r' || p.getKind() == 'R') {
 				tempScore += ROOK_VALUE;
 
-				if (p.getType().equals("r"))
+				if (p.getKind() == 'r')
 					tempScore += WHITE_ROOK_TABLE[pos.getX()][pos.getY()];
 				else
 					tempScore += BLACK_ROOK_TABLE[pos.getX()][pos.getY()];
 			}
 			// If it's a queen
-			else if (p.getType().equals("q") || p.getType().equals("Q")) {
+			else if (p.getKind() == 'q' || p.getKind() == 'Q') {
 				tempScore += QUEEN_VALUE;
 
-				if (p.getType().equals("q"))
+				if (p.getKind() == 'q')
 					tempScore += WHITE_QUEEN_TABLE[pos.getX()][pos.getY()];
 				else
 					tempScore += BLACK_QUEEN_TABLE[pos.getX()][pos.getY()];
@@ -361,14 +564,14 @@ public class ChessGame extends Game {
 				// Two different tables depending on how far the game has
 				// progressed
 				if (evaluateState() == Game.IN_ENDING) {
-					if (p.getType().equals("k"))
+					if (p.getKind() == 'k')
 						tempScore += WHITE_KING_TABLE_END[pos.getX()][pos
 								.getY()];
 					else
 						tempScore += BLACK_KING_TABLE_END[pos.getX()][pos
 								.getY()];
 				} else {
-					if (p.getType().equals("k"))
+					if (p.getKind() == 'k')
 						tempScore += WHITE_KING_TABLE[pos.getX()][pos.getY()];
 					else
 						tempScore += BLACK_KING_TABLE[pos.getX()][pos.getY()];
@@ -380,18 +583,7 @@ public class ChessGame extends Game {
 					: -1 * tempScore;
 		}
 
-		// Penalize for not being able to castle
-		if ((!wCanCastleQueenSide && !wCanCastleKingSide) && !wCastled) {
-			baseScore += 50;
-		} else if ((!wCanCastleQueenSide || !wCanCastleKingSide) && !wCastled) {
-			baseScore += 20;
-		}
-
-		if ((!bCanCastleQueenSide && !bCanCastleKingSide) && !bCastled) {
-			baseScore -= 50;
-		} else if ((!bCanCastleQueenSide || !bCanCastleKingSide) && !bCastled) {
-			baseScore -= 20;
-		}
+		baseScore += scoreCastling();
 
 		// Reward for keeping 2 bishops and 2 knights
 		if (wBishopCount >= 2)
@@ -411,6 +603,237 @@ public class ChessGame extends Game {
 
 	@Override
 	public ArrayList<Move> getAvailableMoves() {
+		if (getBoard() instanceof ChessBoard)
+			return generateMoves((ChessBoard) getBoard());
+
+		return getAvailableMovesByScan();
+	}
+
+	/**
+	 * Generates the available moves from the bitboards. Produces the same
+	 * moves as getAvailableMovesByScan, grouped by piece kind instead of in
+	 * piece list order.
+	 * 
+	 * @param board
+	 * @return available moves
+	 */
+	private ArrayList<Move> generateMoves(ChessBoard board) {
+		ArrayList<Move> availableMoves = new ArrayList<Move>();
+
+		int player = getTurn();
+		long own = board.getOccupancy(player);
+		long enemy = board.getOccupancy(1 - player);
+		long occupied = own | enemy;
+
+		// Pawns
+		int forward = player == Game.MINIMIZING_PLAYER ? -1 : 1;
+		int homeRow = player == Game.MINIMIZING_PLAYER ? 6 : 1;
+		long pawns = board.getBitboard(player, ChessBoard.PAWN);
+		while (pawns != 0) {
+			int square = Long.numberOfTrailingZeros(pawns);
+			pawns &= pawns - 1;
+
+			int row = square / 8;
+			int col = square % 8;
+			int endRow = row + forward;
+
+			// Pawns on the last row have nowhere to go
+			if (endRow < 0 || endRow > 7)
+				continue;
+
+			Piece p = board.getMatrixPiece(row, col);
+			Point start = p.getPosition();
+
+			// One step forward
+			if ((occupied & (1L << (endRow * 8 + col))) == 0) {
+				Point end = Point.valueOf(endRow, col);
+				boolean isPromotion = endRow == 0 || endRow == 7;
+				availableMoves.add(new Move(new Piece(p.getType(), end, p
+						.getPlayer()), start, end, new ArrayList<Piece>(),
+						true, isPromotion));
+
+				// Two steps forward from the home row
+				if (row == homeRow
+						&& (occupied & (1L << ((row + 2 * forward) * 8 + col))) == 0) {
+					end = Point.valueOf(row + 2 * forward, col);
+					availableMoves.add(new Move(new Piece(p.getType(), end, p
+							.getPlayer()), start, end));
+				}
+			}
+
+			// Captures
+			for (int side = -1; side <= 1; side += 2) {
+				int endCol = col + side;
+				if (endCol < 0 || endCol > 7
+						|| (enemy & (1L << (endRow * 8 + endCol))) == 0)
+					continue;
+
+				Point end = Point.valueOf(endRow, endCol);
+				ArrayList<Piece> affected = new ArrayList<Piece>();
+				affected.add(board.getMatrixPiece(endRow, endCol));
+
+				boolean isPromotion = endRow == 0 || endRow == 7;
+				availableMoves.add(new Move(new Piece(p.getType(), end, p
+						.getPlayer()), start, end, affected, true, isPromotion));
+			}
+		}
+
+		// Knights
+		long knights = board.getBitboard(player, ChessBoard.KNIGHT);
+		while (knights != 0) {
+			int square = Long.numberOfTrailingZeros(knights);
+			knights &= knights - 1;
+
+			addTargets(board, availableMoves, square,
+					Bitboards.KNIGHT_ATTACKS[square] & ~own, enemy, false);
+		}
+
+		// Bishops, rooks and queens
+		long sliders = board.getBitboard(player, ChessBoard.BISHOP)
+				| board.getBitboard(player, ChessBoard.ROOK)
+				| board.getBitboard(player, ChessBoard.QUEEN);
+		long bishops = board.getBitboard(player, ChessBoard.BISHOP);
+		long rooks = board.getBitboard(player, ChessBoard.ROOK);
+		while (sliders != 0) {
+			int square = Long.numberOfTrailingZeros(sliders);
+			long bit = sliders & -sliders;
+			sliders &= sliders - 1;
+
+			long attacks;
+			if ((bishops & bit) != 0)
+				attacks = Bitboards.bishopAttacks(square, occupied);
+			else if ((rooks & bit) != 0)
+				attacks = Bitboards.rookAttacks(square, occupied);
+			else
+				attacks = Bitboards.queenAttacks(square, occupied);
+
+			addTargets(board, availableMoves, square, attacks & ~own, enemy,
+					true);
+		}
+
+		// Kings
+		long kings = board.getBitboard(player, ChessBoard.KING);
+		while (kings != 0) {
+			int square = Long.numberOfTrailingZeros(kings);
+			kings &= kings - 1;
+
+			addTargets(board, availableMoves, square,
+					Bitboards.KING_ATTACKS[square] & ~own, enemy, true);
+
+			Piece p = board.getMatrixPiece(square / 8, square % 8);
+			addCastles(board, availableMoves, p);
+		}
+
+		return availableMoves;
+	}
+
+	/**
+	 * Adds a move from a square to each of the target squares.
+	 * 
+	 * @param board
+	 * @param availableMoves
+	 * @param square
+	 * @param targets
+	 * @param enemy
+	 * @param shortQuiet
+	 *            true if quiet moves are built like the scanning generator
+	 *            builds king and slider moves
+	 */
+	private void addTargets(ChessBoard board, ArrayList<Move> availableMoves,
+			int square, long targets, long enemy, boolean shortQuiet) {
+		Piece p = board.getMatrixPiece(square / 8, square % 8);
+		Point start = p.getPosition();
+
+		while (targets != 0) {
+			int target = Long.numberOfTrailingZeros(targets);
+			long bit = targets & -targets;
+			targets &= targets - 1;
+
+			Point end = Point.valueOf(target / 8, target % 8);
+			Piece newPiece = new Piece(p.getType(), end, p.getPlayer());
+
+			if ((enemy & bit) != 0) {
+				ArrayList<Piece> affected = new ArrayList<Piece>();
+				affected.add(board.getMatrixPiece(target / 8, target % 8));
+				availableMoves.add(new Move(newPiece, start, end, affected,
+						true, false));
+			} else if (shortQuiet) {
+				availableMoves.add(new Move(newPiece, start, end));
+			} else {
+				availableMoves.add(new Move(newPiece, start, end,
+						new ArrayList<Piece>(), true, false));
+			}
+		}
+	}
+
+	/**
+	 * Adds the castling moves for a king.
+	 * 
+	 * @param board
+	 * @param availableMoves
+	 * @param p
+	 *            the king
+	 */
+	private void addCastles(ChessBoard board, ArrayList<Move> availableMoves,
+			Piece p) {
+		boolean kingSide;
+		boolean queenSide;
+		int row;
+		String rook;
+
+		if (getTurn() == Game.MINIMIZING_PLAYER) {
+			kingSide = wCanCastleKingSide;
+			queenSide = wCanCastleQueenSide;
+			row = 7;
+			rook = "r";
+		} else {
+			kingSide = bCanCastleKingSide;
+			queenSide = bCanCastleQueenSide;
+			row = 0;
+			rook = "R";
+		}
+
+		long occupied = board.getOccupancy();
+		long kingSideGap = 3L << (row * 8 + 5);
+		long queenSideGap = 7L << (row * 8 + 1);
+
+		if (kingSide && (occupied & kingSideGap) == 0
+				&& !isInCheck(p.getPosition())
+				&& !isInCheck(Point.valueOf(row, 5))
+				&& !isInCheck(Point.valueOf(row, 6))) {
+			Piece castle = new Piece(p.getType(), Point.valueOf(row, 6),
+					p.getPlayer());
+
+			ArrayList<Piece> affected = new ArrayList<Piece>();
+			affected.add(new Piece(rook, Point.valueOf(row, 7), p.getPlayer()));
+
+			availableMoves.add(new Move(castle, p.getPosition(), castle
+					.getPosition(), affected, true, false));
+		}
+
+		if (queenSide && (occupied & queenSideGap) == 0
+				&& !isInCheck(p.getPosition())
+				&& !isInCheck(Point.valueOf(row, 2))
+				&& !isInCheck(Point.valueOf(row, 3))) {
+			Piece castle = new Piece(p.getType(), Point.valueOf(row, 2),
+					p.getPlayer());
+
+			ArrayList<Piece> affected = new ArrayList<Piece>();
+			affected.add(new Piece(rook, Point.valueOf(row, 0), p.getPlayer()));
+
+			availableMoves.add(new Move(castle, p.getPosition(), castle
+					.getPosition(), affected, true, false));
+		}
+	}
+
+	/**
+	 * Generates the available moves by walking the piece list and probing the
+	 * matrix square by square. This is the original generator, kept as the
+	 * reference the bitboard generator is checked against.
+	 * 
+	 * @return available moves
+	 */
+	public ArrayList<Move> getAvailableMovesByScan() {
 		ArrayList<Move> availableMoves = new ArrayList<Move>();
 
 		// Iterate through the pieces
@@ -419,14 +842,11 @@ public class ChessGame extends Game {
 			// Make sure the piece corresponds to the current turn
 			if (p.getPlayer() == getTurn()) {
 
-				// Get the key version of this piece by setting position = null
-				Piece key = new Piece(p.getType(), null, p.getPlayer());
-				HashMap<Piece, ArrayList<Vector>> moveMap = this.getRules()
-						.getMoveMap();
-				ArrayList<Vector> moves = moveMap.get(key);
+				// The moves of this kind of piece
+				Vector[] moves = getRules().getPieceMoves(p.getCode());
 
 				// If it's a knight
-				if (p.getType().equals("n") || p.getType().equals("N")) {
+				if (p.getKind() == 'n' || p.getKind() == 'N') {
 					// Iterate through all of the moves
 					for (Vector v : moves) {
 						int startX = p.getPosition().getX();
@@ -447,8 +867,8 @@ public class ChessGame extends Game {
 								|| (piece != null && piece.getPlayer() != getTurn())) {
 
 							// Update the piece with its new location
-							Piece newPiece = new Piece(p.getType(), new Point(
-									endX, endY), p.getPlayer());
+							Piece newPiece = new Piece(p.getType(),
+									Point.valueOf(endX, endY), p.getPlayer());
 
 							// Get the affected pieces
 							ArrayList<Piece> affected = new ArrayList<Piece>();
@@ -463,7 +883,7 @@ public class ChessGame extends Game {
 					}
 				}
 				// If it's a pawn
-				else if (p.getType().equals("p") || p.getType().equals("P")) {
+				else if (p.getKind() == 'p' || p.getKind() == 'P') {
 					for (Vector v : moves) {
 						int startX = p.getPosition().getX();
 						int startY = p.getPosition().getY();
@@ -481,8 +901,8 @@ public class ChessGame extends Game {
 									&& crawl(p.getPosition(), new Vector(1, 0),
 											2) == null) {
 								// Set the new position
-								Piece newPiece = new Piece(p.getType(),
-										new Point(endX, endY), p.getPlayer());
+								Piece newPiece = new Piece(p.getType(), Point
+										.valueOf(endX, endY), p.getPlayer());
 								Move m = new Move(newPiece, p.getPosition(),
 										newPiece.getPosition());
 								availableMoves.add(m);
@@ -494,8 +914,8 @@ public class ChessGame extends Game {
 									&& crawl(p.getPosition(),
 											new Vector(-1, 0), 2) == null) {
 								// Update the piece with its new location
-								Piece newPiece = new Piece(p.getType(),
-										new Point(endX, endY), p.getPlayer());
+								Piece newPiece = new Piece(p.getType(), Point
+										.valueOf(endX, endY), p.getPlayer());
 								Move m = new Move(newPiece, p.getPosition(),
 										newPiece.getPosition());
 								availableMoves.add(m);
@@ -510,7 +930,7 @@ public class ChessGame extends Game {
 								if (getPieceInDir(p.getPosition(), v) == null) {
 									// Update the piece with its new location
 									Piece newPiece = new Piece(p.getType(),
-											new Point(endX, endY),
+											Point.valueOf(endX, endY),
 											p.getPlayer());
 
 									// Check if the pawn should be promoted
@@ -542,7 +962,7 @@ public class ChessGame extends Game {
 										&& capture.getPlayer() != getTurn()) {
 									// Update the piece with its new location
 									Piece newPiece = new Piece(p.getType(),
-											new Point(endX, endY),
+											Point.valueOf(endX, endY),
 											p.getPlayer());
 
 									// Get the affected piece
@@ -550,7 +970,7 @@ public class ChessGame extends Game {
 									affected.add(capture);
 
 									// Check if the pawn should be promoted
-									boolean isPromotion = (endY == 0 || endY == 7) ? true
+									boolean isPromotion = (endX == 0 || endX == 7) ? true
 											: false;
 
 									Move m = new Move(newPiece,
@@ -564,7 +984,7 @@ public class ChessGame extends Game {
 					}
 				}
 				// If it's a king
-				else if (p.getType().equals("k") || p.getType().equals("K")) {
+				else if (p.getKind() == 'k' || p.getKind() == 'K') {
 					for (Vector v : moves) {
 						int startX = p.getPosition().getX();
 						int startY = p.getPosition().getY();
@@ -581,15 +1001,15 @@ public class ChessGame extends Game {
 
 						if (piece == null) {
 							// Update the piece with its new location
-							Piece newPiece = new Piece(p.getType(), new Point(
-									endX, endY), p.getPlayer());
+							Piece newPiece = new Piece(p.getType(),
+									Point.valueOf(endX, endY), p.getPlayer());
 							Move m = new Move(newPiece, p.getPosition(),
 									newPiece.getPosition());
 							availableMoves.add(m);
 						} else if (piece.getPlayer() != getTurn()) {
 							// Update the piece with its new location
-							Piece newPiece = new Piece(p.getType(), new Point(
-									endX, endY), p.getPlayer());
+							Piece newPiece = new Piece(p.getType(),
+									Point.valueOf(endX, endY), p.getPlayer());
 
 							// Get the affected piece
 							ArrayList<Piece> affected = new ArrayList<Piece>();
@@ -608,20 +1028,22 @@ public class ChessGame extends Game {
 						// First castling must be legal
 						if (wCanCastleKingSide) {
 							// Then the spaces inbetween must be empty
-							if (getBoard().getMatrix()[7][5] == null
-									&& getBoard().getMatrix()[7][6] == null) {
+							if (getBoard().isEmpty(7, 5)
+									&& getBoard().isEmpty(7, 6)) {
 								// Finally we can't castle through check
-								if (!isInCheck(p.getPosition())
-										&& !isInCheck(new Point(7, 5))
-										&& !isInCheck(new Point(7, 6))) {
+								if (!isInCheckByScan(p.getPosition())
+										&& !isInCheckByScan(Point.valueOf(7, 5))
+										&& !isInCheckByScan(Point
+												.valueOf(7, 6))) {
 									// Name the new castled piece
 									Piece castle = new Piece(p.getType(),
-											new Point(7, 6), p.getPlayer());
+											Point.valueOf(7, 6), p.getPlayer());
 
 									// Get the affected piece
 									ArrayList<Piece> affected = new ArrayList<Piece>();
 									affected.add(new Piece("r",
-											new Point(7, 7), p.getPlayer()));
+											Point.valueOf(7, 7),
+											p.getPlayer()));
 
 									Move m = new Move(castle, p.getPosition(),
 											castle.getPosition(), affected,
@@ -632,20 +1054,22 @@ public class ChessGame extends Game {
 						}
 
 						if (wCanCastleQueenSide) {
-							if (getBoard().getMatrix()[7][1] == null
-									&& getBoard().getMatrix()[7][2] == null
-									&& getBoard().getMatrix()[7][3] == null) {
-								if (!isInCheck(p.getPosition())
-										&& !isInCheck(new Point(7, 2))
-										&& !isInCheck(new Point(7, 3))) {
+							if (getBoard().isEmpty(7, 1)
+									&& getBoard().isEmpty(7, 2)
+									&& getBoard().isEmpty(7, 3)) {
+								if (!isInCheckByScan(p.getPosition())
+										&& !isInCheckByScan(Point.valueOf(7, 2))
+										&& !isInCheckByScan(Point
+												.valueOf(7, 3))) {
 									// Name the new castled piece
 									Piece castle = new Piece(p.getType(),
-											new Point(7, 2), p.getPlayer());
+											Point.valueOf(7, 2), p.getPlayer());
 
 									// Get the affected piece
 									ArrayList<Piece> affected = new ArrayList<Piece>();
 									affected.add(new Piece("r",
-											new Point(7, 0), p.getPlayer()));
+											Point.valueOf(7, 0),
+											p.getPlayer()));
 
 									Move m = new Move(castle, p.getPosition(),
 											castle.getPosition(), affected,
@@ -658,19 +1082,21 @@ public class ChessGame extends Game {
 						break;
 					case 1:
 						if (bCanCastleKingSide) {
-							if (getBoard().getMatrix()[0][5] == null
-									&& getBoard().getMatrix()[0][6] == null) {
-								if (!isInCheck(p.getPosition())
-										&& !isInCheck(new Point(0, 5))
-										&& !isInCheck(new Point(0, 6))) {
+							if (getBoard().isEmpty(0, 5)
+									&& getBoard().isEmpty(0, 6)) {
+								if (!isInCheckByScan(p.getPosition())
+										&& !isInCheckByScan(Point.valueOf(0, 5))
+										&& !isInCheckByScan(Point
+												.valueOf(0, 6))) {
 									// Name the new castled piece
 									Piece castle = new Piece(p.getType(),
-											new Point(0, 6), p.getPlayer());
+											Point.valueOf(0, 6), p.getPlayer());
 
 									// Get the affected piece
 									ArrayList<Piece> affected = new ArrayList<Piece>();
 									affected.add(new Piece("R",
-											new Point(0, 7), p.getPlayer()));
+											Point.valueOf(0, 7),
+											p.getPlayer()));
 
 									Move m = new Move(castle, p.getPosition(),
 											castle.getPosition(), affected,
@@ -681,20 +1107,22 @@ public class ChessGame extends Game {
 						}
 
 						if (bCanCastleQueenSide) {
-							if (getBoard().getMatrix()[0][1] == null
-									&& getBoard().getMatrix()[0][2] == null
-									&& getBoard().getMatrix()[0][3] == null) {
-								if (!isInCheck(p.getPosition())
-										&& !isInCheck(new Point(0, 2))
-										&& !isInCheck(new Point(0, 3))) {
+							if (getBoard().isEmpty(0, 1)
+									&& getBoard().isEmpty(0, 2)
+									&& getBoard().isEmpty(0, 3)) {
+								if (!isInCheckByScan(p.getPosition())
+										&& !isInCheckByScan(Point.valueOf(0, 2))
+										&& !isInCheckByScan(Point
+												.valueOf(0, 3))) {
 									// Name the new castled piece
 									Piece castle = new Piece(p.getType(),
-											new Point(0, 2), p.getPlayer());
+											Point.valueOf(0, 2), p.getPlayer());
 
 									// Get the affected piece
 									ArrayList<Piece> affected = new ArrayList<Piece>();
 									affected.add(new Piece("R",
-											new Point(0, 0), p.getPlayer()));
+											Point.valueOf(0, 0),
+											p.getPlayer()));
 
 									Move m = new Move(castle, p.getPosition(),
 											castle.getPosition(), affected,
@@ -734,10 +1162,66 @@ public class ChessGame extends Game {
 	 * @return arraylist of pieces checking
 	 */
 	public boolean isInCheck(Point pos) {
+		if (!(getBoard() instanceof ChessBoard))
+			return isInCheckByScan(pos);
+
+		ChessBoard board = (ChessBoard) getBoard();
+		int square = pos.getX() * 8 + pos.getY();
+		int enemy = 1 - getTurn();
+		long occupied = board.getOccupancy();
+
+		// Same checks as the scan, a king a knight's move away included
+		if ((Bitboards.KNIGHT_ATTACKS[square] & board.getBitboard(enemy,
+				ChessBoard.KING)) != 0)
+			return true;
+
+		long queens = board.getBitboard(enemy, ChessBoard.QUEEN);
+		long diagonal = queens | board.getBitboard(enemy, ChessBoard.BISHOP);
+		long pawns = board.getBitboard(enemy, ChessBoard.PAWN);
+		long straight = queens | board.getBitboard(enemy, ChessBoard.ROOK);
+
+		if (firstIsIn(square, Bitboards.UP_LEFT, occupied, diagonal | pawns)
+				|| firstIsIn(square, Bitboards.DOWN_LEFT, occupied, diagonal)
+				|| firstIsIn(square, Bitboards.UP_RIGHT, occupied, diagonal
+						| pawns)
+				|| firstIsIn(square, Bitboards.DOWN_RIGHT, occupied, diagonal
+						| pawns))
+			return true;
+
+		return firstIsIn(square, Bitboards.UP, occupied, straight)
+				|| firstIsIn(square, Bitboards.DOWN, occupied, straight)
+				|| firstIsIn(square, Bitboards.LEFT, occupied, straight)
+				|| firstIsIn(square, Bitboards.RIGHT, occupied, straight);
+	}
+
+	/**
+	 * Checks whether the first piece in a direction is one of the given
+	 * pieces.
+	 * 
+	 * @param square
+	 * @param direction
+	 * @param occupied
+	 * @param pieces
+	 * @return true iff the first piece reached is in pieces
+	 */
+	private boolean firstIsIn(int square, int direction, long occupied,
+			long pieces) {
+		int blocker = Bitboards.firstBlocker(square, direction, occupied);
+		return blocker >= 0 && (pieces & (1L << blocker)) != 0;
+	}
+
+	/**
+	 * Evaluates whether the current player is in check by crawling the matrix.
+	 * Used by the scanning generator.
+	 * 
+	 * @param pos
+	 * @return true iff the position is attacked
+	 */
+	private boolean isInCheckByScan(Point pos) {
 		// King should never be null
 		Point start = pos;
-		Piece knight = new Piece("n", null, 0);
-		ArrayList<Vector> knightMoves = getRules().getMoveMap().get(knight);
+		Vector[] knightMoves = getRules().getPieceMoves(
+				Piece.encode('n', Game.MINIMIZING_PLAYER));
 
 		for (Vector v : knightMoves) {
 			Piece p = null;
@@ -748,7 +1232,7 @@ public class ChessGame extends Game {
 			}
 
 			if (p != null && p.getPlayer() != getTurn()
-					&& (p.getType().equals("k") || p.getType().equals("K")))
+					&& (p.getKind() == 'k' || p.getKind() == 'K'))
 				return true;
 		}
 
@@ -764,81 +1248,77 @@ public class ChessGame extends Game {
 		// Now we check each of them... :(
 		if (diagLeftUp != null
 				&& diagLeftUp.getPlayer() != getTurn()
-				&& (diagLeftUp.getType().equals("q")
-						|| diagLeftUp.getType().equals("Q")
-						|| diagLeftUp.getType().equals("b")
-						|| diagLeftUp.getType().equals("B")
-						|| diagLeftUp.getType().equals("p") || diagLeftUp
-						.getType().equals("P"))) {
+				&& (diagLeftUp.getKind() == 'q' || diagLeftUp.getKind() == 'Q'
+						|| diagLeftUp.getKind() == 'b'
+						|| diagLeftUp.getKind() == 'B'
+						|| diagLeftUp.getKind() == 'p'
+						|| diagLeftUp.getKind() == 'P')) {
 			return true;
 
 		}
 
 		if (diagLeftDown != null
 				&& diagLeftDown.getPlayer() != getTurn()
-				&& (diagLeftDown.getType().equals("q")
-						|| diagLeftDown.getType().equals("Q")
-						|| diagLeftDown.getType().equals("b") || diagLeftDown
-						.getType().equals("B"))) {
+				&& (diagLeftDown.getKind() == 'q'
+						|| diagLeftDown.getKind() == 'Q'
+						|| diagLeftDown.getKind() == 'b'
+						|| diagLeftDown.getKind() == 'B')) {
 			return true;
 
 		}
 
 		if (diagRightUp != null
 				&& diagRightUp.getPlayer() != getTurn()
-				&& (diagRightUp.getType().equals("q")
-						|| diagRightUp.getType().equals("Q")
-						|| diagRightUp.getType().equals("b")
-						|| diagRightUp.getType().equals("B")
-						|| diagRightUp.getType().equals("p") || diagRightUp
-						.getType().equals("P"))) {
+				&& (diagRightUp.getKind() == 'q'
+						|| diagRightUp.getKind() == 'Q'
+						|| diagRightUp.getKind() == 'b'
+						|| diagRightUp.getKind() == 'B'
+						|| diagRightUp.getKind() == 'p'
+						|| diagRightUp.getKind() == 'P')) {
 			return true;
 
 		}
 
 		if (diagRightDown != null
 				&& diagRightDown.getPlayer() != getTurn()
-				&& (diagRightDown.getType().equals("q")
-						|| diagRightDown.getType().equals("Q")
-						|| diagRightDown.getType().equals("b")
-						|| diagRightDown.getType().equals("B")
-						|| diagRightDown.getType().equals("p") || diagRightDown
-						.getType().equals("P"))) {
+				&& (diagRightDown.getKind() == 'q'
+						|| diagRightDown.getKind() == 'Q'
+						|| diagRightDown.getKind() == 'b'
+						|| diagRightDown.getKind() == 'B'
+						|| diagRightDown.getKind() == 'p'
+						|| diagRightDown.getKind() == 'P')) {
 			return true;
 
 		}
 
 		if (up != null
 				&& up.getPlayer() != getTurn()
-				&& (up.getType().equals("q") || up.getType().equals("Q")
-						|| up.getType().equals("r") || up.getType().equals("R"))) {
+				&& (up.getKind() == 'q' || up.getKind() == 'Q'
+						|| up.getKind() == 'r' || up.getKind() == 'R')) {
 			return true;
 
 		}
 
 		if (down != null
 				&& down.getPlayer() != getTurn()
-				&& (down.getType().equals("q") || down.getType().equals("Q")
-						|| down.getType().equals("r") || down.getType().equals(
-						"R"))) {
+				&& (down.getKind() == 'q' || down.getKind() == 'Q'
+						|| down.getKind() == 'r' || down.getKind() == 'R')) {
 			return true;
 
 		}
 
 		if (right != null
 				&& right.getPlayer() != getTurn()
-				&& (right.getType().equals("q") || right.getType().equals("Q")
-						|| right.getType().equals("r") || right.getType()
-						.equals("R"))) {
+				&& (right.getKind() == 'q' || right.getKind() == 'Q'
+						|| right.getKind() == 'r' || right.getKind() == 'R')) {
 			return true;
 
 		}
 
 		if (left != null
 				&& left.getPlayer() != getTurn()
-				&& (left.getType().equals("q") || left.getType().equals("Q")
-						|| left.getType().equals("r") || left.getType().equals(
-						"R"))) {
+				&& (left.getKind() == 'q' || left.getKind() == 'Q'
+						|| left.getKind() == 'r' || left.getKind() == 'R')) {
 			return true;
 
 		}
@@ -855,26 +1335,16 @@ public class ChessGame extends Game {
 	 * @return the piece we reached or null if there is none
 	 */
 	private Piece crawl(Point start, Vector dir) {
-		Piece p = null;
-		Point currentPos = new Point(start.getX(), start.getY());
-
-		try {
-			// While we haven't reached a piece and end of board
-			while (p == null) {
-
-				// Get the piece in the direction
-				p = getPieceInDir(currentPos, dir);
-
-				// Increment the current pos
-				currentPos = new Point(currentPos.getX() + dir.getDeltaX(),
-						currentPos.getY() + dir.getDeltaY());
-			}
-		} catch (IndexOutOfBoundsException e) {
-			// So we went off the board without finding anything
-			return p;
+		for (Point currentPos : getRules().getRay(start.getX(), start.getY(),
+				dir)) {
+			byte code = getBoard().getCode(currentPos.getX(),
+					currentPos.getY());
+			if (code != Piece.NONE)
+				return new Piece(code, currentPos);
 		}
 
-		return p;
+		// So we went off the board without finding anything
+		return null;
 	}
 
 	/**
@@ -890,42 +1360,35 @@ public class ChessGame extends Game {
 	private ArrayList<Move> getAllMoves(Piece piece, Point start, Vector dir) {
 		ArrayList<Move> moves = new ArrayList<Move>();
 
-		Piece p = null;
-		Point currentPos = new Point(start.getX(), start.getY());
-
-		try {
-			// While we haven't reached a piece
-			while (p == null) {
-
-				// Get the piece in the direction
-				p = getPieceInDir(currentPos, dir);
+		// While we haven't reached a piece or the end of the board
+		for (Point currentPos : getRules().getRay(start.getX(), start.getY(),
+				dir)) {
+			byte code = getBoard().getCode(currentPos.getX(),
+					currentPos.getY());
 
-				// Increment the current pos
-				currentPos = new Point(currentPos.getX() + dir.getDeltaX(),
-						currentPos.getY() + dir.getDeltaY());
+			// If the square is empty we can move there
+			if (code == Piece.NONE) {
+				Piece newPiece = new Piece(piece.getType(), currentPos,
+						piece.getPlayer());
 
-				// If the piece is null we can move there
-				if (p == null) {
-					Piece newPiece = new Piece(piece.getType(), currentPos,
-							piece.getPlayer());
+				moves.add(new Move(newPiece, start, currentPos));
+				continue;
+			}
 
-					moves.add(new Move(newPiece, start, currentPos));
-				}
-				// Else if it's an enemy we can take it
-				else if (p.getPlayer() != piece.getPlayer()) {
-					Piece newPiece = new Piece(piece.getType(), currentPos,
-							piece.getPlayer());
+			// Else if it's an enemy we can take it
+			if (Piece.playerOf(code) != piece.getPlayer()) {
+				Piece newPiece = new Piece(piece.getType(), currentPos,
+						piece.getPlayer());
 
-					// Grab affected pieces
-					ArrayList<Piece> affected = new ArrayList<Piece>();
-					affected.add(p);
+				// Grab affected pieces
+				ArrayList<Piece> affected = new ArrayList<Piece>();
+				affected.add(new Piece(code, currentPos));
 
-					moves.add(new Move(newPiece, start, currentPos, affected,
-							true, false));
-				}
+				moves.add(new Move(newPiece, start, currentPos, affected,
+						true, false));
 			}
-		} catch (IndexOutOfBoundsException e) {
-			return moves;
+
+			break;
 		}
 
 		return moves;
@@ -939,26 +1402,17 @@ public class ChessGame extends Game {
 	 * @param dir
 	 * @return the piece we reached or null if there is none
 	 */
-	private Piece crawl(Point start, Vector dir, int steps)
-			throws IndexOutOfBoundsException {
-		Piece p = null;
-		Point currentPos = new Point(start.getX(), start.getY());
-		int count = steps;
-
-		// While we haven't reached a piece and count is > 0
-		while (p == null && count > 0) {
-
-			// Get the piece in the direction
-			p = getPieceInDir(currentPos, dir);
-
-			// Increment the current pos
-			currentPos = new Point(currentPos.getX() + dir.getDeltaX(),
-					currentPos.getY() + dir.getDeltaY());
-
-			count--;
+	private Piece crawl(Point start, Vector dir, int steps) {
+		Point[] ray = getRules().getRay(start.getX(), start.getY(), dir);
+
+		// Until we reach a piece or have taken the steps
+		for (int i = 0; i < steps && i < ray.length; i++) {
+			byte code = getBoard().getCode(ray[i].getX(), ray[i].getY());
+			if (code != Piece.NONE)
+				return new Piece(code, ray[i]);
 		}
 
-		return p;
+		return null;
 	}
 
 	/**
@@ -976,14 +1430,10 @@ public class ChessGame extends Game {
 		if (!getBoard().isInBounds(endX, endY))
 			throw new IndexOutOfBoundsException();
 
-		String type = getBoard().getMatrix()[endX][endY];
-		if (type == null)
+		byte code = getBoard().getCode(endX, endY);
+		if (code == Piece.NONE)
 			return null;
-		else {
-			Point end = new Point(endX, endY);
-			return type.charAt(0) > 95 ? new Piece(type, end,
-					Game.MINIMIZING_PLAYER) : new Piece(type, end,
-					Game.MAXIMIZING_PLAYER);
-		}
+		else
+			return new Piece(code, Point.valueOf(endX, endY));
 	}
 }
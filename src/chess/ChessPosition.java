@@ -0,0 +1,112 @@
+package chess;
+
+import java.util.ArrayList;
+
+import models.Game;
+import models.Move;
+import models.Piece;
+import utils.Point;
+
+/**
+ * Reads chess positions written in Forsyth-Edwards Notation, for setting up
+ * games that don't start from the opening.
+ * 
+ * FEN lists the ranks from 8 down to 1, which are rows 0 to 7 here. White's
+ * pieces are upper case in FEN but lower case in this game. The en passant
+ * square and the move counters are read but ignored, since the game has no
+ * en passant and no fifty move rule.
+ * 
+ * @author denniscui
+ * 
+ */
+public class ChessPosition {
+
+	public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	/**
+	 * Creates a game from a FEN string.
+	 * 
+	 * @param fen
+	 * @return game in the given position
+	 * @throws IllegalArgumentException
+	 *             if the string is not valid FEN
+	 */
+	public static ChessGame parse(String fen) {
+		String[] fields = fen.trim().split("\\s+");
+		String[] ranks = fields[0].split("/");
+		if (ranks.length != 8)
+			throw new IllegalArgumentException("Expected 8 ranks: " + fen);
+
+		ArrayList<Piece> pieces = new ArrayList<Piece>();
+		for (int row = 0; row < 8; row++) {
+			int col = 0;
+			for (int i = 0; i < ranks[row].length(); i++) {
+				char c = ranks[row].charAt(i);
+
+				if (c >= '1' && c <= '8') {
+					col += c - '0';
+				} else if ("pnbrqkPNBRQK".indexOf(c) >= 0 && col < 8) {
+					// Swap the case to match this game's colours
+					boolean white = Character.isUpperCase(c);
+					String type = String.valueOf(white ? Character
+							.toLowerCase(c) : Character.toUpperCase(c));
+					pieces.add(new Piece(type, Point.valueOf(row, col),
+							white ? Game.MINIMIZING_PLAYER
+									: Game.MAXIMIZING_PLAYER));
+					col++;
+				} else {
+					throw new IllegalArgumentException("Bad rank "
+							+ ranks[row] + ": " + fen);
+				}
+			}
+
+			if (col != 8)
+				throw new IllegalArgumentException("Bad rank " + ranks[row]
+						+ ": " + fen);
+		}
+
+		int turn = Game.MINIMIZING_PLAYER;
+		if (fields.length > 1) {
+			if (fields[1].equals("b"))
+				turn = Game.MAXIMIZING_PLAYER;
+			else if (!fields[1].equals("w"))
+				throw new IllegalArgumentException("Bad side to move: " + fen);
+		}
+
+		// Flags as packed by ChessGame.getStateFlags
+		int flags = 0;
+		String castling = fields.length > 2 ? fields[2] : "-";
+		flags |= castling.indexOf('Q') >= 0 ? 1 : 0;
+		flags |= castling.indexOf('K') >= 0 ? 2 : 0;
+		flags |= castling.indexOf('q') >= 0 ? 4 : 0;
+		flags |= castling.indexOf('k') >= 0 ? 8 : 0;
+
+		ChessRules rules = new ChessRules();
+		ChessGame game = new ChessGame(Game.CHESS, new ChessBoard(
+				rules.getRows(), rules.getCols(), pieces), rules, turn,
+				new ArrayList<Move>());
+		game.setStateFlags(flags);
+
+		return game;
+	}
+
+	/**
+	 * Writes a move in coordinate notation, such as e2e4.
+	 * 
+	 * @param m
+	 * @return notation
+	 */
+	public static String toCoordinates(Move m) {
+		return square(m.getStart()) + square(m.getEnd());
+	}
+
+	/**
+	 * Names a square, such as e4.
+	 * 
+	 * @param p
+	 * @return name
+	 */
+	public static String square(Point p) {
+		return "" + (char) ('a' + p.getY()) + (char) ('8' - p.getX());
+	}
+}
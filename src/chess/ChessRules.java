@@ -29,61 +29,37 @@ public class ChessRules extends Rules {
 	}
 
 	/**
-	 * Helper function called by the constructor to setup the piece map. Capture
-	 * moves are added to the arraylist first to speed up processing.
+	 * Helper function called by the constructor to setup the piece moves.
 	 */
 	private void setupPieceMap() {
 		// ----- White starts at the "bottom" of the board -----
 
 		// Pawn
-		Piece wPawn = new Piece("p", null, 0);
-		Piece bPawn = new Piece("P", null, 1);
-
-		ArrayList<Vector> wPawnMoves = new ArrayList<Vector>();
-		ArrayList<Vector> bPawnMoves = new ArrayList<Vector>();
-
 		Vector wForwardOne = new Vector(-1, 0);
 		Vector wForwardTwo = new Vector(-2, 0);
 		Vector wCapture1 = new Vector(-1, -1);
 		Vector wCapture2 = new Vector(-1, 1);
 
-		wPawnMoves.add(wForwardOne);
-		wPawnMoves.add(wForwardTwo);
-		wPawnMoves.add(wCapture1);
-		wPawnMoves.add(wCapture2);
+		Vector[] wPawnMoves = new Vector[] { wForwardOne, wForwardTwo,
+				wCapture1, wCapture2 };
 
 		Vector bForwardOne = new Vector(1, 0);
 		Vector bForwardTwo = new Vector(2, 0);
 		Vector bCapture1 = new Vector(1, -1);
 		Vector bCapture2 = new Vector(1, 1);
 
-		bPawnMoves.add(bForwardOne);
-		bPawnMoves.add(bForwardTwo);
-		bPawnMoves.add(bCapture1);
-		bPawnMoves.add(bCapture2);
+		Vector[] bPawnMoves = new Vector[] { bForwardOne, bForwardTwo,
+				bCapture1, bCapture2 };
 
 		// Rook
-		Piece wRook = new Piece("r", null, 0);
-		Piece bRook = new Piece("R", null, 1);
-
-		ArrayList<Vector> rookMoves = new ArrayList<Vector>();
-
 		Vector left = new Vector(0, -1);
 		Vector right = new Vector(0, 1);
 		Vector up = new Vector(-1, 0);
 		Vector down = new Vector(1, 0);
 
-		rookMoves.add(left);
-		rookMoves.add(right);
-		rookMoves.add(up);
-		rookMoves.add(down);
+		Vector[] rookMoves = new Vector[] { left, right, up, down };
 
 		// Knight
-		Piece wKnight = new Piece("n", null, 0);
-		Piece bKnight = new Piece("N", null, 1);
-
-		ArrayList<Vector> knightMoves = new ArrayList<Vector>();
-
 		Vector m1 = new Vector(-2, 1);
 		Vector m2 = new Vector(-1, 2);
 		Vector m3 = new Vector(1, 2);
@@ -93,56 +69,34 @@ public class ChessRules extends Rules {
 		Vector m7 = new Vector(-1, -2);
 		Vector m8 = new Vector(-2, -1);
 
-		knightMoves.add(m1);
-		knightMoves.add(m2);
-		knightMoves.add(m3);
-		knightMoves.add(m4);
-		knightMoves.add(m5);
-		knightMoves.add(m6);
-		knightMoves.add(m7);
-		knightMoves.add(m8);
+		Vector[] knightMoves = new Vector[] { m1, m2, m3, m4, m5, m6, m7, m8 };
 
 		// Bishop
-		Piece wBishop = new Piece("b", null, 0);
-		Piece bBishop = new Piece("B", null, 1);
-
-		ArrayList<Vector> bishopMoves = new ArrayList<Vector>();
-
 		Vector diagLeftUp = new Vector(-1, -1);
 		Vector diagRightUp = new Vector(-1, 1);
 		Vector diagRightDown = new Vector(1, 1);
 		Vector diagLeftDown = new Vector(1, -1);
 
-		bishopMoves.add(diagLeftUp);
-		bishopMoves.add(diagLeftDown);
-		bishopMoves.add(diagRightUp);
-		bishopMoves.add(diagRightDown);
+		Vector[] bishopMoves = new Vector[] { diagLeftUp, diagLeftDown,
+				diagRightUp, diagRightDown };
 
 		// King and queen
-		Piece wKing = new Piece("k", null, 0);
-		Piece bKing = new Piece("K", null, 1);
-		Piece wQueen = new Piece("q", null, 0);
-		Piece bQueen = new Piece("Q", null, 1);
-
-		ArrayList<Vector> allDirections = new ArrayList<Vector>();
-		allDirections.addAll(bishopMoves);
-		allDirections.addAll(rookMoves);
-
-		// All of the move maps
-		HashMap<Piece, ArrayList<Vector>> moveMap = new HashMap<Piece, ArrayList<Vector>>();
-		moveMap.put(wPawn, wPawnMoves);
-		moveMap.put(bPawn, bPawnMoves);
-		moveMap.put(wRook, rookMoves);
-		moveMap.put(bRook, rookMoves);
-		moveMap.put(wKnight, knightMoves);
-		moveMap.put(bKnight, knightMoves);
-		moveMap.put(wBishop, bishopMoves);
-		moveMap.put(bBishop, bishopMoves);
-		moveMap.put(wKing, allDirections);
-		moveMap.put(bKing, allDirections);
-		moveMap.put(wQueen, allDirections);
-		moveMap.put(bQueen, allDirections);
-		this.setPieceRules(moveMap);
+		Vector[] allDirections = new Vector[] { diagLeftUp, diagLeftDown,
+				diagRightUp, diagRightDown, left, right, up, down };
+
+		// All of the moves, by piece
+		setPieceMoves("p", 0, wPawnMoves);
+		setPieceMoves("P", 1, bPawnMoves);
+		setPieceMoves("r", 0, rookMoves);
+		setPieceMoves("R", 1, rookMoves);
+		setPieceMoves("n", 0, knightMoves);
+		setPieceMoves("N", 1, knightMoves);
+		setPieceMoves("b", 0, bishopMoves);
+		setPieceMoves("B", 1, bishopMoves);
+		setPieceMoves("k", 0, allDirections);
+		setPieceMoves("K", 1, allDirections);
+		setPieceMoves("q", 0, allDirections);
+		setPieceMoves("Q", 1, allDirections);
 	}
 
 	/**
@@ -191,7 +145,7 @@ public class ChessRules extends Rules {
 	@Override
 	public boolean isValidMove(Move m, Board b) {
 		Piece p = m.getPiece();
-		Piece bp = new Piece(p.getType(), null, p.getPlayer());
+		Vector[] moves = getPieceMoves(p.getCode());
 		Point start = m.getStart();
 		Point end = m.getEnd();
 		ArrayList<Piece> affected = m.getAffected();
@@ -209,15 +163,31 @@ public class ChessRules extends Rules {
 		int deltaY = end.getY() - start.getY();
 		int gcd = gcd(deltaX, deltaY);
 
-		// If the move map doesn't contain the move...
-		if (!getMoveMap().get(bp).contains(new Vector(deltaX, deltaY))
-				&& !getMoveMap().get(bp).contains(
-						new Vector(deltaX / gcd, deltaY / gcd)))
+		// If the piece's moves don't contain the move...
+		if (!contains(moves, deltaX, deltaY)
+				&& !contains(moves, deltaX / gcd, deltaY / gcd))
 			return false;
 
 		return true;
 	}
 
+	/**
+	 * Checks if a step is one of a piece's moves.
+	 * 
+	 * @param moves
+	 * @param deltaX
+	 * @param deltaY
+	 * @return true iff one of the moves has the same deltas
+	 */
+	private boolean contains(Vector[] moves, int deltaX, int deltaY) {
+		for (Vector v : moves) {
+			if (v.getDeltaX() == deltaX && v.getDeltaY() == deltaY)
+				return true;
+		}
+
+		return false;
+	}
+
 	/**
 	 * Finds the GCD of two integers.
 	 * 
@@ -0,0 +1,153 @@
+package chess;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Random;
+
+import models.Game;
+import models.Move;
+import algorithms.TranspositionTable;
+
+/**
+ * Reads an opening book written by OpeningBookBuilder. The file is mapped
+ * into memory and searched in place, so opening it costs next to nothing.
+ * 
+ * The file is a list of records sorted by position key and then by move, with
+ * no header. Each record is RECORD_BYTES long: the Zobrist key of the position
+ * (Game.getHashKey) as a long, the move as a short from
+ * TranspositionTable.encodeMove, and its weight as an unsigned short. A
+ * position's moves are found by a binary search for its first record.
+ * 
+ * @author denniscui
+ * 
+ */
+public class OpeningBook {
+
+	public static final int RECORD_BYTES = 12;
+
+	private MappedByteBuffer data;
+	private int records;
+
+	/**
+	 * Opens a book file.
+	 * 
+	 * @param file
+	 * @throws IOException
+	 *             if the file can't be read or isn't whole records
+	 */
+	public OpeningBook(File file) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			if (in.length() % RECORD_BYTES != 0)
+				throw new IOException("Not an opening book: " + file);
+
+			data = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+					in.length());
+		} finally {
+			// The mapping stays valid after the file is closed
+			in.close();
+		}
+
+		records = (int) (file.length() / RECORD_BYTES);
+	}
+
+	/**
+	 * Picks a book move for a position at random, each move as likely as its
+	 * weight.
+	 * 
+	 * @param g
+	 * @param random
+	 * @return move, or null if the position isn't in the book
+	 */
+	public Move getMove(Game g, Random random) {
+		ArrayList<Move> moves = new ArrayList<Move>();
+		ArrayList<Integer> weights = new ArrayList<Integer>();
+		int total = getMoves(g, moves, weights);
+		if (total == 0)
+			return null;
+
+		int pick = random.nextInt(total);
+		for (int i = 0; i < moves.size(); i++) {
+			pick -= weights.get(i);
+			if (pick < 0)
+				return moves.get(i);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Finds the book moves of a position that can be made in it.
+	 * 
+	 * @param g
+	 * @param moves
+	 *            filled with the moves
+	 * @param weights
+	 *            filled with their weights
+	 * @return sum of the weights
+	 */
+	public int getMoves(Game g, ArrayList<Move> moves,
+			ArrayList<Integer> weights) {
+		long key = g.getHashKey();
+		int first = find(key);
+		if (first < 0)
+			return 0;
+
+		int cols = g.getRules().getCols();
+		ArrayList<Move> available = g.getAvailableMoves();
+		int total = 0;
+		for (int i = first; i < records && keyAt(i) == key; i++) {
+			int at = i * RECORD_BYTES;
+			int code = data.getShort(at + 8) & 0xFFFF;
+			int weight = data.getShort(at + 10) & 0xFFFF;
+
+			// Don't trust a book written for other rules
+			int index = TranspositionTable.findMove(available, code, cols);
+			if (index < 0 || weight == 0)
+				continue;
+
+			moves.add(available.get(index));
+			weights.add(weight);
+			total += weight;
+		}
+
+		return total;
+	}
+
+	/**
+	 * Finds the first record of a position.
+	 * 
+	 * @param key
+	 * @return record, or -1 if there is none
+	 */
+	private int find(long key) {
+		int low = 0;
+		int high = records;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (keyAt(mid) < key)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+
+		return low < records && keyAt(low) == key ? low : -1;
+	}
+
+	private long keyAt(int record) {
+		return data.getLong(record * RECORD_BYTES);
+	}
+
+	/**
+	 * Returns the number of records in the book.
+	 * 
+	 * @return records
+	 */
+	public int getRecords() {
+		return records;
+	}
+}
@@ -0,0 +1,144 @@
+package chess;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+
+import models.Game;
+import models.Move;
+import algorithms.TranspositionTable;
+
+/**
+ * Builds an opening book for OpeningBook from a collection of games.
+ * 
+ * The collection is a text file with one game a line, as moves in coordinate
+ * notation (e2e4 e7e5 g1f3 ...) from the start position. Blank lines and lines
+ * starting with # are skipped, as is anything after a move that can't be made.
+ * Each move in the opening of a game, the plies ChessGame.evaluateState counts
+ * as IN_OPENING, adds one to its weight in the position it was played from.
+ * 
+ * Usage: OpeningBookBuilder games book
+ * 
+ * @author denniscui
+ * 
+ */
+public class OpeningBookBuilder {
+
+	// Largest weight a record can hold
+	public static final int MAX_WEIGHT = 0xFFFF;
+
+	// Weight of each move in each position, by position key and move code
+	private HashMap<Long, HashMap<Integer, Integer>> positions = new HashMap<Long, HashMap<Integer, Integer>>();
+
+	private int games;
+	private int skipped;
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: OpeningBookBuilder games book");
+			return;
+		}
+
+		OpeningBookBuilder builder = new OpeningBookBuilder();
+		BufferedReader in = new BufferedReader(new FileReader(args[0]));
+		try {
+			String line;
+			while ((line = in.readLine()) != null)
+				builder.addGame(line);
+		} finally {
+			in.close();
+		}
+
+		int records = builder.write(args[1]);
+		System.out.println(builder.games + " games, " + builder.skipped
+				+ " with bad moves, " + records + " records");
+	}
+
+	/**
+	 * Adds the opening of one game.
+	 * 
+	 * @param line
+	 *            moves in coordinate notation
+	 */
+	public void addGame(String line) {
+		line = line.trim();
+		if (line.length() == 0 || line.startsWith("#"))
+			return;
+
+		games++;
+		Game g = ChessPosition.parse(ChessPosition.START);
+		int cols = g.getRules().getCols();
+		for (String token : line.split("\\s+")) {
+			if (g.evaluateState() != Game.IN_OPENING)
+				break;
+
+			Move move = null;
+			for (Move m : g.getAvailableMoves()) {
+				if (ChessPosition.toCoordinates(m).equals(token)) {
+					move = m;
+					break;
+				}
+			}
+
+			if (move == null) {
+				skipped++;
+				break;
+			}
+
+			add(g.getHashKey(), TranspositionTable.encodeMove(move, cols));
+			g.doMove(move);
+		}
+	}
+
+	private void add(long key, int code) {
+		HashMap<Integer, Integer> moves = positions.get(key);
+		if (moves == null) {
+			moves = new HashMap<Integer, Integer>();
+			positions.put(key, moves);
+		}
+
+		Integer weight = moves.get(code);
+		moves.put(code, Math.min(weight == null ? 1 : weight + 1, MAX_WEIGHT));
+	}
+
+	/**
+	 * Writes the book, sorted by position key and then by move.
+	 * 
+	 * @param fileName
+	 * @return number of records
+	 * @throws IOException
+	 */
+	public int write(String fileName) throws IOException {
+		ArrayList<Long> keys = new ArrayList<Long>(positions.keySet());
+		Collections.sort(keys);
+
+		int records = 0;
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(fileName)));
+		try {
+			for (Long key : keys) {
+				HashMap<Integer, Integer> moves = positions.get(key);
+				ArrayList<Integer> codes = new ArrayList<Integer>(
+						moves.keySet());
+				Collections.sort(codes);
+
+				for (Integer code : codes) {
+					out.writeLong(key);
+					out.writeShort(code);
+					out.writeShort(moves.get(code));
+					records++;
+				}
+			}
+		} finally {
+			out.close();
+		}
+
+		return records;
+	}
+}
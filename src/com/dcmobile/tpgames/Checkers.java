@@ -6,11 +6,26 @@ import android.app.Activity;
 import android.os.Bundle;
 
 public class Checkers extends Activity {
+	// Key of the game's snapshot in the saved state
+	private static final String GAME = "game";
+
+	private CheckersBoardView v;
+
 	@Override
 	protected void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
-		CheckersBoardView v = new CheckersBoardView(this, null, 0);
+		v = new CheckersBoardView(this, null, 0);
 		setContentView(v);
 
+		// Pick up the game where it was left
+		if (savedInstanceState != null
+				&& savedInstanceState.getByteArray(GAME) != null)
+			v.restoreGame(savedInstanceState.getByteArray(GAME));
+	}
+
+	@Override
+	protected void onSaveInstanceState(Bundle outState) {
+		super.onSaveInstanceState(outState);
+		outState.putByteArray(GAME, v.getGame().snapshot());
 	}
 }
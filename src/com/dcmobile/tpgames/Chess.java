@@ -5,11 +5,26 @@ import android.app.Activity;
 import android.os.Bundle;
 
 public class Chess extends Activity {
+	// Key of the game's snapshot in the saved state
+	private static final String GAME = "game";
+
+	private ChessBoardView v;
+
 	@Override
 	protected void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
-		ChessBoardView v = new ChessBoardView(this, null, 0);
+		v = new ChessBoardView(this, null, 0);
 		setContentView(v);
 
+		// Pick up the game where it was left
+		if (savedInstanceState != null
+				&& savedInstanceState.getByteArray(GAME) != null)
+			v.restoreGame(savedInstanceState.getByteArray(GAME));
+	}
+
+	@Override
+	protected void onSaveInstanceState(Bundle outState) {
+		super.onSaveInstanceState(outState);
+		outState.putByteArray(GAME, v.getGame().snapshot());
 	}
 }
@@ -3,6 +3,7 @@ package connect4;
 import java.util.ArrayList;
 
 import models.Board;
+import models.Game;
 import models.Move;
 import models.Piece;
 
@@ -14,11 +15,45 @@ import models.Piece;
  */
 public class Connect4Board extends Board {
 
+	// Sum of the position scores of the pieces, positive for the maximizing
+	// player. Not initialized here, since the super constructor already adds
+	// the pieces.
+	private int positionScore;
+
 	public Connect4Board(int rows, int cols, ArrayList<Piece> pieces) {
 		super(rows, cols, pieces);
 		// TODO Auto-generated constructor stub
 	}
 
+	/**
+	 * Keeps the position score in step with the matrix.
+	 */
+	@Override
+	protected void setSquare(int row, int col, byte code) {
+		byte previous = getCode(row, col);
+		if (previous != Piece.NONE)
+			positionScore -= score(previous, row, col);
+
+		if (code != Piece.NONE)
+			positionScore += score(code, row, col);
+
+		super.setSquare(row, col, code);
+	}
+
+	private static int score(byte code, int row, int col) {
+		int score = Connect4Game.STANDARD_SCORE[row][col];
+		return Piece.playerOf(code) == Game.MAXIMIZING_PLAYER ? score : -score;
+	}
+
+	/**
+	 * Returns the sum of the position scores of the pieces on the board.
+	 * 
+	 * @return positionScore
+	 */
+	public int getPositionScore() {
+		return positionScore;
+	}
+
 	@Override
 	public boolean makeMove(Move move) {
 		Piece p = move.getPiece();
@@ -72,7 +72,7 @@ public class Connect4Rules extends Rules {
 
 		// If any of the lower pieces are null, return false
 		for (int i = this.getRows() - 1; i > endX; i--) {
-			if (b.getMatrix()[i][endY] == null)
+			if (b.isEmpty(i, endY))
 				return false;
 		}
 
@@ -40,8 +40,8 @@ public class Connect4Simulation {
 				if (x < 0 || x > 5 || y < 0 || y > 6)
 					continue;
 				else {
-					Piece p = new Piece("Y", new Point(x, y), g.getTurn());
-					g.addMove(new Move(p, null, new Point(x, y)));
+					Piece p = new Piece("Y", Point.valueOf(x, y), g.getTurn());
+					g.addMove(new Move(p, null, Point.valueOf(x, y)));
 					System.out.println(g.getBoard().toString());
 					System.out.println(g.scoreGame());
 				}
@@ -0,0 +1,513 @@
+package connect4;
+
+import models.Game;
+import models.Move;
+import models.Piece;
+import algorithms.AlphaBeta;
+import engine.GameEngine;
+
+/**
+ * The class that implements GameEngine by solving Connect Four positions
+ * exactly, instead of searching them to a fixed depth.
+ * 
+ * The position is kept in two 64-bit bitboards, the stones of the player to
+ * move and all the stones, with a column of 7 bits per board column: the six
+ * rows from the bottom up and an empty bit on top, so that shifting a board
+ * can't carry a line over from one column into the next. Four in a row is
+ * found with a few shifts, and the search only looks at moves that don't hand
+ * the other player a win, best first: center columns and moves that make the
+ * most threats. Results are kept in a transposition table that lasts from one
+ * move to the next.
+ * 
+ * Scores are from the point of view of the player to move: zero for a draw,
+ * positive for a win and negative for a loss, larger the sooner the game is
+ * won. A win with the player's last stone scores 1, and each stone to spare
+ * one more.
+ * 
+ * Positions too early in the game to solve within the node limit are passed
+ * on to a fallback engine.
+ * 
+ * @author denniscui
+ * 
+ */
+public class Connect4Solver extends GameEngine {
+
+	public static final int WIDTH = 7;
+	public static final int HEIGHT = 6;
+
+	// Nodes a solve may take before the fallback engine is used instead
+	public static final long DEFAULT_NODE_LIMIT = 20000000;
+
+	// Entries in the transposition table, a prime so the keys spread out
+	public static final int TABLE_SIZE = 524309;
+
+	// Depth of the default fallback engine
+	public static final int FALLBACK_DEPTH = 5;
+
+	private static final int SIZE = WIDTH * HEIGHT;
+	private static final int MIN_SCORE = -SIZE / 2;
+
+	// Bottom square of each column, and every square on the board
+	private static final long BOTTOM = bottom();
+	private static final long BOARD = BOTTOM * ((1L << HEIGHT) - 1);
+
+	// Columns from the center out, which take part in the most lines
+	private static final int[] COLUMN_ORDER = columnOrder();
+
+	// How many nodes to search between looks at the clock
+	private static final int CLOCK_INTERVAL = 4096;
+
+	private long nodeLimit;
+	private GameEngine fallback;
+
+	// Keys of the positions and upper bounds on their scores, stored as the
+	// score minus MIN_SCORE plus one so that zero means no entry
+	private long[] keys = new long[TABLE_SIZE];
+	private byte[] bounds = new byte[TABLE_SIZE];
+
+	// Moves being sorted and their ranks, by the number of stones played
+	private long[][] sorted = new long[SIZE][WIDTH];
+	private int[][] ranks = new int[SIZE][WIDTH];
+
+	// Stones of the player to move, all stones, and how many there are
+	private long current;
+	private long mask;
+	private int moves;
+
+	private long nodes;
+	private long deadline;
+	private boolean stopped;
+	private boolean solved;
+	private int score;
+
+	/**
+	 * Creates a solver that falls back to an AlphaBeta search for early
+	 * positions.
+	 */
+	public Connect4Solver() {
+		this(DEFAULT_NODE_LIMIT, new AlphaBeta(FALLBACK_DEPTH));
+	}
+
+	/**
+	 * Creates a solver.
+	 * 
+	 * @param nodeLimit
+	 *            nodes a solve may take
+	 * @param fallback
+	 *            engine for the positions that couldn't be solved
+	 */
+	public Connect4Solver(long nodeLimit, GameEngine fallback) {
+		this.nodeLimit = nodeLimit;
+		this.fallback = fallback;
+	}
+
+	public Move getMove(Game g) {
+		return getMove(g, -1);
+	}
+
+	/**
+	 * Solves the position within half the budget, and otherwise leaves the
+	 * rest of it to the fallback engine.
+	 */
+	public Move getMove(Game g, long budgetMillis) {
+		stopPondering();
+		long start = System.currentTimeMillis();
+		deadline = budgetMillis < 0 ? Long.MAX_VALUE : start + budgetMillis
+				/ 2;
+
+		int col = g.hasEnded()[0] == Game.NONE ? solveMove(g) : -1;
+		if (col < 0) {
+			if (budgetMillis < 0)
+				return fallback.getMove(g);
+
+			long left = budgetMillis - (System.currentTimeMillis() - start);
+			return fallback.getMove(g, Math.max(left, 1));
+		}
+
+		for (Move m : g.getAvailableMoves()) {
+			if (m.getEnd().getY() == col)
+				return m;
+		}
+
+		throw new IllegalStateException("No move in column " + col);
+	}
+
+	/**
+	 * Ponders with the fallback engine. Positions the solver can take on are
+	 * solved quickly enough without.
+	 */
+	public void ponder(Game g) {
+		fallback.ponder(g);
+	}
+
+	public void stopPondering() {
+		fallback.stopPondering();
+	}
+
+	/**
+	 * Solves a position.
+	 * 
+	 * @param g
+	 *            a game that isn't over
+	 * @return score of the position for the player to move
+	 * @throws IllegalStateException
+	 *             if the node limit was reached first
+	 */
+	public int solve(Game g) {
+		deadline = Long.MAX_VALUE;
+		setPosition(g);
+		nodes = 0;
+		stopped = false;
+
+		int score = solve();
+		if (stopped)
+			throw new IllegalStateException("Node limit reached");
+
+		return score;
+	}
+
+	/**
+	 * Finds the column of the best move, or -1 if the position couldn't be
+	 * solved in time.
+	 * 
+	 * @param g
+	 * @return column
+	 */
+	private int solveMove(Game g) {
+		setPosition(g);
+		nodes = 0;
+		stopped = false;
+		solved = false;
+
+		int bestCol = -1;
+		int bestScore = Integer.MIN_VALUE;
+		for (int i = 0; i < WIDTH; i++) {
+			int col = COLUMN_ORDER[i];
+			if (!canPlay(col))
+				continue;
+
+			int childScore;
+			if (isWinningMove(col)) {
+				childScore = (SIZE + 1 - moves) / 2;
+			} else {
+				long move = (mask + bottomOf(col)) & columnOf(col);
+				long saveCurrent = current;
+				long saveMask = mask;
+				play(move);
+				childScore = moves == SIZE ? 0 : -solve();
+				current = saveCurrent;
+				mask = saveMask;
+				moves--;
+
+				if (stopped)
+					return -1;
+			}
+
+			if (childScore > bestScore) {
+				bestScore = childScore;
+				bestCol = col;
+			}
+		}
+
+		solved = true;
+		score = bestScore;
+		return bestCol;
+	}
+
+	/**
+	 * Narrows down the score of the current position with null window
+	 * searches, trying the likely values near a draw first.
+	 * 
+	 * @return score
+	 */
+	private int solve() {
+		if (canWinNext())
+			return (SIZE + 1 - moves) / 2;
+
+		int min = -(SIZE - moves) / 2;
+		int max = (SIZE + 1 - moves) / 2;
+		while (min < max) {
+			int med = min + (max - min) / 2;
+			if (med <= 0 && min / 2 < med)
+				med = min / 2;
+			else if (med >= 0 && max / 2 > med)
+				med = max / 2;
+
+			int r = negamax(med, med + 1);
+			if (stopped)
+				return 0;
+
+			if (r <= med)
+				max = r;
+			else
+				min = r;
+		}
+
+		return min;
+	}
+
+	/**
+	 * Searches a position where the player to move can't win straight away.
+	 * 
+	 * @param alpha
+	 * @param beta
+	 * @return score, or a bound on it outside the window
+	 */
+	private int negamax(int alpha, int beta) {
+		nodes++;
+		if (nodes > nodeLimit
+				|| (nodes % CLOCK_INTERVAL == 0 && System.currentTimeMillis() > deadline))
+			stopped = true;
+		if (stopped)
+			return 0;
+
+		long next = nonLosingMoves();
+		if (next == 0)
+			return -(SIZE - moves) / 2;
+
+		// Neither player can win with the last two stones
+		if (moves >= SIZE - 2)
+			return 0;
+
+		int min = -(SIZE - 2 - moves) / 2;
+		if (alpha < min) {
+			alpha = min;
+			if (alpha >= beta)
+				return alpha;
+		}
+
+		int max = (SIZE - 1 - moves) / 2;
+		long key = current + mask;
+		int index = (int) (key % TABLE_SIZE);
+		if (keys[index] == key && bounds[index] != 0)
+			max = bounds[index] + MIN_SCORE - 1;
+
+		if (beta > max) {
+			beta = max;
+			if (alpha >= beta)
+				return beta;
+		}
+
+		// Order the moves by the threats they make, center first on ties
+		long[] sorted = this.sorted[moves];
+		int[] ranks = this.ranks[moves];
+		int count = 0;
+		for (int i = WIDTH - 1; i >= 0; i--) {
+			long move = next & columnOf(COLUMN_ORDER[i]);
+			if (move == 0)
+				continue;
+
+			int rank = Long.bitCount(winningSquares(current | move, mask));
+			int j = count++;
+			while (j > 0 && ranks[j - 1] > rank) {
+				sorted[j] = sorted[j - 1];
+				ranks[j] = ranks[j - 1];
+				j--;
+			}
+			sorted[j] = move;
+			ranks[j] = rank;
+		}
+
+		long saveCurrent = current;
+		long saveMask = mask;
+		for (int i = count - 1; i >= 0; i--) {
+			play(sorted[i]);
+			int score = -negamax(-beta, -alpha);
+			current = saveCurrent;
+			mask = saveMask;
+			moves--;
+
+			if (stopped)
+				return 0;
+
+			if (score >= beta)
+				return score;
+
+			if (score > alpha)
+				alpha = score;
+		}
+
+		keys[index] = key;
+		bounds[index] = (byte) (alpha - MIN_SCORE + 1);
+		return alpha;
+	}
+
+	/**
+	 * Reads the bitboards from a game.
+	 * 
+	 * @param g
+	 */
+	private void setPosition(Game g) {
+		current = 0;
+		mask = 0;
+		moves = 0;
+
+		int turn = g.getTurn();
+		for (int row = 0; row < HEIGHT; row++) {
+			for (int col = 0; col < WIDTH; col++) {
+				if (g.getBoard().isEmpty(row, col))
+					continue;
+
+				long bit = 1L << (col * (HEIGHT + 1) + HEIGHT - 1 - row);
+				mask |= bit;
+				moves++;
+				if (Piece.playerOf(g.getBoard().getCode(row, col)) == turn)
+					current |= bit;
+			}
+		}
+	}
+
+	/**
+	 * Drops a stone of the player to move and passes the turn.
+	 * 
+	 * @param move
+	 *            bit of the square the stone lands on
+	 */
+	private void play(long move) {
+		current ^= mask;
+		mask |= move;
+		moves++;
+	}
+
+	private boolean canPlay(int col) {
+		return (mask & topOf(col)) == 0;
+	}
+
+	private boolean isWinningMove(int col) {
+		return (winningSquares(current, mask) & possible() & columnOf(col)) != 0;
+	}
+
+	private boolean canWinNext() {
+		return (winningSquares(current, mask) & possible()) != 0;
+	}
+
+	/**
+	 * Returns the squares a stone can be dropped on.
+	 * 
+	 * @return bitboard
+	 */
+	private long possible() {
+		return (mask + BOTTOM) & BOARD;
+	}
+
+	/**
+	 * Returns the moves that don't let the other player win on their next
+	 * move: a forced block if there is exactly one threat, none if there are
+	 * more, and otherwise every move that doesn't fill the square under a
+	 * threat.
+	 * 
+	 * @return bitboard
+	 */
+	private long nonLosingMoves() {
+		long possible = possible();
+		long threats = winningSquares(current ^ mask, mask);
+		long forced = possible & threats;
+		if (forced != 0) {
+			if ((forced & (forced - 1)) != 0)
+				return 0;
+
+			possible = forced;
+		}
+
+		return possible & ~(threats >> 1);
+	}
+
+	/**
+	 * Returns the empty squares that would complete four in a row for a
+	 * player.
+	 * 
+	 * @param position
+	 *            the player's stones
+	 * @param mask
+	 *            all stones
+	 * @return bitboard
+	 */
+	private static long winningSquares(long position, long mask) {
+		// Vertical
+		long r = (position << 1) & (position << 2) & (position << 3);
+
+		// Horizontal and both diagonals, with the gap anywhere in the line
+		for (int shift = HEIGHT; shift <= HEIGHT + 2; shift++) {
+			long p = (position << shift) & (position << 2 * shift);
+			r |= p & (position << 3 * shift);
+			r |= p & (position >> shift);
+
+			p = (position >> shift) & (position >> 2 * shift);
+			r |= p & (position << shift);
+			r |= p & (position >> 3 * shift);
+		}
+
+		return r & (BOARD ^ mask);
+	}
+
+	private static long bottomOf(int col) {
+		return 1L << (col * (HEIGHT + 1));
+	}
+
+	private static long topOf(int col) {
+		return 1L << (col * (HEIGHT + 1) + HEIGHT - 1);
+	}
+
+	private static long columnOf(int col) {
+		return ((1L << HEIGHT) - 1) << (col * (HEIGHT + 1));
+	}
+
+	private static long bottom() {
+		long bottom = 0;
+		for (int col = 0; col < WIDTH; col++)
+			bottom |= bottomOf(col);
+
+		return bottom;
+	}
+
+	private static int[] columnOrder() {
+		int[] order = new int[WIDTH];
+		for (int i = 0; i < WIDTH; i++)
+			order[i] = WIDTH / 2 + (1 - 2 * (i % 2)) * (i + 1) / 2;
+
+		return order;
+	}
+
+	/**
+	 * Forgets the positions solved so far.
+	 */
+	public void clear() {
+		for (int i = 0; i < TABLE_SIZE; i++) {
+			keys[i] = 0;
+			bounds[i] = 0;
+		}
+	}
+
+	/**
+	 * Checks if the last getMove solved the position rather than passing it
+	 * to the fallback engine.
+	 * 
+	 * @return solved
+	 */
+	public boolean isSolved() {
+		return solved;
+	}
+
+	/**
+	 * Returns the score of the position of the last solved getMove, for the
+	 * player who was to move.
+	 * 
+	 * @return score
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * Returns the number of nodes visited by the last solve.
+	 * 
+	 * @return nodes
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	public GameEngine getFallback() {
+		return fallback;
+	}
+}
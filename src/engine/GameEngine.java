@@ -22,4 +22,60 @@ public abstract class GameEngine {
 	 */
 	public abstract Move getMove(Game g);
 
+	/**
+	 * Gets a move within a time budget. Engines that can search deeper given
+	 * more time override this; the default ignores the budget.
+	 * 
+	 * @param g
+	 *            The current Game
+	 * @param budgetMillis
+	 *            How long the engine may think, in milliseconds
+	 * @return The Move the GameEngine recommends you should make.
+	 */
+	public Move getMove(Game g, long budgetMillis) {
+		return getMove(g);
+	}
+
+	/**
+	 * Starts thinking about the game in the background while the other
+	 * player decides on a move, so the next getMove has less to do. Engines
+	 * that can't ponder ignore this.
+	 * 
+	 * @param g
+	 *            The current Game, with the other player to move. It may
+	 *            change once this returns.
+	 */
+	public void ponder(Game g) {
+	}
+
+	/**
+	 * Stops pondering, and returns once the background work has ended. Does
+	 * nothing if the engine isn't pondering.
+	 */
+	public void stopPondering() {
+	}
+
+	// Listener
+	private OnIterationCompletedListener iterationCompletedListener;
+
+	/**
+	 * Listener for engines that search in iterations of growing depth.
+	 */
+	public interface OnIterationCompletedListener {
+		void onIterationCompleted(int depth, int score, long nodes,
+				long millis);
+	}
+
+	public void setOnIterationCompletedListener(
+			OnIterationCompletedListener l) {
+		iterationCompletedListener = l;
+	}
+
+	protected void onIterationCompleted(int depth, int score, long nodes,
+			long millis) {
+		if (iterationCompletedListener != null) {
+			iterationCompletedListener.onIterationCompleted(depth, score,
+					nodes, millis);
+		}
+	}
 }
@@ -18,8 +18,20 @@ public abstract class Board {
 	// Number of columns on this board
 	private int cols;
 
-	// Two dimensional board representation
-	private String[][] boardMatrix;
+	// Piece codes of the squares, row by row, Piece.NONE if empty
+	private byte[] squares;
+
+	// Zobrist key of the pieces on the board
+	private long hashKey;
+
+	// Journal of piece changes so that moves made during a search can be
+	// rolled back. Only records while a mark is outstanding.
+	private boolean journaling = false;
+	private int journalSize = 0;
+	private Piece[] journalPieces = new Piece[16];
+	private int[] journalIndices = new int[16];
+	private boolean[] journalAdds = new boolean[16];
+	private byte[] journalPrevious = new byte[16];
 
 	/**
 	 * Constructs a new board with rows, cols, and places the pieces on the
@@ -33,7 +45,7 @@ public abstract class Board {
 		this.rows = rows;
 		this.cols = cols;
 		this.pieces = new ArrayList<Piece>();
-		this.boardMatrix = new String[rows][cols];
+		this.squares = new byte[rows * cols];
 
 		for (Piece p : pieces)
 			this.addPiece(p);
@@ -49,7 +61,7 @@ public abstract class Board {
 		this.rows = rows;
 		this.cols = cols;
 		this.pieces = new ArrayList<Piece>();
-		this.boardMatrix = new String[rows][cols];
+		this.squares = new byte[rows * cols];
 
 	}
 
@@ -62,7 +74,7 @@ public abstract class Board {
 	 */
 	public Piece getPieceAtPos(int row, int col) {
 		for (Piece p : pieces) {
-			if (p.getPosition().equals(new Point(row, col)))
+			if (p.getPosition().getX() == row && p.getPosition().getY() == col)
 				return p;
 		}
 
@@ -77,7 +89,39 @@ public abstract class Board {
 	 * @return
 	 */
 	public boolean isEmpty(Point pos) {
-		return boardMatrix[pos.getX()][pos.getY()] == null;
+		return squares[pos.getX() * cols + pos.getY()] == Piece.NONE;
+	}
+
+	/**
+	 * Checks if a square is empty.
+	 * 
+	 * @param row
+	 * @param col
+	 * @return true iff there is no piece on the square
+	 */
+	public boolean isEmpty(int row, int col) {
+		return squares[row * cols + col] == Piece.NONE;
+	}
+
+	/**
+	 * Returns the code of the piece on a square.
+	 * 
+	 * @param row
+	 * @param col
+	 * @return code, Piece.NONE if the square is empty
+	 */
+	public byte getCode(int row, int col) {
+		return squares[row * cols + col];
+	}
+
+	/**
+	 * Returns the codes of all the squares, row by row. The array is the
+	 * board's own and must not be changed.
+	 * 
+	 * @return squares
+	 */
+	public byte[] getSquares() {
+		return squares;
 	}
 
 	/**
@@ -105,21 +149,57 @@ public abstract class Board {
 	}
 
 	/**
-	 * Gets the matrix representation of this board.
+	 * Builds the matrix of piece types of this board, for the views. Changing
+	 * the matrix doesn't change the board.
 	 * 
-	 * @return boardMatrix
+	 * @return matrix, null for empty squares
 	 */
 	public String[][] getMatrix() {
-		return boardMatrix;
+		String[][] matrix = new String[rows][cols];
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++)
+				matrix[r][c] = Piece.typeOf(squares[r * cols + c]);
+		}
+
+		return matrix;
+	}
+
+	/**
+	 * Updates the squares to match another board's.
+	 * 
+	 * @param newSquares
+	 *            codes, row by row
+	 */
+	public void setSquares(byte[] newSquares) {
+		// Apply the differences one square at a time
+		for (int i = 0; i < squares.length; i++) {
+			if (newSquares[i] != squares[i])
+				setSquare(i / cols, i % cols, newSquares[i]);
+		}
 	}
 
 	/**
-	 * Updates the current board matrix.
+	 * Replaces every piece on the board with the pieces the codes give, such
+	 * as when a saved game is put back. The journal is emptied, so it can't be
+	 * rolled back past this.
 	 * 
-	 * @param newMatrix
+	 * @param codes
+	 *            codes, row by row, Piece.NONE for empty squares
 	 */
-	public void setMatrix(String[][] newMatrix) {
-		this.boardMatrix = newMatrix;
+	public void setPosition(byte[] codes) {
+		for (int i = 0; i < journalSize; i++)
+			journalPieces[i] = null;
+		journalSize = 0;
+		journaling = false;
+
+		setSquares(codes);
+
+		pieces = new ArrayList<Piece>();
+		for (int i = 0; i < codes.length; i++) {
+			if (codes[i] != Piece.NONE)
+				pieces.add(new Piece(codes[i], Point.valueOf(i / cols,
+						i % cols)));
+		}
 	}
 
 	/**
@@ -142,12 +222,20 @@ public abstract class Board {
 			return false;
 		else {
 
+			int posX = p.getPosition().getX();
+			int posY = p.getPosition().getY();
+			byte previous = squares[posX * cols + posY];
+
 			// Update the matrix
-			getMatrix()[p.getPosition().getX()][p.getPosition().getY()] = p
-					.getType();
+			setSquare(posX, posY, p.getCode());
 
 			// add the piee
-			return pieces.add(p);
+			pieces.add(p);
+
+			if (journaling)
+				record(p, pieces.size() - 1, true, previous);
+
+			return true;
 		}
 	}
 
@@ -160,11 +248,130 @@ public abstract class Board {
 	public boolean removePiece(Piece p) {
 		int posX = p.getPosition().getX();
 		int posY = p.getPosition().getY();
+		byte previous = squares[posX * cols + posY];
+
+		if (previous != Piece.NONE)
+			setSquare(posX, posY, Piece.NONE);
+
+		// Remember the piece actually stored in the list so it can be put back
+		int index = pieces.indexOf(p);
+		Piece removed = index >= 0 ? pieces.remove(index) : p;
 
-		if (this.getMatrix()[posX][posY] != null)
-			this.getMatrix()[posX][posY] = null;
+		if (journaling)
+			record(removed, index, false, previous);
+
+		return index >= 0;
+	}
 
-		return pieces.remove(p);
+	/**
+	 * Starts recording piece changes, so that everything done to the board
+	 * from now on can be rolled back.
+	 * 
+	 * @return the mark to pass to rollback
+	 */
+	public int mark() {
+		journaling = true;
+		return journalSize;
+	}
+
+	/**
+	 * Undoes every piece change made since the given mark, restoring both the
+	 * piece list (in its original order) and the matrix.
+	 * 
+	 * @param mark
+	 */
+	public void rollback(int mark) {
+		while (journalSize > mark) {
+			journalSize--;
+
+			Piece p = journalPieces[journalSize];
+			int index = journalIndices[journalSize];
+
+			if (journalAdds[journalSize])
+				pieces.remove(index);
+			else if (index >= 0)
+				pieces.add(index, p);
+
+			setSquare(p.getPosition().getX(), p.getPosition().getY(),
+					journalPrevious[journalSize]);
+
+			journalPieces[journalSize] = null;
+		}
+
+		// Nothing left to undo
+		if (journalSize == 0)
+			journaling = false;
+	}
+
+	/**
+	 * Appends a piece change to the journal.
+	 * 
+	 * @param p
+	 * @param index
+	 *            index of the piece in the list, -1 if it wasn't there
+	 * @param add
+	 *            true if the piece was added, false if it was removed
+	 * @param previous
+	 *            the matrix value before the change
+	 */
+	private void record(Piece p, int index, boolean add, byte previous) {
+		if (journalSize == journalPieces.length) {
+			int size = journalSize * 2;
+
+			Piece[] newPieces = new Piece[size];
+			int[] newIndices = new int[size];
+			boolean[] newAdds = new boolean[size];
+			byte[] newPrevious = new byte[size];
+
+			System.arraycopy(journalPieces, 0, newPieces, 0, journalSize);
+			System.arraycopy(journalIndices, 0, newIndices, 0, journalSize);
+			System.arraycopy(journalAdds, 0, newAdds, 0, journalSize);
+			System.arraycopy(journalPrevious, 0, newPrevious, 0, journalSize);
+
+			journalPieces = newPieces;
+			journalIndices = newIndices;
+			journalAdds = newAdds;
+			journalPrevious = newPrevious;
+		}
+
+		journalPieces[journalSize] = p;
+		journalIndices[journalSize] = index;
+		journalAdds[journalSize] = add;
+		journalPrevious[journalSize] = previous;
+		journalSize++;
+	}
+
+	/**
+	 * Sets the code of a single square. Every change to the squares goes
+	 * through here, so subclasses can override it to keep other
+	 * representations of the board in step.
+	 * 
+	 * @param row
+	 * @param col
+	 * @param code
+	 *            Piece.NONE to empty the square
+	 */
+	protected void setSquare(int row, int col, byte code) {
+		int square = row * cols + col;
+
+		// Keep the key up to date
+		if (squares[square] != Piece.NONE)
+			hashKey ^= Zobrist.piece(square, squares[square]);
+
+		if (code != Piece.NONE)
+			hashKey ^= Zobrist.piece(square, code);
+
+		squares[square] = code;
+	}
+
+	/**
+	 * Returns the Zobrist key of the pieces on the board. Two boards with the
+	 * same pieces on the same squares have the same key.
+	 * 
+	 * @return hashKey
+	 */
+	public long getHashKey() {
+		return hashKey;
 	}
 
 	/**
@@ -187,10 +394,11 @@ public abstract class Board {
 		String thisBoard = "";
 		for (int r = 0; r < rows; r++) {
 			for (int c = 0; c < cols; c++) {
-				if (this.boardMatrix[r][c] == null) {
+				byte code = this.squares[r * cols + c];
+				if (code == Piece.NONE) {
 					thisBoard += "_ ";
 				} else
-					thisBoard += this.boardMatrix[r][c] + " ";
+					thisBoard += Piece.typeOf(code) + " ";
 			}
 
 			thisBoard += "\n";
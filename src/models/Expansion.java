@@ -0,0 +1,56 @@
+package models;
+
+import java.util.ArrayList;
+
+/**
+ * The moves available in a position together with whether the game is over
+ * there, worked out from a single move generation.
+ * 
+ * @author denniscui
+ * 
+ */
+public class Expansion {
+
+	private ArrayList<Move> moves;
+	private int[] state;
+
+	/**
+	 * Creates a new expansion.
+	 * 
+	 * @param moves
+	 *            the available moves
+	 * @param state
+	 *            as returned by Game.hasEnded
+	 */
+	public Expansion(ArrayList<Move> moves, int[] state) {
+		this.moves = moves;
+		this.state = state;
+	}
+
+	/**
+	 * Returns the available moves.
+	 * 
+	 * @return moves
+	 */
+	public ArrayList<Move> getMoves() {
+		return moves;
+	}
+
+	/**
+	 * Returns the state of the game, as returned by Game.hasEnded.
+	 * 
+	 * @return state
+	 */
+	public int[] getState() {
+		return state;
+	}
+
+	/**
+	 * Checks if the game is over.
+	 * 
+	 * @return true if the game was won or drawn
+	 */
+	public boolean isOver() {
+		return state[0] != Game.NONE;
+	}
+}
@@ -1,5 +1,6 @@
 package models;
 
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 
 import utils.Point;
@@ -32,6 +33,19 @@ public abstract class Game {
 	public static final int MINIMIZING_PLAYER = 0;
 	public static final int MAXIMIZING_PLAYER = 1;
 
+	// Bytes of a snapshot before the squares, and the square of a point
+	// that isn't there
+	public static final int SNAPSHOT_HEADER = 7;
+	public static final int NO_SQUARE = 0xFF;
+
+	// Move flags in a snapshot
+	private static final int END_OF_TURN = 1;
+	private static final int PROMOTION = 2;
+
+	// Set to check every incrementally kept score against a full recount.
+	// Slow, for debugging only.
+	public static boolean CHECK_EVALUATION = false;
+
 	// Keeps track of the game state
 	private int gameState;
 
@@ -59,6 +73,11 @@ public abstract class Game {
 	// The list of moves made
 	private ArrayList<Move> moves;
 
+	// Moves made before a restored snapshot, still encoded. They come before
+	// the moves in the list and are decoded the first time they're asked for.
+	private byte[] pendingMoves;
+	private int pendingOffset;
+
 	// Listeners
 	private OnTurnChangedListener turnChangedListener;
 	private OnGameEndedListener gameEndedListener;
@@ -171,6 +190,9 @@ public abstract class Game {
 	 * @return moves
 	 */
 	public ArrayList<Move> getMoves() {
+		if (pendingMoves != null)
+			decodeMoves();
+
 		return moves;
 	}
 
@@ -191,6 +213,265 @@ public abstract class Game {
 		return false;
 	}
 
+	/**
+	 * Makes a move without notifying any listeners or checking for the end of
+	 * the game, and returns a record that can be used to take it back. Meant
+	 * for searches that walk one game in place.
+	 * 
+	 * @param m
+	 * @return the undo record for this move
+	 */
+	public Undo doMove(Move m) {
+		Undo undo = new Undo(m, turn, restricted, restrictedPiece,
+				getStateFlags(), board.mark());
+
+		makeMove(m);
+		moves.add(m);
+
+		return undo;
+	}
+
+	/**
+	 * Takes back a move made with doMove. Moves must be taken back in the
+	 * reverse order they were made.
+	 * 
+	 * @param undo
+	 */
+	public void undoMove(Undo undo) {
+		moves.remove(moves.size() - 1);
+		board.rollback(undo.getBoardMark());
+
+		turn = undo.getTurn();
+		restricted = undo.isRestricted();
+		restrictedPiece = undo.getRestrictedPiece();
+		setStateFlags(undo.getStateFlags());
+	}
+
+	/**
+	 * Passes the turn to the other player without moving, for a search to
+	 * see what the other player could do if given a free move. Must be taken
+	 * back with undoNullMove.
+	 * 
+	 * @return undo record
+	 */
+	public Undo doNullMove() {
+		Undo undo = new Undo(null, turn, restricted, restrictedPiece,
+				getStateFlags(), board.mark());
+
+		turn = 1 - turn;
+		restricted = false;
+		restrictedPiece = null;
+
+		return undo;
+	}
+
+	/**
+	 * Takes back a null move made with doNullMove.
+	 * 
+	 * @param undo
+	 */
+	public void undoNullMove(Undo undo) {
+		board.rollback(undo.getBoardMark());
+
+		turn = undo.getTurn();
+		restricted = undo.isRestricted();
+		restrictedPiece = undo.getRestrictedPiece();
+		setStateFlags(undo.getStateFlags());
+	}
+
+	/**
+	 * Returns the Zobrist key of the current position: the pieces, the player
+	 * to move, a multi-jump in progress and any game specific state.
+	 * 
+	 * @return hash key
+	 */
+	public long getHashKey() {
+		long key = board.getHashKey() ^ Zobrist.flags(getStateFlags());
+
+		if (turn == MAXIMIZING_PLAYER)
+			key ^= Zobrist.SIDE_KEY;
+
+		if (restricted && restrictedPiece != null) {
+			Point pos = restrictedPiece.getPosition();
+			key ^= Zobrist.RESTRICTED_KEY
+					^ Zobrist.piece(pos.getX() * rules.getCols() + pos.getY(),
+							restrictedPiece.getCode());
+		}
+
+		return key;
+	}
+
+	/**
+	 * Saves the game in a few bytes, so that it can be put back with restore
+	 * without replaying its moves. The bytes are the game id, the turn, the
+	 * stage of the game, the state flags, whether the turn is restricted, the
+	 * restricted piece's code and square, and then the code of every square,
+	 * row by row. The moves made follow: their number in two bytes, then for
+	 * each its flags, its piece's code and square, its start and end squares,
+	 * and the number, codes and squares of the pieces it affects.
+	 * 
+	 * @return snapshot
+	 */
+	public byte[] snapshot() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(gameId);
+		out.write(turn);
+		out.write(gameState);
+		out.write(getStateFlags());
+		out.write(restricted ? 1 : 0);
+		if (restrictedPiece != null) {
+			out.write(restrictedPiece.getCode());
+			out.write(square(restrictedPiece.getPosition()));
+		} else {
+			out.write(Piece.NONE);
+			out.write(NO_SQUARE);
+		}
+
+		byte[] squares = board.getSquares();
+		out.write(squares, 0, squares.length);
+
+		// Moves not yet decoded since the last restore are copied as they are
+		byte[] pending;
+		int offset;
+		ArrayList<Move> made;
+		synchronized (this) {
+			pending = pendingMoves;
+			offset = pendingOffset;
+			made = moves;
+		}
+
+		int count = made.size();
+		if (pending != null)
+			count += (pending[offset] & 0xFF) << 8 | pending[offset + 1] & 0xFF;
+
+		out.write(count >> 8);
+		out.write(count);
+		if (pending != null)
+			out.write(pending, offset + 2, pending.length - offset - 2);
+
+		for (Move m : made) {
+			out.write((m.isEnd() ? END_OF_TURN : 0)
+					| (m.isPromoted() ? PROMOTION : 0));
+			out.write(m.getPiece().getCode());
+			out.write(square(m.getPiece().getPosition()));
+			out.write(square(m.getStart()));
+			out.write(square(m.getEnd()));
+
+			out.write(m.getAffected().size());
+			for (Piece p : m.getAffected()) {
+				out.write(p.getCode());
+				out.write(square(p.getPosition()));
+			}
+		}
+
+		return out.toByteArray();
+	}
+
+	/**
+	 * Puts the game back as it was when a snapshot was taken, in time that
+	 * depends only on the size of the board. The moves made are decoded when
+	 * first asked for. The turn changed listener is told whose turn it is.
+	 * 
+	 * @param snapshot
+	 *            from snapshot() on a game of the same kind
+	 * @throws IllegalArgumentException
+	 *             if the snapshot is of another game
+	 */
+	public void restore(byte[] snapshot) {
+		int size = rules.getRows() * rules.getCols();
+		if (snapshot.length < SNAPSHOT_HEADER + size + 2
+				|| snapshot[0] != gameId)
+			throw new IllegalArgumentException("Not a snapshot of this game");
+
+		turn = snapshot[1];
+		gameState = snapshot[2];
+		setStateFlags(snapshot[3] & 0xFF);
+		restricted = snapshot[4] != 0;
+		restrictedPiece = snapshot[5] == Piece.NONE ? null : new Piece(
+				snapshot[5], point(snapshot[6] & 0xFF));
+
+		byte[] squares = new byte[size];
+		System.arraycopy(snapshot, SNAPSHOT_HEADER, squares, 0, size);
+		board.setPosition(squares);
+
+		synchronized (this) {
+			moves = new ArrayList<Move>();
+			pendingMoves = snapshot;
+			pendingOffset = SNAPSHOT_HEADER + size;
+		}
+
+		onTurnChanged(turn);
+	}
+
+	/**
+	 * Decodes the moves left encoded by restore and puts them in front of
+	 * the moves made since.
+	 */
+	private synchronized void decodeMoves() {
+		if (pendingMoves == null)
+			return;
+
+		byte[] in = pendingMoves;
+		int i = pendingOffset;
+		int count = (in[i] & 0xFF) << 8 | in[i + 1] & 0xFF;
+		i += 2;
+
+		ArrayList<Move> decoded = new ArrayList<Move>(count + moves.size());
+		for (int n = 0; n < count; n++) {
+			int flags = in[i];
+			Piece piece = new Piece(in[i + 1], point(in[i + 2] & 0xFF));
+			Point start = point(in[i + 3] & 0xFF);
+			Point end = point(in[i + 4] & 0xFF);
+			int affectedCount = in[i + 5];
+			i += 6;
+
+			ArrayList<Piece> affected = new ArrayList<Piece>(affectedCount);
+			for (int a = 0; a < affectedCount; a++, i += 2)
+				affected.add(new Piece(in[i], point(in[i + 1] & 0xFF)));
+
+			decoded.add(new Move(piece, start, end, affected,
+					(flags & END_OF_TURN) != 0, (flags & PROMOTION) != 0));
+		}
+
+		decoded.addAll(moves);
+		moves = decoded;
+		pendingMoves = null;
+	}
+
+	/**
+	 * Returns the index of a point on the board, NO_SQUARE for null.
+	 */
+	private int square(Point p) {
+		return p == null ? NO_SQUARE : p.getX() * rules.getCols() + p.getY();
+	}
+
+	/**
+	 * Returns the point of an index on the board, null for NO_SQUARE.
+	 */
+	private Point point(int square) {
+		return square == NO_SQUARE ? null : Point.valueOf(square
+				/ rules.getCols(), square % rules.getCols());
+	}
+
+	/**
+	 * Subclasses with state beyond the board and the turn (castling rights in
+	 * chess) should pack it into flags here so doMove can save it. Snapshots
+	 * keep the lowest eight bits.
+	 * 
+	 * @return game specific state
+	 */
+	protected int getStateFlags() {
+		return 0;
+	}
+
+	/**
+	 * Restores the state packed by getStateFlags.
+	 * 
+	 * @param flags
+	 */
+	protected void setStateFlags(int flags) {
+	}
+
 	/**
 	 * Updates the state of the board using a new board.
 	 * 
@@ -251,6 +532,30 @@ public abstract class Game {
 	 */
 	public abstract int[] hasEnded();
 
+	/**
+	 * Finds out if the game has ended yet, given the moves available now.
+	 * Games that need the moves to decide override this so they don't have
+	 * to generate them again.
+	 * 
+	 * @param availableMoves
+	 *            the result of getAvailableMoves
+	 * @return state, as for hasEnded()
+	 */
+	public int[] hasEnded(ArrayList<Move> availableMoves) {
+		return hasEnded();
+	}
+
+	/**
+	 * Generates the available moves and finds out if the game has ended, with
+	 * a single move generation.
+	 * 
+	 * @return moves and state
+	 */
+	public Expansion expand() {
+		ArrayList<Move> availableMoves = getAvailableMoves();
+		return new Expansion(availableMoves, hasEnded(availableMoves));
+	}
+
 	/**
 	 * Getter for the restriction status.
 	 * 
@@ -309,6 +614,46 @@ public abstract class Game {
 	 */
 	public abstract int scoreGame();
 
+	/**
+	 * Generates a score for the current game state, given what hasEnded
+	 * returned for it. Games whose score depends on the state override this
+	 * so they don't have to find it again.
+	 * 
+	 * @param state
+	 *            the result of hasEnded
+	 * @return score
+	 */
+	public int scoreGame(int[] state) {
+		return scoreGame();
+	}
+
+	/**
+	 * Checks if a move takes any of the other player's pieces.
+	 * 
+	 * @param m
+	 * @return true iff the move is a capture
+	 */
+	public boolean isCapture(Move m) {
+		for (Piece p : m.getAffected()) {
+			if (p.getPlayer() != m.getPiece().getPlayer())
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns how much a piece is worth, for searching the captures of the
+	 * most valuable pieces first. Every piece is worth the same unless a game
+	 * says otherwise.
+	 * 
+	 * @param p
+	 * @return value
+	 */
+	public int getPieceValue(Piece p) {
+		return 1;
+	}
+
 	/**
 	 * Get a list of the available moves!
 	 * 
@@ -344,15 +689,12 @@ public abstract class Game {
 		int newX = curX + xDir;
 		int newY = curY + yDir;
 
-		try {
-			if (startType.equals(board.getMatrix()[newX][newY])) {
-				return 1 + crawl(dir, new Point(newX, newY), startType, board);
-			} else
-				return 0;
-		} catch (IndexOutOfBoundsException e) {
-			// On IndexOutOfBoundsException
+		if (board.isInBounds(newX, newY)
+				&& Piece.kindOf(board.getCode(newX, newY)) == startType
+						.charAt(0))
+			return 1 + crawl(dir, Point.valueOf(newX, newY), startType, board);
+		else
 			return 0;
-		}
 	}
 
 	// ----- Setting up listeners --------
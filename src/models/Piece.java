@@ -3,11 +3,20 @@ package models;
 import utils.Point;
 
 public class Piece {
-	// Identifier for a piece. We may change the type later.
-	private String pieceType;
+	// Code of an empty square
+	public static final byte NONE = 0;
 
-	// Player that this piece belongs to
-	private int piecePlayer;
+	// One shared string per code, so that getType doesn't allocate
+	private static final String[] TYPES = new String[128];
+
+	static {
+		for (int code = 2; code < TYPES.length; code++)
+			TYPES[code] = String.valueOf(kindOf((byte) code));
+	}
+
+	// Identifier for a piece, packing the type and the player into a byte as
+	// (type - '@') << 1 | player. We may change the type later.
+	private byte code;
 
 	// True if the piece is in play, false otherwise
 	private boolean onBoard;
@@ -24,10 +33,9 @@ public class Piece {
 	 * @param piecePlayer
 	 */
 	public Piece(String pieceType, Point position, int piecePlayer) {
-		this.pieceType = pieceType;
+		this.code = encode(pieceType, piecePlayer);
 		this.position = position;
 		this.onBoard = false;
-		this.piecePlayer = piecePlayer;
 	}
 
 	/**
@@ -40,10 +48,21 @@ public class Piece {
 	 */
 	public Piece(String pieceType, Point position, boolean onBoard,
 			int piecePlayer) {
-		this.pieceType = pieceType;
+		this.code = encode(pieceType, piecePlayer);
 		this.position = position;
 		this.onBoard = onBoard;
-		this.piecePlayer = piecePlayer;
+	}
+
+	/**
+	 * Constructs a new piece from a code and position.
+	 * 
+	 * @param code
+	 * @param position
+	 */
+	public Piece(byte code, Point position) {
+		this.code = code;
+		this.position = position;
+		this.onBoard = false;
 	}
 
 	/**
@@ -52,7 +71,26 @@ public class Piece {
 	 * @return pieceId
 	 */
 	public String getType() {
-		return pieceType;
+		return TYPES[code];
+	}
+
+	/**
+	 * Returns the type of this piece as a single character.
+	 * 
+	 * @return kind
+	 */
+	public char getKind() {
+		return kindOf(code);
+	}
+
+	/**
+	 * Returns the code of this piece, which carries both the type and the
+	 * player.
+	 * 
+	 * @return code
+	 */
+	public byte getCode() {
+		return code;
 	}
 
 	/**
@@ -88,7 +126,7 @@ public class Piece {
 	 * @return piecePlayer
 	 */
 	public int getPlayer() {
-		return piecePlayer;
+		return playerOf(code);
 	}
 
 	/**
@@ -111,9 +149,9 @@ public class Piece {
 		Piece p = (Piece) other;
 
 		if (p.getPosition() == null && position == null)
-			return p.getType().equals(getType());
+			return p.getKind() == getKind();
 
-		return getType().equals(p.getType())
+		return getKind() == p.getKind()
 				&& getPosition().equals(p.getPosition());
 	}
 
@@ -125,12 +163,12 @@ public class Piece {
 	 */
 	public boolean equalsIgnorePosition(Object other) {
 		Piece p = (Piece) other;
-		return getType().equals(p.getType());
+		return getKind() == p.getKind();
 	}
 
 	@Override
 	public int hashCode() {
-		return getType().toCharArray()[0];
+		return getKind();
 	}
 
 	/**
@@ -139,7 +177,61 @@ public class Piece {
 	 * @param type
 	 */
 	public void setType(String type) {
-		this.pieceType = type;
+		this.code = encode(type, getPlayer());
+	}
+
+	/**
+	 * Packs a type and a player into a code.
+	 * 
+	 * @param type
+	 *            a single character, A to z
+	 * @param player
+	 * @return code
+	 */
+	public static byte encode(String type, int player) {
+		return encode(type.charAt(0), player);
+	}
+
+	/**
+	 * Packs a type and a player into a code.
+	 * 
+	 * @param kind
+	 *            A to z
+	 * @param player
+	 * @return code
+	 */
+	public static byte encode(char kind, int player) {
+		return (byte) ((kind - '@') << 1 | player);
+	}
+
+	/**
+	 * Returns the type character of a code.
+	 * 
+	 * @param code
+	 * @return kind
+	 */
+	public static char kindOf(byte code) {
+		return (char) ((code >> 1) + '@');
+	}
+
+	/**
+	 * Returns the player of a code.
+	 * 
+	 * @param code
+	 * @return player
+	 */
+	public static int playerOf(byte code) {
+		return code & 1;
+	}
+
+	/**
+	 * Returns the type string of a code.
+	 * 
+	 * @param code
+	 * @return type, or null for NONE
+	 */
+	public static String typeOf(byte code) {
+		return TYPES[code];
 	}
 
 }
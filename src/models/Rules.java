@@ -3,6 +3,7 @@ package models;
 import java.util.ArrayList;
 import java.util.HashMap;
 
+import utils.Point;
 import utils.Vector;
 
 /**
@@ -13,8 +14,23 @@ import utils.Vector;
  *         rules since we create instances of this.
  */
 public abstract class Rules {
-	// A map from each piece to possible moves
-	private HashMap<Piece, ArrayList<Vector>> pieceToMoveMap;
+	// Longest step, in rows or columns, whose rays are kept
+	public static final int MAX_STEP = 2;
+	private static final int STEPS = 2 * MAX_STEP + 1;
+
+	// Rays of each board size made so far, by rows << 16 | cols, shared by
+	// every game of that size
+	private static final HashMap<Integer, Point[][][]> RAYS = new HashMap<Integer, Point[][][]>();
+
+	// Rays of this board, by square and then step. Built by the constructor
+	// as it sets the size, so the rules can be shared between threads
+	private Point[][][] rays;
+
+	// Number of piece codes, the size of tables indexed by them
+	public static final int CODES = 128;
+
+	// The possible moves of each piece, by piece code
+	private Vector[][] pieceMoves;
 
 	// A map from players to all of the possible pieces.
 	private HashMap<Integer, ArrayList<Piece>> allPieces;
@@ -28,7 +44,7 @@ public abstract class Rules {
 		rows = 0;
 		cols = 0;
 		
-		pieceToMoveMap = new HashMap<Piece, ArrayList<Vector>>();
+		pieceMoves = new Vector[CODES][];
 		allPieces = new HashMap<Integer, ArrayList<Piece>>();
 	}
 	/**
@@ -57,6 +73,7 @@ public abstract class Rules {
 	 */
 	public void setRows(int rows) {
 		this.rows = rows;
+		updateRays();
 	}
 
 	/**
@@ -67,6 +84,14 @@ public abstract class Rules {
 	 */
 	public void setCols(int cols) {
 		this.cols = cols;
+		updateRays();
+	}
+
+	/**
+	 * Looks up the rays of the board, once it has both rows and columns.
+	 */
+	private void updateRays() {
+		rays = rows > 0 && cols > 0 ? rays(rows, cols) : null;
 	}
 
 	/**
@@ -86,21 +111,95 @@ public abstract class Rules {
 	public abstract boolean isValidMove(Move m, Board b);
 	
 	/**
-	 * Defines the rules for each defined piece
+	 * Defines the moves of a piece. Should only be called by the constructor.
+	 * 
+	 * @param type
+	 * @param player
+	 * @param moves
+	 *            steps the piece can take, kept as they are
+	 */
+	protected void setPieceMoves(String type, int player, Vector[] moves) {
+		pieceMoves[Piece.encode(type, player)] = moves;
+	}
+
+	/**
+	 * Returns the moves of a piece. The array is the rules' own and must not
+	 * be changed.
+	 * 
+	 * @param code
+	 *            the piece's code
+	 * @return moves, null if the piece has none defined
+	 */
+	public Vector[] getPieceMoves(byte code) {
+		return pieceMoves[code];
+	}
+
+	/**
+	 * Returns the squares reached by taking a step over and over from a
+	 * square until going off the board, nearest first. The first is the
+	 * square a single step reaches, if it's on the board. The points are
+	 * shared and the array must not be changed.
 	 * 
-	 * @param h
+	 * @param row
+	 * @param col
+	 * @param step
+	 *            such as a vector of the move map
+	 * @return ray, empty if the first step goes off the board
 	 */
-	public void setPieceRules(HashMap<Piece, ArrayList<Vector>> h) {
-		this.pieceToMoveMap = h;
+	public Point[] getRay(int row, int col, Vector step) {
+		int dx = step.getDeltaX();
+		int dy = step.getDeltaY();
+		if (Math.abs(dx) > MAX_STEP || Math.abs(dy) > MAX_STEP)
+			return ray(row, col, dx, dy, rows, cols);
+
+		return rays[row * cols + col][(dx + MAX_STEP) * STEPS + dy + MAX_STEP];
 	}
 
 	/**
-	 * Returns the map from pieces to rules.
+	 * Returns the rays of every step from every square of a board size,
+	 * building them the first time the size is asked for.
 	 * 
-	 * @return pieceToMoveMap
+	 * @param rows
+	 * @param cols
+	 * @return rays, by square and then step
 	 */
-	public HashMap<Piece, ArrayList<Vector>> getMoveMap() {
-		return this.pieceToMoveMap;
+	private static synchronized Point[][][] rays(int rows, int cols) {
+		Integer size = rows << 16 | cols;
+		Point[][][] rays = RAYS.get(size);
+		if (rays != null)
+			return rays;
+
+		rays = new Point[rows * cols][STEPS * STEPS][];
+		for (int square = 0; square < rays.length; square++) {
+			for (int dx = -MAX_STEP; dx <= MAX_STEP; dx++) {
+				for (int dy = -MAX_STEP; dy <= MAX_STEP; dy++)
+					rays[square][(dx + MAX_STEP) * STEPS + dy + MAX_STEP] = ray(
+							square / cols, square % cols, dx, dy, rows, cols);
+			}
+		}
+
+		RAYS.put(size, rays);
+		return rays;
+	}
+
+	/**
+	 * Builds the ray of a step from a square.
+	 */
+	private static Point[] ray(int row, int col, int dx, int dy, int rows,
+			int cols) {
+		if (dx == 0 && dy == 0)
+			return new Point[0];
+
+		int length = 0;
+		for (int r = row + dx, c = col + dy; r >= 0 && r < rows && c >= 0
+				&& c < cols; r += dx, c += dy)
+			length++;
+
+		Point[] ray = new Point[length];
+		for (int i = 0; i < length; i++)
+			ray[i] = Point.valueOf(row + (i + 1) * dx, col + (i + 1) * dy);
+
+		return ray;
 	}
 
 	/**
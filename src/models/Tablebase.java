@@ -0,0 +1,20 @@
+package models;
+
+/**
+ * A database of positions solved ahead of time, which a search can look
+ * positions up in instead of searching them.
+ * 
+ * @author denniscui
+ * 
+ */
+public interface Tablebase {
+
+	/**
+	 * Looks up the result of a position with best play from both players.
+	 * 
+	 * @param g
+	 * @return state, as returned by Game.hasEnded, or NONE if the position
+	 *         isn't in the database
+	 */
+	int[] probe(Game g);
+}
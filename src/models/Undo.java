@@ -0,0 +1,101 @@
+package models;
+
+/**
+ * Everything needed to take back a move made with Game.doMove, so a search can
+ * walk a single game in place instead of cloning it for every child.
+ * 
+ * @author denniscui
+ * 
+ */
+public class Undo {
+
+	// The move that was made
+	private Move move;
+
+	// The turn before the move was made
+	private int turn;
+
+	// Restriction status before the move was made
+	private boolean restricted;
+	private Piece restrictedPiece;
+
+	// Game specific state, like castling rights
+	private int stateFlags;
+
+	// Position of the board journal before the move was made
+	private int boardMark;
+
+	/**
+	 * Creates a new undo record.
+	 * 
+	 * @param move
+	 * @param turn
+	 * @param restricted
+	 * @param restrictedPiece
+	 * @param stateFlags
+	 * @param boardMark
+	 */
+	public Undo(Move move, int turn, boolean restricted,
+			Piece restrictedPiece, int stateFlags, int boardMark) {
+		this.move = move;
+		this.turn = turn;
+		this.restricted = restricted;
+		this.restrictedPiece = restrictedPiece;
+		this.stateFlags = stateFlags;
+		this.boardMark = boardMark;
+	}
+
+	/**
+	 * Returns the move this record takes back.
+	 * 
+	 * @return move
+	 */
+	public Move getMove() {
+		return move;
+	}
+
+	/**
+	 * Returns the turn before the move was made.
+	 * 
+	 * @return turn
+	 */
+	public int getTurn() {
+		return turn;
+	}
+
+	/**
+	 * Returns the restriction status before the move was made.
+	 * 
+	 * @return restricted
+	 */
+	public boolean isRestricted() {
+		return restricted;
+	}
+
+	/**
+	 * Returns the restricted piece before the move was made.
+	 * 
+	 * @return restrictedPiece
+	 */
+	public Piece getRestrictedPiece() {
+		return restrictedPiece;
+	}
+
+	/**
+	 * Returns the game specific state before the move was made.
+	 * 
+	 * @return stateFlags
+	 */
+	public int getStateFlags() {
+		return stateFlags;
+	}
+
+	/**
+	 * Returns the board journal mark before the move was made.
+	 * 
+	 * @return boardMark
+	 */
+	public int getBoardMark() {
+		return boardMark;
+	}
+}
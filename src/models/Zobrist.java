@@ -0,0 +1,77 @@
+package models;
+
+import java.util.Random;
+
+/**
+ * Random keys for Zobrist hashing. A position's key is the XOR of the keys of
+ * its pieces, so a board can keep it up to date one square at a time. The keys
+ * come from a fixed seed, so the same position always has the same key.
+ * 
+ * @author denniscui
+ * 
+ */
+public final class Zobrist {
+
+	// Largest board supported, in squares
+	public static final int MAX_SQUARES = 64;
+
+	// Piece types are keyed by their first character
+	private static final int TYPES = 128;
+
+	private static final long[] PIECE_KEYS = new long[MAX_SQUARES * TYPES];
+
+	// Key for the maximizing player to move
+	public static final long SIDE_KEY;
+
+	// Keys for the bits of Game.getStateFlags
+	private static final long[] FLAG_KEYS = new long[32];
+
+	// Mixed into a piece key when that piece is the restricted piece
+	public static final long RESTRICTED_KEY;
+
+	static {
+		Random random = new Random(0x5EEDL);
+
+		for (int i = 0; i < PIECE_KEYS.length; i++)
+			PIECE_KEYS[i] = random.nextLong();
+
+		for (int i = 0; i < FLAG_KEYS.length; i++)
+			FLAG_KEYS[i] = random.nextLong();
+
+		SIDE_KEY = random.nextLong();
+		RESTRICTED_KEY = random.nextLong();
+	}
+
+	private Zobrist() {
+	}
+
+	/**
+	 * Returns the key of a piece on a square. Only the type counts, since it
+	 * already tells the players apart.
+	 * 
+	 * @param square
+	 *            row * cols + col
+	 * @param code
+	 * @return key
+	 */
+	public static long piece(int square, byte code) {
+		return PIECE_KEYS[square * TYPES + (Piece.kindOf(code) & (TYPES - 1))];
+	}
+
+	/**
+	 * Returns the key of a set of game state flags.
+	 * 
+	 * @param flags
+	 * @return key
+	 */
+	public static long flags(int flags) {
+		long key = 0L;
+
+		for (int bit = 0; flags != 0; bit++, flags >>>= 1) {
+			if ((flags & 1) != 0)
+				key ^= FLAG_KEYS[bit];
+		}
+
+		return key;
+	}
+}
@@ -0,0 +1,70 @@
+package records;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import models.Game;
+
+/**
+ * Reads game records written by BinaryWriter.
+ * 
+ * @author denniscui
+ * 
+ */
+public class BinaryReader implements RecordReader {
+
+	private DataInputStream in;
+
+	/**
+	 * Opens a file.
+	 * 
+	 * @param in
+	 * @throws IOException
+	 *             if the file isn't in the format
+	 */
+	public BinaryReader(InputStream in) throws IOException {
+		this.in = new DataInputStream(new BufferedInputStream(in));
+		if (this.in.readInt() != BinaryWriter.MAGIC
+				|| this.in.readShort() != BinaryWriter.VERSION)
+			throw new IOException("Not a game record file");
+	}
+
+	public GameRecord read() throws IOException {
+		int gameId = in.read();
+		if (gameId < 0)
+			return null;
+
+		try {
+			int result = in.readUnsignedByte();
+			int[] moves = new int[in.readUnsignedShort()];
+			for (int i = 0; i < moves.length; i++)
+				moves[i] = in.readUnsignedShort();
+
+			return new GameRecord(gameId, moves, state(result));
+		} catch (EOFException e) {
+			throw new IOException("Game cut short");
+		}
+	}
+
+	public void close() throws IOException {
+		in.close();
+	}
+
+	private static int[] state(int result) throws IOException {
+		switch (result) {
+		case BinaryWriter.UNFINISHED:
+			return new int[] { Game.NONE };
+		case BinaryWriter.DRAW:
+			return new int[] { Game.DRAW };
+		case BinaryWriter.FIRST_WINS:
+			return new int[] { Game.WIN, Game.MINIMIZING_PLAYER };
+		case BinaryWriter.SECOND_WINS:
+			return new int[] { Game.WIN, Game.MAXIMIZING_PLAYER };
+		default:
+			throw new IOException("Bad result " + result);
+		}
+	}
+}
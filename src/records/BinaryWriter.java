@@ -0,0 +1,74 @@
+package records;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import models.Game;
+
+/**
+ * Writes game records in a compact binary format, two bytes a move.
+ * 
+ * The file starts with MAGIC and VERSION. Each game follows as its game ID and
+ * result in a byte each, the number of moves as an unsigned short, and the
+ * code of each move as a short.
+ * 
+ * @author denniscui
+ * 
+ */
+public class BinaryWriter implements RecordWriter {
+
+	public static final int MAGIC = 0x54504752;
+	public static final int VERSION = 1;
+
+	// Results
+	public static final int UNFINISHED = 0;
+	public static final int DRAW = 1;
+	public static final int FIRST_WINS = 2;
+	public static final int SECOND_WINS = 3;
+
+	// Most moves a game can have
+	public static final int MAX_MOVES = 0xFFFF;
+
+	private DataOutputStream out;
+
+	/**
+	 * Starts a file.
+	 * 
+	 * @param out
+	 * @throws IOException
+	 */
+	public BinaryWriter(OutputStream out) throws IOException {
+		this.out = new DataOutputStream(new BufferedOutputStream(out));
+		this.out.writeInt(MAGIC);
+		this.out.writeShort(VERSION);
+	}
+
+	public void write(GameRecord record) throws IOException {
+		int[] moves = record.getMoves();
+		if (moves.length > MAX_MOVES)
+			throw new IllegalArgumentException("Too many moves: "
+					+ moves.length);
+
+		out.writeByte(record.getGameId());
+		out.writeByte(result(record.getState()));
+		out.writeShort(moves.length);
+		for (int move : moves)
+			out.writeShort(move);
+	}
+
+	public void close() throws IOException {
+		out.close();
+	}
+
+	private static int result(int[] state) {
+		if (state[0] == Game.DRAW)
+			return DRAW;
+		else if (state[0] == Game.WIN)
+			return state[1] == Game.MINIMIZING_PLAYER ? FIRST_WINS
+					: SECOND_WINS;
+		else
+			return UNFINISHED;
+	}
+}
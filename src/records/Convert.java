@@ -0,0 +1,93 @@
+package records;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+
+/**
+ * Converts game records from one format to another, a game at a time, so
+ * files of any size can be converted.
+ * 
+ * Usage: Convert input output
+ * 
+ * The format of each file is told by its name: .pgn for chess PGN, .pdn for
+ * checkers PDN, and anything else for the binary format of BinaryWriter.
+ * 
+ * @author denniscui
+ * 
+ */
+public class Convert {
+
+	public static final String ENCODING = "ISO-8859-1";
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: Convert input output");
+			return;
+		}
+
+		long start = System.currentTimeMillis();
+		RecordReader in = reader(args[0]);
+		int games = 0;
+		try {
+			RecordWriter out = writer(args[1]);
+			try {
+				GameRecord record;
+				while ((record = in.read()) != null) {
+					out.write(record);
+					games++;
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+
+		String skipped = "";
+		if (in instanceof NotationReader) {
+			NotationReader notation = (NotationReader) in;
+			skipped = ", " + notation.getSkipped() + " skipped, "
+					+ notation.getTruncated() + " cut short";
+		}
+
+		System.out.println(games + " games" + skipped + " in "
+				+ (System.currentTimeMillis() - start) + " ms");
+	}
+
+	/**
+	 * Opens a file for reading in the format its name tells.
+	 * 
+	 * @param fileName
+	 * @return reader
+	 * @throws IOException
+	 */
+	public static RecordReader reader(String fileName) throws IOException {
+		FileInputStream in = new FileInputStream(fileName);
+		if (fileName.endsWith(".pgn"))
+			return new PgnReader(new InputStreamReader(in, ENCODING));
+		else if (fileName.endsWith(".pdn"))
+			return new PdnReader(new InputStreamReader(in, ENCODING));
+		else
+			return new BinaryReader(in);
+	}
+
+	/**
+	 * Opens a file for writing in the format its name tells.
+	 * 
+	 * @param fileName
+	 * @return writer
+	 * @throws IOException
+	 */
+	public static RecordWriter writer(String fileName) throws IOException {
+		FileOutputStream out = new FileOutputStream(fileName);
+		if (fileName.endsWith(".pgn"))
+			return new PgnWriter(new OutputStreamWriter(out, ENCODING));
+		else if (fileName.endsWith(".pdn"))
+			return new PdnWriter(new OutputStreamWriter(out, ENCODING));
+		else
+			return new BinaryWriter(out);
+	}
+}
@@ -0,0 +1,176 @@
+package records;
+
+import java.util.ArrayList;
+
+import models.Game;
+import models.Move;
+import algorithms.TranspositionTable;
+import checkers.CheckersGame;
+import checkers.CheckersRules;
+import chess.ChessGame;
+import chess.ChessRules;
+import connect4.Connect4Game;
+import connect4.Connect4Rules;
+import tictactoe.TTTGame;
+import tictactoe.TTTRules;
+
+/**
+ * A game played from the starting position, kept as the codes of its moves
+ * rather than as Move objects, so that many can be read and written without
+ * replaying them.
+ * 
+ * Each move is its code from TranspositionTable.encodeMove, and a checkers
+ * jump that goes on counts a move for each step, as in Game.getMoves. The
+ * result is kept as Game.hasEnded returns it.
+ * 
+ * @author denniscui
+ * 
+ */
+public class GameRecord {
+
+	private int gameId;
+	private int[] moves;
+	private int[] state;
+
+	/**
+	 * Creates a record.
+	 * 
+	 * @param gameId
+	 * @param moves
+	 *            codes from TranspositionTable.encodeMove
+	 * @param state
+	 *            result, as from Game.hasEnded
+	 */
+	public GameRecord(int gameId, int[] moves, int[] state) {
+		this.gameId = gameId;
+		this.moves = moves;
+		this.state = state;
+	}
+
+	/**
+	 * Records a game that was played from the starting position.
+	 * 
+	 * @param g
+	 * @return record
+	 */
+	public static GameRecord fromGame(Game g) {
+		ArrayList<Move> played = g.getMoves();
+		int cols = g.getRules().getCols();
+		int[] moves = new int[played.size()];
+		for (int i = 0; i < moves.length; i++)
+			moves[i] = TranspositionTable.encodeMove(played.get(i), cols);
+
+		// A copy, so the game's listeners don't hear about the result
+		return new GameRecord(g.getId(), moves, g.clone().hasEnded());
+	}
+
+	/**
+	 * Replays the game.
+	 * 
+	 * @return game after the last move
+	 * @throws IllegalArgumentException
+	 *             if a move can't be made
+	 */
+	public Game toGame() {
+		Game g = newGame(gameId);
+		int cols = g.getRules().getCols();
+		for (int i = 0; i < moves.length; i++) {
+			ArrayList<Move> available = g.getAvailableMoves();
+			int index = TranspositionTable.findMove(available, moves[i], cols);
+			if (index < 0)
+				throw new IllegalArgumentException("Move " + (i + 1)
+						+ " can't be made");
+
+			g.addMove(available.get(index));
+		}
+
+		return g;
+	}
+
+	/**
+	 * Creates a game in its starting position.
+	 * 
+	 * @param gameId
+	 * @return game
+	 */
+	public static Game newGame(int gameId) {
+		switch (gameId) {
+		case Game.TICTACTOE:
+			return new TTTGame(Game.TICTACTOE, new TTTRules());
+		case Game.CONNECT_FOUR:
+			return new Connect4Game(Game.CONNECT_FOUR, new Connect4Rules());
+		case Game.CHECKERS:
+			return new CheckersGame(Game.CHECKERS, new CheckersRules());
+		case Game.CHESS:
+			return new ChessGame(Game.CHESS, new ChessRules());
+		default:
+			throw new IllegalArgumentException("Unknown game " + gameId);
+		}
+	}
+
+	/**
+	 * Writes the result the way PGN and PDN do, with the score of the player
+	 * who moves first, player 0, before the other's.
+	 * 
+	 * @return 1-0, 0-1, 1/2-1/2, or * if the game isn't over
+	 */
+	public String getResultString() {
+		if (state[0] == Game.DRAW)
+			return "1/2-1/2";
+		else if (state[0] == Game.WIN)
+			return state[1] == Game.MINIMIZING_PLAYER ? "1-0" : "0-1";
+		else
+			return "*";
+	}
+
+	/**
+	 * Reads a result written as by getResultString. The two points a win
+	 * scores in draughts are also understood.
+	 * 
+	 * @param result
+	 * @return state, as from Game.hasEnded
+	 */
+	public static int[] parseResult(String result) {
+		if (result.equals("1-0") || result.equals("2-0"))
+			return new int[] { Game.WIN, Game.MINIMIZING_PLAYER };
+		else if (result.equals("0-1") || result.equals("0-2"))
+			return new int[] { Game.WIN, Game.MAXIMIZING_PLAYER };
+		else if (result.equals("1/2-1/2") || result.equals("1-1"))
+			return new int[] { Game.DRAW };
+		else
+			return new int[] { Game.NONE };
+	}
+
+	/**
+	 * Checks if a token of PGN or PDN move text is a result.
+	 * 
+	 * @param token
+	 * @return true if it ends a game
+	 */
+	public static boolean isResult(String token) {
+		return token.equals("*")
+				|| parseResult(token)[0] != Game.NONE;
+	}
+
+	public int getGameId() {
+		return gameId;
+	}
+
+	/**
+	 * Returns the codes of the moves.
+	 * 
+	 * @return moves
+	 */
+	public int[] getMoves() {
+		return moves;
+	}
+
+	/**
+	 * Returns the result, as from Game.hasEnded.
+	 * 
+	 * @return state
+	 */
+	public int[] getState() {
+		return state;
+	}
+}
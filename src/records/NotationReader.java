@@ -0,0 +1,176 @@
+package records;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Reads games in the text formats PGN and PDN share: tag pairs such as
+ * [Result "1-0"], then numbered moves ending with the result. Comments in
+ * braces or after a semicolon, variations in parentheses and numeric
+ * annotations are skipped. Only one game is held in memory at a time.
+ * 
+ * Subclasses turn the moves of each game into a record.
+ * 
+ * @author denniscui
+ * 
+ */
+public abstract class NotationReader implements RecordReader {
+
+	private BufferedReader in;
+
+	// Games that couldn't be read at all, and games read only up to a move
+	// that couldn't be made
+	private int skipped;
+	private int truncated;
+
+	public NotationReader(Reader in) {
+		this.in = new BufferedReader(in);
+	}
+
+	public GameRecord read() throws IOException {
+		HashMap<String, String> tags = new HashMap<String, String>();
+		ArrayList<String> moves = new ArrayList<String>();
+		while (true) {
+			String result = readGame(tags, moves);
+			if (result == null && tags.isEmpty() && moves.isEmpty())
+				return null;
+
+			GameRecord record = toRecord(tags, moves, result == null ? "*"
+					: result);
+			if (record != null)
+				return record;
+
+			skipped++;
+			tags.clear();
+			moves.clear();
+		}
+	}
+
+	/**
+	 * Makes a record of a game.
+	 * 
+	 * @param tags
+	 *            by name
+	 * @param moves
+	 *            the move tokens, without move numbers
+	 * @param result
+	 *            the result token
+	 * @return record, or null to skip the game
+	 */
+	protected abstract GameRecord toRecord(HashMap<String, String> tags,
+			ArrayList<String> moves, String result);
+
+	/**
+	 * Counts a game whose record stops short, at a move that can't be made.
+	 */
+	protected void truncated() {
+		truncated++;
+	}
+
+	/**
+	 * Reads the tags and moves of the next game.
+	 * 
+	 * @param tags
+	 *            filled with the tags
+	 * @param moves
+	 *            filled with the moves
+	 * @return result token, or null if the file ended first
+	 * @throws IOException
+	 */
+	private String readGame(HashMap<String, String> tags,
+			ArrayList<String> moves) throws IOException {
+		boolean comment = false;
+		int variations = 0;
+		StringBuilder token = new StringBuilder();
+
+		String line;
+		while ((line = in.readLine()) != null) {
+			if (!comment && variations == 0) {
+				String trimmed = line.trim();
+				if (trimmed.startsWith("[")) {
+					tag(trimmed, tags);
+					continue;
+				} else if (trimmed.startsWith("%")) {
+					continue;
+				}
+			}
+
+			// One past the end to finish the last token
+			for (int i = 0; i <= line.length(); i++) {
+				char c = i < line.length() ? line.charAt(i) : ' ';
+				if (comment) {
+					comment = c != '}';
+					continue;
+				}
+
+				if (c != '{' && c != ';' && c != '(' && c != ')'
+						&& !Character.isWhitespace(c)) {
+					token.append(c);
+					continue;
+				}
+
+				if (token.length() > 0 && variations == 0) {
+					String t = token.toString();
+					if (GameRecord.isResult(t))
+						return t;
+
+					// Drop the move number, as in 12. or 12...
+					t = t.replaceFirst("^[0-9]+\\.+", "");
+					if (t.length() > 0 && t.charAt(0) != '$')
+						moves.add(t);
+				}
+				token.setLength(0);
+
+				if (c == '{')
+					comment = true;
+				else if (c == ';')
+					break;
+				else if (c == '(')
+					variations++;
+				else if (c == ')')
+					variations--;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Reads a tag pair, such as [White "Kasparov"].
+	 */
+	private static void tag(String line, HashMap<String, String> tags) {
+		int space = line.indexOf(' ');
+		int open = line.indexOf('"');
+		int close = line.lastIndexOf('"');
+		if (space < 0 || open < 0 || close <= open)
+			return;
+
+		tags.put(line.substring(1, space), line.substring(open + 1, close));
+	}
+
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Returns the number of games that couldn't be read at all.
+	 * 
+	 * @return games
+	 */
+	public int getSkipped() {
+		return skipped;
+	}
+
+	/**
+	 * Returns the number of games read only up to a move that couldn't be
+	 * made. Their records have no result.
+	 * 
+	 * @return games
+	 */
+	public int getTruncated() {
+		return truncated;
+	}
+}
@@ -0,0 +1,91 @@
+package records;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+
+/**
+ * Writes games in the text formats PGN and PDN share: the tag pairs of the
+ * seven tag roster, then the numbered moves, wrapped, ending with the result.
+ * 
+ * Subclasses write the moves of each turn.
+ * 
+ * @author denniscui
+ * 
+ */
+public abstract class NotationWriter implements RecordWriter {
+
+	// Longest line of move text
+	public static final int LINE_WIDTH = 79;
+
+	private BufferedWriter out;
+
+	public NotationWriter(Writer out) {
+		this.out = new BufferedWriter(out);
+	}
+
+	public void write(GameRecord record) throws IOException {
+		ArrayList<String[]> tags = tags(record);
+		for (String[] tag : tags)
+			out.write("[" + tag[0] + " \"" + tag[1] + "\"]\n");
+		out.write("\n");
+
+		ArrayList<String> turns = turns(record);
+		int width = 0;
+		for (int i = 0; i <= turns.size(); i++) {
+			String text;
+			if (i == turns.size())
+				text = record.getResultString();
+			else if (i % 2 == 0)
+				text = (i / 2 + 1) + ". " + turns.get(i);
+			else
+				text = turns.get(i);
+
+			if (width > 0 && width + 1 + text.length() > LINE_WIDTH) {
+				out.write("\n");
+				width = 0;
+			} else if (width > 0) {
+				out.write(" ");
+				width++;
+			}
+
+			out.write(text);
+			width += text.length();
+		}
+		out.write("\n\n");
+	}
+
+	/**
+	 * Lists the tags of a game, the seven tag roster by default.
+	 * 
+	 * @param record
+	 * @return name and value of each tag
+	 */
+	protected ArrayList<String[]> tags(GameRecord record) {
+		ArrayList<String[]> tags = new ArrayList<String[]>();
+		tags.add(new String[] { "Event", "?" });
+		tags.add(new String[] { "Site", "?" });
+		tags.add(new String[] { "Date", "????.??.??" });
+		tags.add(new String[] { "Round", "?" });
+		tags.add(new String[] { "White", "?" });
+		tags.add(new String[] { "Black", "?" });
+		tags.add(new String[] { "Result", record.getResultString() });
+		return tags;
+	}
+
+	/**
+	 * Writes the moves of a game.
+	 * 
+	 * @param record
+	 * @return the text of each turn
+	 * @throws IOException
+	 *             if a move can't be made
+	 */
+	protected abstract ArrayList<String> turns(GameRecord record)
+			throws IOException;
+
+	public void close() throws IOException {
+		out.close();
+	}
+}
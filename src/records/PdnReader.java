@@ -0,0 +1,145 @@
+package records;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import models.Game;
+import models.Move;
+import models.Undo;
+import utils.Point;
+import algorithms.TranspositionTable;
+import checkers.CheckersPosition;
+
+/**
+ * Reads checkers games from PDN, with moves such as 11-15, 22x15 or
+ * 15x24x31. The squares a multi-jump passes through may be left out, as in
+ * 15x31, as long as only one jump fits. The first player in the result, as in
+ * 1-0, is Black, who moves first, which is red here.
+ * 
+ * Games set up from another position with a FEN tag are skipped. A move that
+ * can't be made ends the record early, and the record has no result.
+ * 
+ * @author denniscui
+ * 
+ */
+public class PdnReader extends NotationReader {
+
+	public PdnReader(Reader in) {
+		super(in);
+	}
+
+	@Override
+	protected GameRecord toRecord(HashMap<String, String> tags,
+			ArrayList<String> moves, String result) {
+		String fen = tags.get("FEN");
+		if (fen != null && !fen.trim().equals(CheckersPosition.START))
+			return null;
+
+		Game g = GameRecord.newGame(Game.CHECKERS);
+		int cols = g.getRules().getCols();
+		ArrayList<Integer> codes = new ArrayList<Integer>();
+		boolean complete = true;
+		for (String move : moves) {
+			ArrayList<Move> steps = parse(g, move);
+			if (steps == null) {
+				truncated();
+				complete = false;
+				break;
+			}
+
+			for (Move m : steps) {
+				codes.add(TranspositionTable.encodeMove(m, cols));
+				g.addMove(m);
+			}
+		}
+
+		int[] moveCodes = new int[codes.size()];
+		for (int i = 0; i < moveCodes.length; i++)
+			moveCodes[i] = codes.get(i);
+
+		int[] state = complete ? GameRecord.parseResult(result)
+				: new int[] { Game.NONE };
+		return new GameRecord(Game.CHECKERS, moveCodes, state);
+	}
+
+	/**
+	 * Finds the steps of the turn a move stands for.
+	 * 
+	 * @param g
+	 * @param move
+	 *            such as 11-15 or 15x24x31
+	 * @return steps, each a Move of the game, or null if there is no such
+	 *         move
+	 */
+	public static ArrayList<Move> parse(Game g, String move) {
+		String[] parts = move.replaceFirst("[!?]+$", "").split("[-x]");
+		if (parts.length < 2)
+			return null;
+
+		int[] squares = new int[parts.length];
+		try {
+			for (int i = 0; i < parts.length; i++)
+				squares[i] = Integer.parseInt(parts[i]);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+
+		for (int square : squares) {
+			if (square < 1 || square > 32)
+				return null;
+		}
+
+		ArrayList<Move> steps = new ArrayList<Move>();
+		return steps(g, CheckersPosition.toPoint(squares[0]), squares, 1,
+				steps) ? steps : null;
+	}
+
+	/**
+	 * Looks for steps from a square that pass through the rest of the listed
+	 * squares and end the turn on the last. Only jumps may land on a square
+	 * that isn't listed.
+	 * 
+	 * @param g
+	 *            left as it was
+	 * @param from
+	 * @param squares
+	 * @param next
+	 *            index of the next listed square to reach
+	 * @param steps
+	 *            filled with the steps found
+	 * @return true if the steps were found
+	 */
+	private static boolean steps(Game g, Point from, int[] squares, int next,
+			ArrayList<Move> steps) {
+		int player = g.getTurn();
+		for (Move m : g.getAvailableMoves()) {
+			if (!m.getStart().equals(from))
+				continue;
+
+			boolean jump = Math.abs(m.getEnd().getX() - from.getX()) == 2;
+			int to = CheckersPosition.toSquare(m.getEnd());
+			int reached = to == squares[next] ? next + 1 : next;
+			if (reached == next && !jump)
+				continue;
+
+			Undo undo = g.doMove(m);
+			steps.add(m);
+
+			boolean found;
+			if (g.getTurn() != player)
+				found = reached == squares.length;
+			else
+				found = reached < squares.length
+						&& steps(g, m.getEnd(), squares, reached, steps);
+
+			g.undoMove(undo);
+			if (found)
+				return true;
+
+			steps.remove(steps.size() - 1);
+		}
+
+		return false;
+	}
+}
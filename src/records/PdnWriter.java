@@ -0,0 +1,72 @@
+package records;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+
+import models.Game;
+import models.Move;
+import algorithms.TranspositionTable;
+import checkers.CheckersPosition;
+
+/**
+ * Writes checkers games as PDN. A multi-jump is written as one move through
+ * every square it lands on, such as 15x24x31.
+ * 
+ * @author denniscui
+ * 
+ */
+public class PdnWriter extends NotationWriter {
+
+	// PDN's number for English checkers
+	public static final String GAME_TYPE = "21";
+
+	public PdnWriter(Writer out) {
+		super(out);
+	}
+
+	@Override
+	protected ArrayList<String[]> tags(GameRecord record) {
+		ArrayList<String[]> tags = super.tags(record);
+		tags.add(new String[] { "GameType", GAME_TYPE });
+		return tags;
+	}
+
+	@Override
+	protected ArrayList<String> turns(GameRecord record) throws IOException {
+		if (record.getGameId() != Game.CHECKERS)
+			throw new IOException("Not a checkers game");
+
+		Game g = GameRecord.newGame(Game.CHECKERS);
+		int cols = g.getRules().getCols();
+		ArrayList<String> turns = new ArrayList<String>();
+		StringBuilder turn = new StringBuilder();
+		int[] moves = record.getMoves();
+		for (int i = 0; i < moves.length; i++) {
+			ArrayList<Move> available = g.getAvailableMoves();
+			int index = TranspositionTable.findMove(available, moves[i], cols);
+			if (index < 0)
+				throw new IOException("Move " + (i + 1) + " can't be made");
+
+			Move m = available.get(index);
+			String step = CheckersPosition.toNotation(m);
+			if (turn.length() == 0)
+				turn.append(step);
+			else
+				turn.append(step.substring(step.indexOf('x')));
+
+			int player = g.getTurn();
+			g.addMove(m);
+			if (g.getTurn() != player) {
+				turns.add(turn.toString());
+				turn.setLength(0);
+			}
+		}
+
+		// A game can stop partway through a jump
+		if (turn.length() > 0)
+			turns.add(turn.toString());
+
+		return turns;
+	}
+}
@@ -0,0 +1,183 @@
+package records;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import models.Game;
+import models.Move;
+import models.Piece;
+import models.Undo;
+import algorithms.TranspositionTable;
+import chess.ChessPosition;
+
+/**
+ * Reads chess games from PGN, with moves in standard algebraic notation.
+ * 
+ * Games set up from another position with a FEN tag are skipped. A move the
+ * rules here can't make, such as a promotion or an en passant capture, ends
+ * the record early, and the record has no result.
+ * 
+ * @author denniscui
+ * 
+ */
+public class PgnReader extends NotationReader {
+
+	public PgnReader(Reader in) {
+		super(in);
+	}
+
+	@Override
+	protected GameRecord toRecord(HashMap<String, String> tags,
+			ArrayList<String> moves, String result) {
+		String fen = tags.get("FEN");
+		if (fen != null && !sameFields(fen, ChessPosition.START, 4))
+			return null;
+
+		Game g = GameRecord.newGame(Game.CHESS);
+		int cols = g.getRules().getCols();
+		int[] codes = new int[moves.size()];
+		int n = 0;
+		for (String san : moves) {
+			Move m = parse(g, san);
+			if (m == null) {
+				truncated();
+				break;
+			}
+
+			codes[n++] = TranspositionTable.encodeMove(m, cols);
+			g.addMove(m);
+		}
+
+		int[] state = n == codes.length ? GameRecord.parseResult(result)
+				: new int[] { Game.NONE };
+		return new GameRecord(Game.CHESS, copy(codes, n), state);
+	}
+
+	/**
+	 * Finds the move a SAN token stands for, such as e4, Nbd7, exd5 or O-O.
+	 * 
+	 * @param g
+	 * @param san
+	 * @return move, or null if there is no such move or more than one that
+	 *         doesn't leave the king to be taken
+	 */
+	public static Move parse(Game g, String san) {
+		// Check and annotation marks
+		san = san.replaceFirst("[+#!?]+$", "");
+
+		if (san.startsWith("O-O") || san.startsWith("0-0")) {
+			boolean queenSide = san.length() > 3;
+			for (Move m : g.getAvailableMoves()) {
+				int dy = m.getEnd().getY() - m.getStart().getY();
+				if (kind(m) == 'k' && Math.abs(dy) == 2
+						&& (dy < 0) == queenSide)
+					return m;
+			}
+
+			return null;
+		}
+
+		// Pawns are never promoted here
+		if (san.indexOf('=') >= 0 || san.length() < 2)
+			return null;
+
+		char kind = 'p';
+		int first = 0;
+		if ("NBRQK".indexOf(san.charAt(0)) >= 0) {
+			kind = Character.toLowerCase(san.charAt(0));
+			first = 1;
+		}
+
+		int col = san.charAt(san.length() - 2) - 'a';
+		int row = '8' - san.charAt(san.length() - 1);
+		if (col < 0 || col > 7 || row < 0 || row > 7)
+			return null;
+
+		int fromCol = -1;
+		int fromRow = -1;
+		for (int i = first; i < san.length() - 2; i++) {
+			char c = san.charAt(i);
+			if (c >= 'a' && c <= 'h')
+				fromCol = c - 'a';
+			else if (c >= '1' && c <= '8')
+				fromRow = '8' - c;
+			else if (c != 'x')
+				return null;
+		}
+
+		ArrayList<Move> found = new ArrayList<Move>();
+		for (Move m : g.getAvailableMoves()) {
+			if (kind(m) != kind || m.getEnd().getX() != row
+					|| m.getEnd().getY() != col
+					|| (fromCol >= 0 && m.getStart().getY() != fromCol)
+					|| (fromRow >= 0 && m.getStart().getX() != fromRow))
+				continue;
+
+			found.add(m);
+		}
+
+		// The moves are only pseudo-legal, and SAN doesn't tell a move apart
+		// from one by a pinned piece
+		if (found.size() > 1) {
+			for (int i = found.size() - 1; i >= 0; i--) {
+				if (exposesKing(g, found.get(i)))
+					found.remove(i);
+			}
+		}
+
+		return found.size() == 1 ? found.get(0) : null;
+	}
+
+	/**
+	 * Checks if a move leaves the king of the player making it to be taken
+	 * by the reply.
+	 * 
+	 * @param g
+	 * @param m
+	 *            one of the available moves
+	 * @return true iff the move is not legal
+	 */
+	static boolean exposesKing(Game g, Move m) {
+		int player = g.getTurn();
+		Undo undo = g.doMove(m);
+		boolean exposed = false;
+		for (Move reply : g.getAvailableMoves()) {
+			for (Piece p : reply.getAffected()) {
+				if (p.getPlayer() == player
+						&& Character.toLowerCase(p.getKind()) == 'k')
+					exposed = true;
+			}
+		}
+		g.undoMove(undo);
+
+		return exposed;
+	}
+
+	/**
+	 * Returns the kind of the piece a move moves, in lower case.
+	 */
+	static char kind(Move m) {
+		return Character.toLowerCase(m.getPiece().getKind());
+	}
+
+	/**
+	 * Checks if the first fields of two strings split by spaces are the same.
+	 */
+	private static boolean sameFields(String a, String b, int fields) {
+		String[] as = a.trim().split("\\s+");
+		String[] bs = b.trim().split("\\s+");
+		for (int i = 0; i < fields; i++) {
+			if (i >= as.length || i >= bs.length || !as[i].equals(bs[i]))
+				return false;
+		}
+
+		return true;
+	}
+
+	static int[] copy(int[] codes, int length) {
+		int[] copy = new int[length];
+		System.arraycopy(codes, 0, copy, 0, length);
+		return copy;
+	}
+}
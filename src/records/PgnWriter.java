@@ -0,0 +1,131 @@
+package records;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+
+import models.Game;
+import models.Move;
+import models.Piece;
+import models.Undo;
+import algorithms.TranspositionTable;
+import chess.ChessPosition;
+
+/**
+ * Writes chess games as PGN, with moves in standard algebraic notation.
+ * 
+ * @author denniscui
+ * 
+ */
+public class PgnWriter extends NotationWriter {
+
+	public PgnWriter(Writer out) {
+		super(out);
+	}
+
+	@Override
+	protected ArrayList<String> turns(GameRecord record) throws IOException {
+		if (record.getGameId() != Game.CHESS)
+			throw new IOException("Not a chess game");
+
+		Game g = GameRecord.newGame(Game.CHESS);
+		int cols = g.getRules().getCols();
+		ArrayList<String> turns = new ArrayList<String>();
+		for (int code : record.getMoves()) {
+			ArrayList<Move> available = g.getAvailableMoves();
+			int index = TranspositionTable.findMove(available, code, cols);
+			if (index < 0)
+				throw new IOException("Move " + (turns.size() + 1)
+						+ " can't be made");
+
+			Move m = available.get(index);
+			String san = toSan(g, m, available);
+			g.addMove(m);
+			if (givesCheck(g))
+				san += "+";
+
+			turns.add(san);
+		}
+
+		return turns;
+	}
+
+	/**
+	 * Writes a move in standard algebraic notation, without the check mark.
+	 * Like the reader, it ignores moves that would leave the king to be taken
+	 * when telling moves apart.
+	 * 
+	 * @param g
+	 *            the game before the move
+	 * @param m
+	 * @param available
+	 *            the moves it was chosen from
+	 * @return notation
+	 */
+	public static String toSan(Game g, Move m, ArrayList<Move> available) {
+		char kind = PgnReader.kind(m);
+		int fromRow = m.getStart().getX();
+		int fromCol = m.getStart().getY();
+		int dy = m.getEnd().getY() - fromCol;
+		if (kind == 'k' && Math.abs(dy) == 2)
+			return dy > 0 ? "O-O" : "O-O-O";
+
+		boolean capture = !m.getAffected().isEmpty();
+		String from = "";
+		if (kind == 'p') {
+			if (capture)
+				from = ChessPosition.square(m.getStart()).substring(0, 1);
+		} else {
+			// Name the file, the rank or both, whichever tells the move
+			// apart from others of the same kind to the same square
+			boolean other = false;
+			boolean sameCol = false;
+			boolean sameRow = false;
+			for (Move o : available) {
+				if (o == m || PgnReader.kind(o) != kind
+						|| !o.getEnd().equals(m.getEnd())
+						|| PgnReader.exposesKing(g, o))
+					continue;
+
+				other = true;
+				sameCol |= o.getStart().getY() == fromCol;
+				sameRow |= o.getStart().getX() == fromRow;
+			}
+
+			String square = ChessPosition.square(m.getStart());
+			if (other && !sameCol)
+				from = square.substring(0, 1);
+			else if (other && !sameRow)
+				from = square.substring(1);
+			else if (other)
+				from = square;
+		}
+
+		String piece = kind == 'p' ? "" : String.valueOf(Character
+				.toUpperCase(kind));
+		return piece + from + (capture ? "x" : "")
+				+ ChessPosition.square(m.getEnd());
+	}
+
+	/**
+	 * Checks if the player who just moved could take the other's king next,
+	 * were it their move again.
+	 */
+	private static boolean givesCheck(Game g) {
+		if (g.hasEnded()[0] != Game.NONE)
+			return false;
+
+		Undo undo = g.doNullMove();
+		boolean check = false;
+		for (Move m : g.getAvailableMoves()) {
+			for (Piece p : m.getAffected()) {
+				if (p.getPlayer() != g.getTurn()
+						&& Character.toLowerCase(p.getKind()) == 'k')
+					check = true;
+			}
+		}
+		g.undoNullMove(undo);
+
+		return check;
+	}
+}
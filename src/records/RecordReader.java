@@ -0,0 +1,22 @@
+package records;
+
+import java.io.IOException;
+
+/**
+ * Reads game records one at a time from a file of any size.
+ * 
+ * @author denniscui
+ * 
+ */
+public interface RecordReader {
+
+	/**
+	 * Reads the next game.
+	 * 
+	 * @return record, or null at the end of the file
+	 * @throws IOException
+	 */
+	GameRecord read() throws IOException;
+
+	void close() throws IOException;
+}
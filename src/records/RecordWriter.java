@@ -0,0 +1,22 @@
+package records;
+
+import java.io.IOException;
+
+/**
+ * Writes game records one at a time.
+ * 
+ * @author denniscui
+ * 
+ */
+public interface RecordWriter {
+
+	/**
+	 * Writes a game.
+	 * 
+	 * @param record
+	 * @throws IOException
+	 */
+	void write(GameRecord record) throws IOException;
+
+	void close() throws IOException;
+}
@@ -76,6 +76,38 @@ public class TTTGame extends Game {
 
 	@Override
 	public int scoreGame() {
+		return scoreGame(hasEnded());
+	}
+
+	@Override
+	public int scoreGame(int[] currentState) {
+		// The board keeps the sum of the static position scores
+		int baseScore = ((TTTBoard) getBoard()).getPositionScore();
+
+		// Adds a certain amount depending on the state of the game
+		if (currentState[0] == Game.DRAW) {
+			// At least we didn't lose.
+			baseScore += 250;
+		} else if (currentState[0] == Game.WIN) {
+			// Great for the maximizing player, bad otherwise.
+			baseScore += currentState[1] == Game.MAXIMIZING_PLAYER ? 1000
+					: -1000;
+		}
+
+		if (CHECK_EVALUATION && baseScore != scoreGameByScan())
+			throw new IllegalStateException("Incremental score " + baseScore
+					+ " but full score " + scoreGameByScan());
+
+		return baseScore;
+	}
+
+	/**
+	 * Scores the game from the list of moves, without the score kept by the
+	 * board. Used to check scoreGame.
+	 * 
+	 * @return score
+	 */
+	public int scoreGameByScan() {
 		int baseScore = 0;
 
 		// Calculates a base score based on static position scores
@@ -105,15 +137,7 @@ public class TTTGame extends Game {
 		Board clonedBoard = new TTTBoard(getRules().getRows(), getRules()
 				.getCols(), (ArrayList<Piece>) getBoard().getPieces().clone());
 
-		String[][] newMatrix = new String[getRules().getRows()][getRules()
-				.getCols()];
-		for (int r = 0; r < getRules().getRows(); r++) {
-			for (int c = 0; c < getRules().getCols(); c++) {
-				newMatrix[r][c] = getBoard().getMatrix()[r][c];
-			}
-		}
-
-		clonedBoard.setMatrix(newMatrix);
+		clonedBoard.setSquares(getBoard().getSquares());
 
 		return new TTTGame(this.getId(), clonedBoard, this.getRules(),
 				this.getTurn(), (ArrayList<Move>) this.getMoves().clone());
@@ -128,11 +152,11 @@ public class TTTGame extends Game {
 			// Iterate over the rows
 			for (int r = 0; r < this.getRules().getRows(); r++) {
 				// Add the first null position
-				if (getBoard().getMatrix()[r][c] == null) {
+				if (getBoard().isEmpty(r, c)) {
+					Point end = Point.valueOf(r, c);
 					Piece p = new Piece(this.getRules().getPieces()
-							.get(getTurn()).get(0).getType(), new Point(r, c),
-							getTurn());
-					possibleMoves.add(new Move(p, null, new Point(r, c)));
+							.get(getTurn()).get(0).getType(), end, getTurn());
+					possibleMoves.add(new Move(p, null, end));
 				}
 			}
 		}
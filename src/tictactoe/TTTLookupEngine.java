@@ -0,0 +1,297 @@
+package tictactoe;
+
+import models.Game;
+import models.Move;
+import models.Piece;
+import engine.GameEngine;
+
+/**
+ * The class that implements GameEngine by looking up the best move in a table
+ * of every tic-tac-toe position, built once when the class is loaded.
+ * 
+ * A position is keyed by its squares as a base 3 number, 0 for an empty
+ * square and 1 or 2 for a piece of player 0 or 1, together with the player to
+ * move. The eight rotations and reflections of a board play the same, so
+ * only the smallest key among them is stored, with the best move on that
+ * board. Positions reached with either player moving first are included.
+ * 
+ * @author denniscui
+ * 
+ */
+public class TTTLookupEngine extends GameEngine {
+
+	private static final int SIZE = 3;
+	private static final int SQUARES = SIZE * SIZE;
+
+	// Score of a win, less the number of pieces on the board when it's won,
+	// so that quicker wins score higher
+	private static final int WIN = SQUARES + 1;
+
+	private static final int[][] LINES = new int[][] { { 0, 1, 2 },
+			{ 3, 4, 5 }, { 6, 7, 8 }, { 0, 3, 6 }, { 1, 4, 7 }, { 2, 5, 8 },
+			{ 0, 4, 8 }, { 2, 4, 6 } };
+
+	// Where each square goes under each rotation and reflection
+	private static final int[][] SYMMETRIES = symmetries();
+
+	// What a piece on each square adds to a key, by square counted from the
+	// last
+	private static final int[] POWERS = new int[] { 1, 3, 9, 27, 81, 243,
+			729, 2187, 6561 };
+
+	// Slots in the table, a power of two over twice the number of positions
+	private static final int TABLE_SIZE = 4096;
+
+	// Key plus one of the position in each slot, so zero means empty, and
+	// the best move there and its score for the player to move. Only filled
+	// while the class loads, so engines on any thread can read them.
+	private static final int[] KEYS = new int[TABLE_SIZE];
+	private static final byte[] MOVES = new byte[TABLE_SIZE];
+	private static final byte[] SCORES = new byte[TABLE_SIZE];
+
+	private static int positions;
+
+	static {
+		for (int player = 0; player < 2; player++)
+			solve(new int[SQUARES], player, 0, true);
+	}
+
+	public Move getMove(Game g) {
+		int[] squares = new int[SQUARES];
+		int pieces = 0;
+		for (int i = 0; i < SQUARES; i++) {
+			int row = i / SIZE;
+			int col = i % SIZE;
+			if (!g.getBoard().isEmpty(row, col)) {
+				squares[i] = Piece.playerOf(g.getBoard().getCode(row, col)) + 1;
+				pieces++;
+			}
+		}
+
+		// Only a position some game could have reached is in the table, so
+		// anything else is solved here, without storing it
+		int best = lookup(squares, g.getTurn());
+		if (best < 0) {
+			int bestScore = Integer.MIN_VALUE;
+			for (int i = 0; i < SQUARES; i++) {
+				if (squares[i] != 0)
+					continue;
+
+				int score = score(squares, i, g.getTurn(), pieces, false);
+				if (score > bestScore) {
+					bestScore = score;
+					best = i;
+				}
+			}
+		}
+
+		for (Move m : g.getAvailableMoves()) {
+			if (m.getEnd().getX() * SIZE + m.getEnd().getY() == best)
+				return m;
+		}
+
+		throw new IllegalStateException("No move to square " + best);
+	}
+
+	/**
+	 * Returns the number of positions in the table, after symmetry.
+	 * 
+	 * @return positions
+	 */
+	public static int getPositions() {
+		return positions;
+	}
+
+	/**
+	 * Finds a position in the table.
+	 * 
+	 * @param squares
+	 * @param player
+	 *            player to move
+	 * @return the best square on the given board, or -1 if the position
+	 *         isn't in the table
+	 */
+	private static int lookup(int[] squares, int player) {
+		int symmetry = canonical(squares);
+		int key = key(squares, SYMMETRIES[symmetry], player);
+		int slot = find(key);
+		if (KEYS[slot] == 0)
+			return -1;
+
+		// Turn the move back from the stored board to this one
+		int move = MOVES[slot];
+		for (int i = 0; i < SQUARES; i++) {
+			if (SYMMETRIES[symmetry][i] == move)
+				return i;
+		}
+
+		throw new IllegalStateException("Bad move " + move);
+	}
+
+	/**
+	 * Works out the best move of a position that isn't over, and of every
+	 * position after it, and stores them if asked to.
+	 * 
+	 * @param squares
+	 *            left as they were
+	 * @param player
+	 *            player to move
+	 * @param pieces
+	 *            pieces on the board
+	 * @param store
+	 *            true only while the class loads
+	 * @return score for the player to move
+	 */
+	private static int solve(int[] squares, int player, int pieces,
+			boolean store) {
+		int symmetry = canonical(squares);
+		int key = key(squares, SYMMETRIES[symmetry], player);
+		int slot = find(key);
+		if (KEYS[slot] != 0)
+			return SCORES[slot];
+
+		int bestScore = Integer.MIN_VALUE;
+		int best = -1;
+		for (int i = 0; i < SQUARES; i++) {
+			if (squares[i] != 0)
+				continue;
+
+			int score = score(squares, i, player, pieces, store);
+			if (score > bestScore) {
+				bestScore = score;
+				best = i;
+			}
+		}
+
+		if (!store)
+			return bestScore;
+
+		// The slot may have been taken by a position further on
+		slot = find(key);
+		KEYS[slot] = key + 1;
+		MOVES[slot] = (byte) SYMMETRIES[symmetry][best];
+		SCORES[slot] = (byte) bestScore;
+		positions++;
+
+		return bestScore;
+	}
+
+	/**
+	 * Scores a move for the player making it.
+	 * 
+	 * @param squares
+	 *            left as they were
+	 * @param square
+	 *            an empty square to move to
+	 * @param player
+	 * @param pieces
+	 *            pieces on the board before the move
+	 * @param store
+	 *            whether to store the positions solved on the way
+	 * @return score
+	 */
+	private static int score(int[] squares, int square, int player,
+			int pieces, boolean store) {
+		squares[square] = player + 1;
+		int score;
+		if (hasLine(squares, player + 1))
+			score = WIN - (pieces + 1);
+		else if (pieces + 1 == SQUARES)
+			score = 0;
+		else
+			score = -solve(squares, 1 - player, pieces + 1, store);
+		squares[square] = 0;
+
+		return score;
+	}
+
+	/**
+	 * Returns the slot of a key in the table, or the empty slot it would go
+	 * in.
+	 * 
+	 * @param key
+	 * @return slot
+	 */
+	private static int find(int key) {
+		int slot = (key * 0x9E3779B1) >>> 20;
+		while (KEYS[slot] != 0 && KEYS[slot] != key + 1)
+			slot = (slot + 1) & (TABLE_SIZE - 1);
+
+		return slot;
+	}
+
+	/**
+	 * Returns the symmetry that gives the board its smallest key.
+	 * 
+	 * @param squares
+	 * @return index into SYMMETRIES
+	 */
+	private static int canonical(int[] squares) {
+		int best = 0;
+		int bestKey = Integer.MAX_VALUE;
+		for (int s = 0; s < SYMMETRIES.length; s++) {
+			int key = key(squares, SYMMETRIES[s], 0);
+			if (key < bestKey) {
+				bestKey = key;
+				best = s;
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * Returns the key of a board after moving its squares.
+	 * 
+	 * @param squares
+	 * @param symmetry
+	 *            where each square goes
+	 * @param player
+	 *            player to move
+	 * @return key
+	 */
+	private static int key(int[] squares, int[] symmetry, int player) {
+		int key = 0;
+		for (int i = 0; i < SQUARES; i++)
+			key += squares[i] * POWERS[SQUARES - 1 - symmetry[i]];
+
+		return key * 2 + player;
+	}
+
+	private static boolean hasLine(int[] squares, int value) {
+		for (int[] line : LINES) {
+			if (squares[line[0]] == value && squares[line[1]] == value
+					&& squares[line[2]] == value)
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Lists the four rotations of the board, each also reflected.
+	 * 
+	 * @return the square each square goes to, for each symmetry
+	 */
+	private static int[][] symmetries() {
+		int[][] symmetries = new int[8][SQUARES];
+		for (int s = 0; s < 8; s++) {
+			for (int i = 0; i < SQUARES; i++) {
+				int row = i / SIZE;
+				int col = i % SIZE;
+				if (s >= 4)
+					col = SIZE - 1 - col;
+
+				for (int r = 0; r < s % 4; r++) {
+					int turned = col;
+					col = SIZE - 1 - row;
+					row = turned;
+				}
+
+				symmetries[s][i] = row * SIZE + col;
+			}
+		}
+
+		return symmetries;
+	}
+}
@@ -67,6 +67,6 @@ public class TTTRules extends models.Rules {
 		int endX = m.getEnd().getX();
 		int endY = m.getEnd().getY();
 
-		return b.getMatrix()[endX][endY] == null;
+		return b.isEmpty(endX, endY);
 	}
 }
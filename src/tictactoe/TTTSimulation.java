@@ -39,8 +39,8 @@ public class TTTSimulation {
 				if (x < 0 || x > 2 || y < 0 || y > 2)
 					continue;
 				else {
-					Piece p = new Piece("X", new Point(x, y), g.getTurn());
-					g.addMove(new Move(p, null, new Point(x, y)));
+					Piece p = new Piece("X", Point.valueOf(x, y), g.getTurn());
+					g.addMove(new Move(p, null, Point.valueOf(x, y)));
 					System.out.println(g.getBoard().toString());
 					System.out.println(g.scoreGame());
 				}
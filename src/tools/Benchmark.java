@@ -0,0 +1,420 @@
+package tools;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Random;
+
+import algorithms.AlphaBeta;
+import algorithms.PVS;
+import algorithms.TranspositionTable;
+import checkers.CheckersGame;
+import checkers.CheckersRules;
+import chess.ChessGame;
+import chess.ChessRules;
+import connect4.Connect4Game;
+import connect4.Connect4Rules;
+import models.Game;
+import models.Move;
+import models.Undo;
+import tictactoe.TTTGame;
+import tictactoe.TTTRules;
+
+/**
+ * Measures the speed of the game models and the search on a fixed set of
+ * positions, so changes can be checked for regressions. Runs on a plain JVM.
+ * 
+ * Each benchmark is warmed up, then timed over several iterations. The output
+ * is operations per second with its spread over the iterations, and the bytes
+ * allocated per operation when the JVM can report them.
+ * 
+ * Usage: Benchmark [filter] [millis per iteration]. Only benchmarks whose name
+ * contains the filter are run.
+ * 
+ * @author denniscui
+ * 
+ */
+public class Benchmark {
+
+	public static final int WARMUP_ITERATIONS = 3;
+	public static final int MEASURE_ITERATIONS = 5;
+	public static final long DEFAULT_ITERATION_MILLIS = 1000;
+
+	// Depth of the chess searches that measure selective pruning
+	public static final int PRUNING_DEPTH = 5;
+
+	// Playout lengths of the positions in the corpus
+	private static final int[] TTT_PLIES = { 0, 2, 4 };
+	private static final int[] PLIES = { 0, 6, 12, 20 };
+
+	// Results are folded in here so the JIT cannot drop the work
+	public static long sink;
+
+	/**
+	 * One operation to measure, applied to a position.
+	 */
+	public interface Operation {
+		void run(Game g);
+	}
+
+	public static void main(String[] args) {
+		String filter = args.length > 0 ? args[0] : "";
+		long millis = args.length > 1 ? Long.parseLong(args[1])
+				: DEFAULT_ITERATION_MILLIS;
+
+		System.out.println(String.format("%-36s %14s %10s %12s %10s",
+				"Benchmark", "ops/s", "+/-", "bytes/op", "MB/s"));
+
+		int[] gameIds = { Game.TICTACTOE, Game.CONNECT_FOUR, Game.CHECKERS,
+				Game.CHESS };
+		for (int gameId : gameIds) {
+			ArrayList<Game> positions = corpus(gameId);
+			String prefix = gameName(gameId) + ".";
+
+			run(prefix + "getAvailableMoves", filter, millis, positions,
+					new Operation() {
+						public void run(Game g) {
+							sink += g.getAvailableMoves().size();
+						}
+					});
+
+			run(prefix + "clone", filter, millis, positions, new Operation() {
+				public void run(Game g) {
+					sink += g.clone().getTurn();
+				}
+			});
+
+			run(prefix + "scoreGame", filter, millis, positions,
+					new Operation() {
+						public void run(Game g) {
+							sink += g.scoreGame();
+						}
+					});
+
+			run(prefix + "hasEnded", filter, millis, positions,
+					new Operation() {
+						public void run(Game g) {
+							sink += g.hasEnded()[0];
+						}
+					});
+
+			final int depth = searchDepth(gameId);
+			final TranspositionTable table = new TranspositionTable(16);
+			run(prefix + "AlphaBeta.getMove(" + depth + ")", filter, millis,
+					positions, new Operation() {
+						public void run(Game g) {
+							// Start every search from an empty table
+							table.clear();
+							Move m = new AlphaBeta(depth, table).getMove(g);
+							sink += m.getEnd().getX();
+						}
+					});
+
+			run(prefix + "PVS.getMove(" + depth + ")", filter, millis,
+					positions, new Operation() {
+						public void run(Game g) {
+							table.clear();
+							Move m = new PVS(depth, table).getMove(g);
+							sink += m.getEnd().getX();
+						}
+					});
+
+			cutoffs(prefix + "AlphaBeta.cutoffs(" + depth + ")", filter,
+					depth, positions);
+
+			// Only the chess search prunes selectively, and only deep enough
+			// searches show it
+			if (gameId == Game.CHESS)
+				pruning(prefix + "AlphaBeta.pruning(" + PRUNING_DEPTH + ")",
+						filter, PRUNING_DEPTH, positions);
+		}
+	}
+
+	/**
+	 * Searches each position with no selective pruning, with each kind of
+	 * pruning on its own, and with all of them, and prints how many nodes
+	 * each took and how many fewer that is than with none.
+	 * 
+	 * @param name
+	 * @param filter
+	 * @param depth
+	 * @param positions
+	 */
+	public static void pruning(String name, String filter, int depth,
+			ArrayList<Game> positions) {
+		if (name.indexOf(filter) < 0)
+			return;
+
+		String[] settings = { "none", "null move", "reductions", "futility",
+				"all" };
+		long baseline = 0;
+		for (int s = 0; s < settings.length; s++) {
+			long nodes = 0;
+			long pruned = 0;
+
+			for (Game g : positions) {
+				AlphaBeta engine = new AlphaBeta(depth,
+						new TranspositionTable(16));
+				engine.setNullMovePruning(s == 1 || s == 4);
+				engine.setLateMoveReductions(s == 2 || s == 4);
+				engine.setFutilityPruning(s == 3 || s == 4);
+				sink += engine.getMove(g).getEnd().getX();
+
+				nodes += engine.getNodes();
+				pruned += engine.getNullMoveCutoffs()
+						+ engine.getReductions() + engine.getFutilityPrunes();
+			}
+
+			if (s == 0)
+				baseline = nodes;
+
+			System.out.println(String.format(
+					"%-36s %-10s %12d nodes %6.1f%% saved %10d pruned",
+					name, settings[s], nodes, baseline == 0 ? 0
+							: (baseline - nodes) * 100.0 / baseline, pruned));
+		}
+	}
+
+	/**
+	 * Searches each position with and without move ordering and prints how
+	 * often the first move searched caused the cutoff, and how many nodes
+	 * the searches took, in all and in the quiescence search.
+	 * 
+	 * @param name
+	 * @param filter
+	 * @param depth
+	 * @param positions
+	 */
+	public static void cutoffs(String name, String filter, int depth,
+			ArrayList<Game> positions) {
+		if (name.indexOf(filter) < 0)
+			return;
+
+		String line = String.format("%-36s", name);
+		for (int ordered = 1; ordered >= 0; ordered--) {
+			long cutoffs = 0;
+			long firstMoveCutoffs = 0;
+			long nodes = 0;
+			long quiescenceNodes = 0;
+
+			for (Game g : positions) {
+				AlphaBeta engine = new AlphaBeta(depth,
+						new TranspositionTable(16));
+				engine.setMoveOrdering(ordered == 1);
+				sink += engine.getMove(g).getEnd().getX();
+
+				cutoffs += engine.getCutoffs();
+				firstMoveCutoffs += engine.getFirstMoveCutoffs();
+				nodes += engine.getNodes();
+				quiescenceNodes += engine.getQuiescenceNodes();
+			}
+
+			line += String.format(
+					" %s %.1f%% first of %d, %d nodes (%d quiescence);",
+					ordered == 1 ? "ordered" : "unordered", cutoffs == 0 ? 0
+							: firstMoveCutoffs * 100.0 / cutoffs, cutoffs,
+					nodes, quiescenceNodes);
+		}
+
+		System.out.println(line);
+	}
+
+	/**
+	 * Warms up and measures one benchmark, cycling through the positions, and
+	 * prints a line of results.
+	 * 
+	 * @param name
+	 * @param filter
+	 * @param millis
+	 *            length of each iteration
+	 * @param positions
+	 * @param op
+	 */
+	public static void run(String name, String filter, long millis,
+			ArrayList<Game> positions, Operation op) {
+		if (name.indexOf(filter) < 0)
+			return;
+
+		for (int i = 0; i < WARMUP_ITERATIONS; i++)
+			iterate(millis, positions, op, null);
+
+		double[] rates = new double[MEASURE_ITERATIONS];
+		long totalOps = 0;
+		long totalNanos = 0;
+		long totalBytes = 0;
+		for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+			long[] result = new long[3];
+			iterate(millis, positions, op, result);
+			rates[i] = result[0] * 1e9 / result[1];
+			totalOps += result[0];
+			totalNanos += result[1];
+			totalBytes += result[2];
+		}
+
+		double mean = 0;
+		for (double rate : rates)
+			mean += rate;
+		mean /= rates.length;
+
+		double variance = 0;
+		for (double rate : rates)
+			variance += (rate - mean) * (rate - mean);
+		double error = Math.sqrt(variance / (rates.length - 1));
+
+		if (totalBytes >= 0)
+			System.out.println(String.format(
+					"%-36s %14.1f %10.1f %12.1f %10.1f", name, mean, error,
+					(double) totalBytes / totalOps, totalBytes * 1e9
+							/ (1 << 20) / totalNanos));
+		else
+			System.out.println(String.format("%-36s %14.1f %10.1f %12s %10s",
+					name, mean, error, "n/a", "n/a"));
+	}
+
+	/**
+	 * Runs the operation over the positions until the time is up.
+	 * 
+	 * @param millis
+	 * @param positions
+	 * @param op
+	 * @param result
+	 *            if not null, receives operations, nanoseconds and bytes
+	 *            allocated (negative if unknown)
+	 */
+	private static void iterate(long millis, ArrayList<Game> positions,
+			Operation op, long[] result) {
+		long bytesBefore = allocatedBytes();
+		long start = System.nanoTime();
+		long end = start + millis * 1000000L;
+		long ops = 0;
+		long now;
+
+		do {
+			for (Game g : positions)
+				op.run(g);
+			ops += positions.size();
+			now = System.nanoTime();
+		} while (now < end);
+
+		if (result != null) {
+			long bytesAfter = allocatedBytes();
+			result[0] = ops;
+			result[1] = now - start;
+			result[2] = bytesBefore < 0 ? -1 : bytesAfter - bytesBefore;
+		}
+	}
+
+	// Lazily looked up, since the management classes are not on every JVM
+	private static Object threadBean;
+	private static Method allocatedBytesMethod;
+	private static boolean allocationLookedUp;
+
+	/**
+	 * Returns the bytes allocated so far by the current thread, or -1 if the
+	 * JVM cannot tell.
+	 * 
+	 * @return bytes
+	 */
+	public static long allocatedBytes() {
+		if (!allocationLookedUp) {
+			allocationLookedUp = true;
+			try {
+				threadBean = Class
+						.forName("java.lang.management.ManagementFactory")
+						.getMethod("getThreadMXBean").invoke(null);
+				allocatedBytesMethod = Class.forName(
+						"com.sun.management.ThreadMXBean").getMethod(
+						"getThreadAllocatedBytes", long.class);
+			} catch (Exception e) {
+				allocatedBytesMethod = null;
+			}
+		}
+
+		if (allocatedBytesMethod == null)
+			return -1;
+
+		try {
+			return (Long) allocatedBytesMethod.invoke(threadBean, Thread
+					.currentThread().getId());
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Builds the positions to measure on: the start of the game and a few
+	 * positions reached by seeded random play, so every run sees the same
+	 * ones.
+	 * 
+	 * @param gameId
+	 * @return positions
+	 */
+	public static ArrayList<Game> corpus(int gameId) {
+		ArrayList<Game> positions = new ArrayList<Game>();
+		int[] plies = gameId == Game.TICTACTOE ? TTT_PLIES : PLIES;
+
+		for (int i = 0; i < plies.length; i++) {
+			Random random = new Random(i);
+			Game g = newGame(gameId);
+
+			for (int ply = 0; ply < plies[i]; ply++) {
+				ArrayList<Move> moves = g.getAvailableMoves();
+				if (moves.size() == 0)
+					break;
+
+				// Stop short of a move that ends the game
+				Move m = moves.get(random.nextInt(moves.size()));
+				Undo undo = g.doMove(m);
+				boolean ended = g.hasEnded()[0] != Game.NONE;
+				g.undoMove(undo);
+				if (ended)
+					break;
+
+				g.addMove(m);
+			}
+
+			positions.add(g);
+		}
+
+		return positions;
+	}
+
+	/**
+	 * Creates a game in its starting position.
+	 * 
+	 * @param gameId
+	 * @return game
+	 */
+	public static Game newGame(int gameId) {
+		switch (gameId) {
+		case Game.TICTACTOE:
+			return new TTTGame(Game.TICTACTOE, new TTTRules());
+		case Game.CONNECT_FOUR:
+			return new Connect4Game(Game.CONNECT_FOUR, new Connect4Rules());
+		case Game.CHECKERS:
+			return new CheckersGame(Game.CHECKERS, new CheckersRules());
+		case Game.CHESS:
+			return new ChessGame(Game.CHESS, new ChessRules());
+		default:
+			throw new IllegalArgumentException("Unknown game " + gameId);
+		}
+	}
+
+	public static String gameName(int gameId) {
+		switch (gameId) {
+		case Game.TICTACTOE:
+			return "tictactoe";
+		case Game.CONNECT_FOUR:
+			return "connect4";
+		case Game.CHECKERS:
+			return "checkers";
+		case Game.CHESS:
+			return "chess";
+		default:
+			throw new IllegalArgumentException("Unknown game " + gameId);
+		}
+	}
+
+	private static int searchDepth(int gameId) {
+		return gameId == Game.CHESS ? 2 : 4;
+	}
+}
@@ -0,0 +1,194 @@
+package tools;
+
+import java.util.ArrayList;
+
+import checkers.CheckersGame;
+import checkers.CheckersPosition;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPosition;
+import models.Game;
+import models.Move;
+import models.Undo;
+
+/**
+ * Counts the leaf nodes of the move tree to a given depth, to check move
+ * generation against known counts and to time it.
+ * 
+ * A checkers jump that must be continued leaves the same player to move, so
+ * the whole multi-jump counts as one ply. A chess game ends when a king is
+ * taken, so those positions have no children.
+ * 
+ * Usage: Perft chess|checkers depth [position] [-divide] [-scan]
+ * 
+ * The position is FEN for chess and PDN (B:W21-32:B1-12) for checkers, and
+ * defaults to the start. -divide breaks the count at the full depth down by
+ * the first move. -scan also counts chess with the original scanning move
+ * generator and checks that the two agree.
+ * 
+ * @author denniscui
+ * 
+ */
+public class Perft {
+
+	public static void main(String[] args) {
+		String gameName = null;
+		int maxDepth = -1;
+		String position = null;
+		boolean divide = false;
+		boolean scan = false;
+
+		for (String arg : args) {
+			if (arg.equals("-divide"))
+				divide = true;
+			else if (arg.equals("-scan"))
+				scan = true;
+			else if (gameName == null)
+				gameName = arg;
+			else if (maxDepth < 0)
+				maxDepth = Integer.parseInt(arg);
+			else
+				position = arg;
+		}
+
+		if (gameName == null || maxDepth < 0) {
+			System.out.println("Usage: Perft chess|checkers depth [position] [-divide] [-scan]");
+			return;
+		}
+
+		Game g;
+		if (gameName.equals("chess"))
+			g = ChessPosition.parse(position == null ? ChessPosition.START
+					: position);
+		else if (gameName.equals("checkers"))
+			g = CheckersPosition.parse(position == null ? CheckersPosition.START
+					: position);
+		else
+			throw new IllegalArgumentException("Unknown game " + gameName);
+
+		scan &= g instanceof ChessGame;
+
+		for (int depth = 1; depth <= maxDepth; depth++) {
+			long start = System.nanoTime();
+			long nodes = perft(g, depth, false);
+			long nanos = System.nanoTime() - start;
+
+			String line = "Depth " + depth + ": " + nodes + " ("
+					+ nanos / 1000000 + " ms, " + nodesPerSecond(nodes, nanos)
+					+ " nodes/s)";
+
+			if (scan) {
+				start = System.nanoTime();
+				long scanNodes = perft(g, depth, true);
+				nanos = System.nanoTime() - start;
+
+				line += ", scan " + scanNodes + " (" + nanos / 1000000
+						+ " ms, " + nodesPerSecond(scanNodes, nanos)
+						+ " nodes/s) "
+						+ (scanNodes == nodes ? "OK" : "MISMATCH");
+			}
+
+			System.out.println(line);
+		}
+
+		if (divide && maxDepth > 0)
+			divide(g, maxDepth);
+	}
+
+	/**
+	 * Counts the positions reachable in exactly depth plies.
+	 * 
+	 * @param g
+	 * @param depth
+	 * @param scan
+	 *            true to use the scanning chess generator
+	 * @return leaf count
+	 */
+	public static long perft(Game g, int depth, boolean scan) {
+		if (depth == 0)
+			return 1;
+
+		if (isOver(g))
+			return 0;
+
+		ArrayList<Move> moves = generate(g, scan);
+
+		// Every chess move ends the turn, so the leaves can be counted
+		// without making them
+		if (depth == 1 && g instanceof ChessGame)
+			return moves.size();
+
+		long nodes = 0;
+		int turn = g.getTurn();
+		for (Move m : moves) {
+			Undo undo = g.doMove(m);
+			nodes += perft(g, g.getTurn() == turn ? depth : depth - 1, scan);
+			g.undoMove(undo);
+		}
+
+		return nodes;
+	}
+
+	/**
+	 * Prints the leaf count at the given depth below each first move.
+	 * 
+	 * @param g
+	 * @param depth
+	 */
+	public static void divide(Game g, int depth) {
+		long total = 0;
+		int turn = g.getTurn();
+
+		for (Move m : generate(g, false)) {
+			Undo undo = g.doMove(m);
+			boolean continued = g.getTurn() == turn;
+			long nodes = perft(g, continued ? depth : depth - 1, false);
+			g.undoMove(undo);
+
+			total += nodes;
+			System.out.println(notation(g, m, continued) + ": " + nodes);
+		}
+
+		System.out.println("Total: " + total);
+	}
+
+	private static ArrayList<Move> generate(Game g, boolean scan) {
+		return scan ? ((ChessGame) g).getAvailableMovesByScan() : g
+				.getAvailableMoves();
+	}
+
+	/**
+	 * Checks if a chess king has been taken.
+	 * 
+	 * @param g
+	 * @return true iff the game is over
+	 */
+	private static boolean isOver(Game g) {
+		if (!(g.getBoard() instanceof ChessBoard))
+			return false;
+
+		ChessBoard board = (ChessBoard) g.getBoard();
+		return board.getBitboard(Game.MINIMIZING_PLAYER, ChessBoard.KING) == 0
+				|| board.getBitboard(Game.MAXIMIZING_PLAYER, ChessBoard.KING) == 0;
+	}
+
+	/**
+	 * Writes a first move for divide. A checkers jump that must be continued
+	 * is marked with trailing dots.
+	 * 
+	 * @param g
+	 * @param m
+	 * @param continued
+	 * @return notation
+	 */
+	private static String notation(Game g, Move m, boolean continued) {
+		if (g instanceof CheckersGame)
+			return CheckersPosition.toNotation(m) + (continued ? "..." : "");
+
+		return ChessPosition.toCoordinates(m);
+	}
+
+	private static long nodesPerSecond(long nodes, long nanos) {
+		return nanos == 0 ? 0 : (long) (nodes * 1e9 / nanos);
+	}
+}
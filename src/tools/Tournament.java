@@ -0,0 +1,537 @@
+package tools;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import algorithms.AlphaBeta;
+import algorithms.Greedy;
+import algorithms.Minimax;
+import algorithms.MonteCarlo;
+import algorithms.PVS;
+import algorithms.ParallelAlphaBeta;
+import connect4.Connect4Solver;
+import engine.GameEngine;
+import models.Game;
+import models.Move;
+import models.Undo;
+import tictactoe.TTTLookupEngine;
+
+/**
+ * Plays two engines against each other over many games, to tell whether a
+ * change to an engine makes it stronger. Runs on a plain JVM.
+ * 
+ * The games start from random openings a few plies deep, and each opening is
+ * played twice with the engines swapping sides. Games run at once on a pool
+ * of threads, each with engines of its own. The output is the wins, draws and
+ * losses of the first engine, the Elo difference that score means with its
+ * 95% error bars, the verdict of a sequential probability ratio test between
+ * ELO0 and ELO1, and the speed of each engine.
+ * 
+ * Usage: Tournament game engine1 engine2 [-games n] [-threads n] [-millis n]
+ * [-plies n] [-elo0 n] [-elo1 n] [-sprt]
+ * 
+ * The game is tictactoe, connect4, checkers or chess. An engine is named by
+ * its kind and settings separated by colons: alphabeta:depth, pvs:depth,
+ * parallel:depth:threads, minimax:depth, mcts:iterations[:threads], greedy,
+ * solver (connect4) or lookup (tictactoe). alphabeta can be followed by
+ * :-ordering, :-quiescence, :-null, :-lmr or :-futility to turn that part of
+ * the search off. With -millis each move gets that much time instead of the
+ * fixed depth. With -sprt the tournament stops as soon as the test decides.
+ * 
+ * @author denniscui
+ * 
+ */
+public class Tournament {
+
+	public static final int DEFAULT_GAMES = 100;
+	public static final int DEFAULT_OPENING_PLIES = 4;
+
+	// A few random tic-tac-toe moves are usually enough to lose
+	public static final int DEFAULT_TTT_OPENING_PLIES = 1;
+
+	public static final int DEFAULT_ELO0 = 0;
+	public static final int DEFAULT_ELO1 = 10;
+
+	// Chance of the test accepting the wrong hypothesis, either way
+	public static final double SPRT_ERROR = 0.05;
+
+	// Plies after which a game is called a draw, for games without a rule
+	// that ends them
+	public static final int MAX_PLIES = 400;
+
+	// Games between progress reports
+	public static final int REPORT_INTERVAL = 100;
+
+	/**
+	 * Makes a new engine for each game, since engines keep state between
+	 * moves and can't be shared by games running at once.
+	 */
+	public interface EngineFactory {
+		GameEngine create();
+	}
+
+	// Results of the first engine
+	private int wins;
+	private int draws;
+	private int losses;
+
+	// Work and time of each engine over all its moves
+	private long[] nodes = new long[2];
+	private long[] millis = new long[2];
+	private long[] moves = new long[2];
+
+	private int elo0 = DEFAULT_ELO0;
+	private int elo1 = DEFAULT_ELO1;
+
+	// Set once the test has decided and the tournament should end early
+	private volatile boolean finished;
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 3) {
+			System.out.println("Usage: Tournament game engine1 engine2 "
+					+ "[-games n] [-threads n] [-millis n] [-plies n] "
+					+ "[-elo0 n] [-elo1 n] [-sprt]");
+			return;
+		}
+
+		int gameId = gameId(args[0]);
+		String[] names = { args[1], args[2] };
+		int games = DEFAULT_GAMES;
+		int threads = Runtime.getRuntime().availableProcessors();
+		long budget = -1;
+		int plies = gameId == Game.TICTACTOE ? DEFAULT_TTT_OPENING_PLIES
+				: DEFAULT_OPENING_PLIES;
+		boolean sprt = false;
+
+		Tournament tournament = new Tournament();
+		for (int i = 3; i < args.length; i++) {
+			if (args[i].equals("-games"))
+				games = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-threads"))
+				threads = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-millis"))
+				budget = Long.parseLong(args[++i]);
+			else if (args[i].equals("-plies"))
+				plies = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-elo0"))
+				tournament.elo0 = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-elo1"))
+				tournament.elo1 = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-sprt"))
+				sprt = true;
+			else
+				throw new IllegalArgumentException("Unknown option " + args[i]);
+		}
+
+		EngineFactory[] factories = { factory(names[0]), factory(names[1]) };
+
+		// Make sure both engines can be made before starting
+		factories[0].create();
+		factories[1].create();
+
+		System.out.println(Benchmark.gameName(gameId) + ": " + names[0]
+				+ " vs " + names[1] + ", " + games + " games on " + threads
+				+ " threads");
+
+		long start = System.currentTimeMillis();
+		tournament.play(gameId, factories, games, threads, budget, plies,
+				sprt);
+		long elapsed = System.currentTimeMillis() - start;
+
+		tournament.report(names);
+		System.out.println(String.format("%.1f s", elapsed / 1000.0));
+	}
+
+	/**
+	 * Plays the games, with each opening played from both sides.
+	 * 
+	 * @param gameId
+	 * @param factories
+	 *            the two engines
+	 * @param games
+	 * @param threads
+	 *            games played at once
+	 * @param budget
+	 *            time per move in milliseconds, or negative for none
+	 * @param plies
+	 *            random plies of each opening
+	 * @param sprt
+	 *            stop once the test has decided
+	 */
+	public void play(final int gameId, final EngineFactory[] factories,
+			int games, int threads, final long budget, int plies,
+			final boolean sprt) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+			Game opening = null;
+			for (int i = 0; i < games; i++) {
+				if (i % 2 == 0)
+					opening = opening(gameId, plies, new Random(i / 2));
+
+				final Game start = opening;
+				final int first = i % 2;
+				futures.add(pool.submit(new Runnable() {
+					@Override
+					public void run() {
+						if (finished)
+							return;
+
+						playGame(start.clone(), factories, first, budget);
+						if (sprt && sprt() != 0)
+							finished = true;
+					}
+				}));
+			}
+
+			for (Future<?> future : futures)
+				future.get();
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Plays one game and counts its result.
+	 * 
+	 * @param g
+	 *            the opening
+	 * @param factories
+	 * @param first
+	 *            index of the engine to move first
+	 * @param budget
+	 */
+	private void playGame(Game g, EngineFactory[] factories, int first,
+			long budget) {
+		GameEngine[] engines = { factories[0].create(),
+				factories[1].create() };
+
+		// The engine playing each player
+		int[] sides = new int[2];
+		sides[g.getTurn()] = first;
+		sides[1 - g.getTurn()] = 1 - first;
+
+		int[] state = g.hasEnded();
+		for (int ply = 0; state[0] == Game.NONE && ply < MAX_PLIES; ply++) {
+			int side = sides[g.getTurn()];
+			GameEngine engine = engines[side];
+
+			long start = System.currentTimeMillis();
+			Move m = budget < 0 ? engine.getMove(g) : engine.getMove(g,
+					budget);
+			long elapsed = System.currentTimeMillis() - start;
+
+			if (m == null)
+				throw new IllegalStateException("No move from engine "
+						+ side);
+
+			synchronized (this) {
+				nodes[side] += nodes(engine);
+				millis[side] += elapsed;
+				moves[side]++;
+			}
+
+			g.addMove(m);
+			state = g.hasEnded();
+		}
+
+		for (GameEngine engine : engines)
+			shutdown(engine);
+
+		synchronized (this) {
+			if (state[0] == Game.WIN && sides[state[1]] == 0)
+				wins++;
+			else if (state[0] == Game.WIN)
+				losses++;
+			else
+				draws++;
+
+			int played = wins + draws + losses;
+			if (played % REPORT_INTERVAL == 0)
+				System.out.println(String.format(
+						"%d games: +%d =%d -%d, Elo %+.1f", played, wins,
+						draws, losses, elo()));
+		}
+	}
+
+	/**
+	 * Prints the results.
+	 * 
+	 * @param names
+	 *            of the two engines
+	 */
+	public synchronized void report(String[] names) {
+		System.out.println(String.format("%s: +%d =%d -%d (%.1f%%)",
+				names[0], wins, draws, losses, 100 * score()));
+
+		double[] interval = eloInterval();
+		System.out.println(String.format("Elo %+.1f, 95%% [%+.1f, %+.1f]",
+				elo(), interval[0], interval[1]));
+
+		int verdict = sprt();
+		System.out.println(String.format(
+				"SPRT [%d, %d]: LLR %.2f [%.2f, %.2f], %s", elo0, elo1,
+				llr(), Math.log(SPRT_ERROR / (1 - SPRT_ERROR)),
+				Math.log((1 - SPRT_ERROR) / SPRT_ERROR),
+				verdict > 0 ? "H1 accepted" : verdict < 0 ? "H0 accepted"
+						: "undecided"));
+
+		for (int side = 0; side < 2; side++) {
+			long m = Math.max(moves[side], 1);
+			long ms = Math.max(millis[side], 1);
+			System.out.println(String.format(
+					"%s: %.0f nodes/s, %.1f ms/move", names[side],
+					nodes[side] * 1000.0 / ms, (double) millis[side] / m));
+		}
+	}
+
+	/**
+	 * Returns the share of points the first engine scored.
+	 * 
+	 * @return score, from 0 to 1
+	 */
+	public synchronized double score() {
+		int games = wins + draws + losses;
+		return games == 0 ? 0.5 : (wins + draws / 2.0) / games;
+	}
+
+	/**
+	 * Returns the Elo difference the first engine's score means.
+	 * 
+	 * @return Elo
+	 */
+	public synchronized double elo() {
+		return elo(score());
+	}
+
+	/**
+	 * Returns the 95% confidence interval of the Elo difference, from the
+	 * spread of the game results.
+	 * 
+	 * @return lower and upper bounds
+	 */
+	public synchronized double[] eloInterval() {
+		int games = wins + draws + losses;
+		double score = score();
+		double error = games == 0 ? 0 : 1.96 * Math.sqrt(variance() / games);
+
+		return new double[] { elo(score - error), elo(score + error) };
+	}
+
+	/**
+	 * Returns the log likelihood ratio of the first engine being ELO1 better
+	 * rather than ELO0, by the normal approximation to the trinomial test.
+	 * 
+	 * @return LLR
+	 */
+	public synchronized double llr() {
+		int games = wins + draws + losses;
+		double variance = variance();
+		if (games == 0 || variance == 0)
+			return 0;
+
+		double s0 = expectedScore(elo0);
+		double s1 = expectedScore(elo1);
+		return games * (s1 - s0) * (2 * score() - s0 - s1) / (2 * variance);
+	}
+
+	/**
+	 * Runs the sequential probability ratio test on the games so far.
+	 * 
+	 * @return 1 if the first engine is ELO1 better, -1 if it is no better
+	 *         than ELO0, 0 if more games are needed
+	 */
+	public synchronized int sprt() {
+		double llr = llr();
+		if (llr >= Math.log((1 - SPRT_ERROR) / SPRT_ERROR))
+			return 1;
+		else if (llr <= Math.log(SPRT_ERROR / (1 - SPRT_ERROR)))
+			return -1;
+		else
+			return 0;
+	}
+
+	/**
+	 * Returns the variance of the result of one game.
+	 */
+	private double variance() {
+		int games = wins + draws + losses;
+		if (games == 0)
+			return 0;
+
+		double score = score();
+		return (wins * (1 - score) * (1 - score) + draws * (0.5 - score)
+				* (0.5 - score) + losses * score * score)
+				/ games;
+	}
+
+	private static double elo(double score) {
+		if (score <= 0)
+			return Double.NEGATIVE_INFINITY;
+		if (score >= 1)
+			return Double.POSITIVE_INFINITY;
+
+		return 400 * Math.log10(score / (1 - score));
+	}
+
+	private static double expectedScore(double elo) {
+		return 1 / (1 + Math.pow(10, -elo / 400));
+	}
+
+	/**
+	 * Plays random moves from the start, stopping short of any move that
+	 * ends the game.
+	 * 
+	 * @param gameId
+	 * @param plies
+	 * @param random
+	 * @return game
+	 */
+	public static Game opening(int gameId, int plies, Random random) {
+		Game g = Benchmark.newGame(gameId);
+		for (int ply = 0; ply < plies; ply++) {
+			ArrayList<Move> moves = g.getAvailableMoves();
+			if (moves.size() == 0)
+				break;
+
+			Move m = moves.get(random.nextInt(moves.size()));
+			Undo undo = g.doMove(m);
+			boolean ended = g.hasEnded()[0] != Game.NONE;
+			g.undoMove(undo);
+			if (ended)
+				break;
+
+			g.addMove(m);
+		}
+
+		return g;
+	}
+
+	/**
+	 * Makes a factory for the engine with the given name.
+	 * 
+	 * @param name
+	 *            kind and settings separated by colons, as in the usage
+	 * @return factory
+	 */
+	public static EngineFactory factory(String name) {
+		final String[] parts = name.split(":");
+		final String kind = parts[0];
+
+		if (kind.equals("alphabeta"))
+			return new EngineFactory() {
+				public GameEngine create() {
+					AlphaBeta engine = new AlphaBeta(Integer
+							.parseInt(parts[1]));
+					for (int i = 2; i < parts.length; i++) {
+						if (parts[i].equals("-ordering"))
+							engine.setMoveOrdering(false);
+						else if (parts[i].equals("-quiescence"))
+							engine.setQuiescence(false);
+						else if (parts[i].equals("-null"))
+							engine.setNullMovePruning(false);
+						else if (parts[i].equals("-lmr"))
+							engine.setLateMoveReductions(false);
+						else if (parts[i].equals("-futility"))
+							engine.setFutilityPruning(false);
+						else
+							throw new IllegalArgumentException(
+									"Unknown setting " + parts[i]);
+					}
+
+					return engine;
+				}
+			};
+		else if (kind.equals("pvs"))
+			return new EngineFactory() {
+				public GameEngine create() {
+					return new PVS(Integer.parseInt(parts[1]));
+				}
+			};
+		else if (kind.equals("parallel"))
+			return new EngineFactory() {
+				public GameEngine create() {
+					return new ParallelAlphaBeta(Integer.parseInt(parts[1]),
+							Integer.parseInt(parts[2]));
+				}
+			};
+		else if (kind.equals("minimax"))
+			return new EngineFactory() {
+				public GameEngine create() {
+					return new Minimax(Integer.parseInt(parts[1]));
+				}
+			};
+		else if (kind.equals("mcts"))
+			return new EngineFactory() {
+				public GameEngine create() {
+					int threads = parts.length > 2 ? Integer
+							.parseInt(parts[2]) : 1;
+					return new MonteCarlo(Integer.parseInt(parts[1]),
+							threads);
+				}
+			};
+		else if (kind.equals("greedy"))
+			return new EngineFactory() {
+				public GameEngine create() {
+					return new Greedy();
+				}
+			};
+		else if (kind.equals("solver"))
+			return new EngineFactory() {
+				public GameEngine create() {
+					return new Connect4Solver();
+				}
+			};
+		else if (kind.equals("lookup"))
+			return new EngineFactory() {
+				public GameEngine create() {
+					return new TTTLookupEngine();
+				}
+			};
+		else
+			throw new IllegalArgumentException("Unknown engine " + name);
+	}
+
+	/**
+	 * Returns the nodes an engine visited for its last move, for the engines
+	 * that count them.
+	 */
+	private static long nodes(GameEngine engine) {
+		if (engine instanceof AlphaBeta)
+			return ((AlphaBeta) engine).getNodes();
+		else if (engine instanceof PVS)
+			return ((PVS) engine).getNodes();
+		else if (engine instanceof ParallelAlphaBeta)
+			return ((ParallelAlphaBeta) engine).getNodes();
+		else if (engine instanceof MonteCarlo)
+			return ((MonteCarlo) engine).getPlayouts();
+		else if (engine instanceof Connect4Solver)
+			return ((Connect4Solver) engine).getNodes();
+		else
+			return 0;
+	}
+
+	/**
+	 * Stops the threads of the engines that have them.
+	 */
+	private static void shutdown(GameEngine engine) {
+		if (engine instanceof ParallelAlphaBeta)
+			((ParallelAlphaBeta) engine).shutdown();
+		else if (engine instanceof MonteCarlo)
+			((MonteCarlo) engine).shutdown();
+	}
+
+	private static int gameId(String name) {
+		int[] gameIds = { Game.TICTACTOE, Game.CONNECT_FOUR, Game.CHECKERS,
+				Game.CHESS };
+		for (int gameId : gameIds) {
+			if (Benchmark.gameName(gameId).equals(name))
+				return gameId;
+		}
+
+		throw new IllegalArgumentException("Unknown game " + name);
+	}
+}
@@ -1,5 +1,7 @@
 package ui_views;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 
 import models.Game;
@@ -26,6 +28,7 @@ import android.view.View.MeasureSpec;
 import android.widget.Toast;
 
 import checkers.CheckersGame;
+import checkers.EndgameDatabase;
 import checkers.CheckersRules;
 
 import com.dcmobile.tpgames.R;
@@ -45,6 +48,12 @@ public class CheckersBoardView extends View {
 	// default size of the board
 	public static final int DEFAULT_BOARD_SIZE = 100;
 
+	// time the computer may spend on a move, in milliseconds
+	public static final long THINKING_TIME = 3000;
+
+	// endgame database made by EndgameGenerator, in the app's files
+	public static final String ENDGAME_DATABASE = "checkers_endgame.db";
+
 	// cell dimensions
 	private float mCellWidth;
 	private float mCellHeight;
@@ -55,6 +64,9 @@ public class CheckersBoardView extends View {
 	// read only when it's not your turn
 	private boolean mReadOnly = false;
 
+	// hands the turn to the player or the computer
+	private OnTurnChangedListener mTurnChangedListener;
+
 	// should show possible moves?
 	private boolean mShowPossibleMoves = true;
 
@@ -129,11 +141,23 @@ public class CheckersBoardView extends View {
 	protected void initGame() {
 		final Game g = new CheckersGame(Game.CHECKERS, new CheckersRules());
 		final AlphaBeta m = new AlphaBeta(5);
+
+		// Play endgames from the database, if one has been installed
+		File endgames = new File(getContext().getFilesDir(), ENDGAME_DATABASE);
+		if (endgames.exists()) {
+			try {
+				m.setTablebase(new EndgameDatabase(endgames));
+			} catch (IOException e) {
+				Log.w("Game", "Can't read the endgame database", e);
+			}
+		}
+
 		g.setOnGameEndedListener(new OnGameEndedListener() {
 			@Override
 			public void onGameEnded(int[] state) {
 				setReadOnly(true);
 				g.unregisterListeners();
+				m.stopPondering();
 				setFocusable(false);
 				setFocusableInTouchMode(false);
 
@@ -155,7 +179,7 @@ public class CheckersBoardView extends View {
 
 		});
 
-		g.setOnTurnChangedListener(new OnTurnChangedListener() {
+		mTurnChangedListener = new OnTurnChangedListener() {
 
 			@Override
 			public void onTurnChanged(int turn) {
@@ -166,6 +190,9 @@ public class CheckersBoardView extends View {
 								.getAvailableMovesRestricted();
 					else
 						mAllAvailableMoves = g.getAvailableMoves();
+
+					// Think on the player's time
+					m.ponder(g);
 				} else {
 					setReadOnly(true);
 					mProgressDialog.setTitle("Thinking...");
@@ -175,7 +202,8 @@ public class CheckersBoardView extends View {
 				}
 			}
 
-		});
+		};
+		g.setOnTurnChangedListener(mTurnChangedListener);
 		setGame(g);
 
 		mAllAvailableMoves = g.getAvailableMoves();
@@ -197,7 +225,8 @@ public class CheckersBoardView extends View {
 							+ android.os.Process.THREAD_PRIORITY_MORE_FAVORABLE);
 			Game g = getGame();
 			AlphaBeta m = (AlphaBeta) params[0];
-			return m.getMove(g);
+			m.stopPondering();
+			return m.getMove(g, THINKING_TIME);
 		}
 
 		@Override
@@ -236,6 +265,23 @@ public class CheckersBoardView extends View {
 		mGame = g;
 	}
 
+	/**
+	 * Puts the game back as it was when a snapshot of it was taken, such as
+	 * when the activity is recreated.
+	 * 
+	 * @param snapshot
+	 *            from Game.snapshot()
+	 */
+	public void restoreGame(byte[] snapshot) {
+		mGame.restore(snapshot);
+		initCells();
+		invalidate();
+
+		// Pick up the moves of the restored position, and let the computer
+		// move if it was its turn
+		mTurnChangedListener.onTurnChanged(mGame.getTurn());
+	}
+
 	public Cell[][] getCells() {
 		return mCells;
 	}
@@ -265,7 +311,7 @@ public class CheckersBoardView extends View {
 		for (int r = 0; r < rows; r++) {
 			for (int c = 0; c < cols; c++) {
 				Cell cell = new Cell(r, c);
-				if (mGame.getBoard().getMatrix()[r][c] != null)
+				if (!mGame.getBoard().isEmpty(r, c))
 					cell.setValue(1);
 
 				mCells[r][c] = cell;
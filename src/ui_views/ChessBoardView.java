@@ -1,5 +1,7 @@
 package ui_views;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
@@ -12,11 +14,14 @@ import models.Game.OnGameEndedListener;
 import models.Game.OnTurnChangedListener;
 import ui_models.Cell;
 import utils.Point;
+import chess.BookEngine;
 import chess.ChessGame;
 import chess.ChessRules;
+import chess.OpeningBook;
 
 import com.dcmobile.tpgames.R;
 
+import engine.GameEngine;
 import algorithms.AlphaBeta;
 import android.app.ProgressDialog;
 import android.content.Context;
@@ -48,6 +53,12 @@ public class ChessBoardView extends View {
 	// default size of the board
 	public static final int DEFAULT_BOARD_SIZE = 100;
 
+	// time the computer may spend on a move, in milliseconds
+	public static final long THINKING_TIME = 3000;
+
+	// opening book in the app's files, played from when it's there
+	public static final String OPENING_BOOK = "chess_openings.book";
+
 	// cell dimensions
 	private float mCellWidth;
 	private float mCellHeight;
@@ -58,6 +69,9 @@ public class ChessBoardView extends View {
 	// read only when it's not your turn
 	private boolean mReadOnly = false;
 
+	// hands the turn to the player or the computer
+	private OnTurnChangedListener mTurnChangedListener;
+
 	// should show possible moves?
 	private boolean mShowPossibleMoves = true;
 
@@ -131,12 +145,24 @@ public class ChessBoardView extends View {
 	 */
 	protected void initGame() {
 		final Game g = new ChessGame(Game.CHESS, new ChessRules());
-		final AlphaBeta m = new AlphaBeta(2);
+		GameEngine engine = new AlphaBeta(2);
+
+		File book = new File(getContext().getFilesDir(), OPENING_BOOK);
+		if (book.exists()) {
+			try {
+				engine = new BookEngine(new OpeningBook(book), engine);
+			} catch (IOException e) {
+				Log.w("Game", "Can't read the opening book", e);
+			}
+		}
+
+		final GameEngine m = engine;
 		g.setOnGameEndedListener(new OnGameEndedListener() {
 			@Override
 			public void onGameEnded(int[] state) {
 				setReadOnly(true);
 				g.unregisterListeners();
+				m.stopPondering();
 				setFocusable(false);
 				setFocusableInTouchMode(false);
 
@@ -158,13 +184,16 @@ public class ChessBoardView extends View {
 
 		});
 
-		g.setOnTurnChangedListener(new OnTurnChangedListener() {
+		mTurnChangedListener = new OnTurnChangedListener() {
 
 			@Override
 			public void onTurnChanged(int turn) {
 				if (turn == getPlayer()) {
 					setReadOnly(false);
 					mAllAvailableMoves = g.getAvailableMoves();
+
+					// Think on the player's time
+					m.ponder(g);
 				} else {
 					setReadOnly(true);
 					mProgressDialog.setTitle("Thinking...");
@@ -174,7 +203,8 @@ public class ChessBoardView extends View {
 				}
 			}
 
-		});
+		};
+		g.setOnTurnChangedListener(mTurnChangedListener);
 		setGame(g);
 
 		mAllAvailableMoves = g.getAvailableMoves();
@@ -186,17 +216,18 @@ public class ChessBoardView extends View {
 	 * @author denniscui
 	 * 
 	 */
-	private class MakeMove extends AsyncTask<AlphaBeta, Object, Move> {
+	private class MakeMove extends AsyncTask<GameEngine, Object, Move> {
 
 		@Override
-		protected Move doInBackground(AlphaBeta... params) {
+		protected Move doInBackground(GameEngine... params) {
 
 			android.os.Process
 					.setThreadPriority(android.os.Process.THREAD_PRIORITY_BACKGROUND
 							+ android.os.Process.THREAD_PRIORITY_MORE_FAVORABLE);
 			Game g = getGame();
-			AlphaBeta m = (AlphaBeta) params[0];
-			return m.getMove(g);
+			GameEngine m = params[0];
+			m.stopPondering();
+			return m.getMove(g, THINKING_TIME);
 		}
 
 		@Override
@@ -235,6 +266,23 @@ public class ChessBoardView extends View {
 		mGame = g;
 	}
 
+	/**
+	 * Puts the game back as it was when a snapshot of it was taken, such as
+	 * when the activity is recreated.
+	 * 
+	 * @param snapshot
+	 *            from Game.snapshot()
+	 */
+	public void restoreGame(byte[] snapshot) {
+		mGame.restore(snapshot);
+		initCells();
+		invalidate();
+
+		// Pick up the moves of the restored position, and let the computer
+		// move if it was its turn
+		mTurnChangedListener.onTurnChanged(mGame.getTurn());
+	}
+
 	public Cell[][] getCells() {
 		return mCells;
 	}
@@ -264,7 +312,7 @@ public class ChessBoardView extends View {
 		for (int r = 0; r < rows; r++) {
 			for (int c = 0; c < cols; c++) {
 				Cell cell = new Cell(r, c);
-				if (mGame.getBoard().getMatrix()[r][c] != null)
+				if (!mGame.getBoard().isEmpty(r, c))
 					cell.setValue(1);
 
 				mCells[r][c] = cell;
@@ -6,6 +6,7 @@ import com.dcmobile.tpgames.R;
 
 import connect4.Connect4Game;
 import connect4.Connect4Rules;
+import connect4.Connect4Solver;
 
 import models.Game;
 import models.Move;
@@ -14,7 +15,7 @@ import models.Game.OnGameEndedListener;
 import models.Game.OnTurnChangedListener;
 import ui_models.Cell;
 import utils.Point;
-import algorithms.AlphaBeta;
+import engine.GameEngine;
 import android.app.ProgressDialog;
 import android.content.Context;
 import android.graphics.Bitmap;
@@ -39,6 +40,9 @@ public class Connect4BoardView extends View {
 	// default size of the board
 	public static final int DEFAULT_BOARD_SIZE = 100;
 
+	// time the computer may spend on a move, in milliseconds
+	public static final long THINKING_TIME = 3000;
+
 	// cell dimensions
 	private float mCellWidth;
 	private float mCellHeight;
@@ -122,13 +126,14 @@ public class Connect4BoardView extends View {
 	 */
 	protected void initGame() {
 		final Game g = new Connect4Game(Game.CONNECT_FOUR, new Connect4Rules());
-		final AlphaBeta m = new AlphaBeta(5);
+		final GameEngine m = new Connect4Solver();
 		g.setOnGameEndedListener(new OnGameEndedListener() {
 			@Override
 			public void onGameEnded(int[] state) {
 				Log.v("Game", "Game Ended");
 				setReadOnly(true);
 				g.unregisterListeners();
+				m.stopPondering();
 				setFocusable(false);
 				setFocusableInTouchMode(false);
 
@@ -156,6 +161,9 @@ public class Connect4BoardView extends View {
 			public void onTurnChanged(int turn) {
 				if (turn == getPlayer()) {
 					setReadOnly(false);
+
+					// Think on the player's time
+					m.ponder(g);
 				} else {
 					setReadOnly(true);
 					mProgressDialog.setTitle("Thinking...");
@@ -175,17 +183,18 @@ public class Connect4BoardView extends View {
 	 * @author denniscui
 	 * 
 	 */
-	private class MakeMove extends AsyncTask<AlphaBeta, Object, Move> {
+	private class MakeMove extends AsyncTask<GameEngine, Object, Move> {
 
 		@Override
-		protected Move doInBackground(AlphaBeta... params) {
+		protected Move doInBackground(GameEngine... params) {
 
 			android.os.Process
 					.setThreadPriority(android.os.Process.THREAD_PRIORITY_BACKGROUND
 							+ android.os.Process.THREAD_PRIORITY_MORE_FAVORABLE);
 			Game g = getGame();
-			AlphaBeta m = (AlphaBeta) params[0];
-			return m.getMove(g);
+			GameEngine m = params[0];
+			m.stopPondering();
+			return m.getMove(g, THINKING_TIME);
 		}
 
 		@Override
@@ -9,7 +9,7 @@ import models.Game.OnGameEndedListener;
 import models.Game.OnTurnChangedListener;
 import models.Move;
 import models.Piece;
-import algorithms.Minimax;
+import engine.GameEngine;
 import android.app.ProgressDialog;
 import android.content.Context;
 import android.graphics.Bitmap;
@@ -19,6 +19,7 @@ import android.util.AttributeSet;
 import android.util.Log;
 import android.widget.Toast;
 import tictactoe.TTTGame;
+import tictactoe.TTTLookupEngine;
 import tictactoe.TTTRules;
 import ui_models.Cell;
 import utils.Point;
@@ -50,7 +51,7 @@ public class TTTBoardView extends BoardView {
 	@Override
 	protected void initGame() {
 		final Game g = new TTTGame(Game.TICTACTOE, new TTTRules());
-		final Minimax m = new Minimax(5);
+		final GameEngine m = new TTTLookupEngine();
 		g.setOnGameEndedListener(new OnGameEndedListener() {
 			@Override
 			public void onGameEnded(int[] state) {
@@ -137,16 +138,16 @@ public class TTTBoardView extends BoardView {
 
 	}
 
-	private class MakeMove extends AsyncTask<Minimax, Object, Move> {
+	private class MakeMove extends AsyncTask<GameEngine, Object, Move> {
 
 		@Override
-		protected Move doInBackground(Minimax... params) {
+		protected Move doInBackground(GameEngine... params) {
 
 			android.os.Process
 					.setThreadPriority(android.os.Process.THREAD_PRIORITY_BACKGROUND
 							+ android.os.Process.THREAD_PRIORITY_MORE_FAVORABLE);
 			Game g = getGame();
-			Minimax m = (Minimax) params[0];
+			GameEngine m = params[0];
 			return m.getMove(g);
 		}
 
@@ -8,6 +8,17 @@ package utils;
  */
 public class Point {
 
+	// Points are kept for every square of a board up to this size
+	public static final int MAX_SIZE = 8;
+
+	// The shared point of each square, by x * MAX_SIZE + y
+	private static final Point[] SQUARES = new Point[MAX_SIZE * MAX_SIZE];
+
+	static {
+		for (int i = 0; i < SQUARES.length; i++)
+			SQUARES[i] = new Point(i / MAX_SIZE, i % MAX_SIZE);
+	}
+
 	private int pX;
 	private int pY;
 
@@ -25,6 +36,24 @@ public class Point {
 		this.pY = pY;
 	}
 
+	/**
+	 * Returns the shared point with the given coordinates, so that move
+	 * generation doesn't make a new one every time. Points off a board of
+	 * MAX_SIZE are made new.
+	 * 
+	 * @param pX
+	 *            x coordinate.
+	 * @param pY
+	 *            y coordinate.
+	 * @return point
+	 */
+	public static Point valueOf(int pX, int pY) {
+		if (pX >= 0 && pX < MAX_SIZE && pY >= 0 && pY < MAX_SIZE)
+			return SQUARES[pX * MAX_SIZE + pY];
+
+		return new Point(pX, pY);
+	}
+
 	/**
 	 * Returns the distance between two points as a vector.
 	 * 
@@ -61,7 +90,15 @@ public class Point {
 	 * Returns true iff the x and y coordinates are equal
 	 */
 	public boolean equals(Object other) {
+		if (other == this)
+			return true;
+
 		Point p = (Point) other;
 		return (getX() == p.getX()) && (getY() == p.getY());
 	}
+
+	@Override
+	public int hashCode() {
+		return pX * 31 + pY;
+	}
 }